@@ -0,0 +1,134 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for a running server over real HTTP connections, to compare serving models
+ * (the Tomcat worker pool against the virtual-threads profile) where the in-process benchmarks
+ * cannot.
+ *
+ * It parks a number of idle long-poll dequeues on the empty default queue, as waiting workers and
+ * dashboards do, and meanwhile measures requests per second and latency percentiles of position
+ * lookups in a pre-filled partition. Arguments are key=value pairs: url, idle, requests,
+ * concurrency, depth and waitMs. Example, against a server started separately:
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.alvaria.workordermanager.benchmark.HttpLoadBenchmark \
+ *     -Djmh.args="idle=10000 requests=200000 concurrency=256"
+ * </pre>
+ *
+ * 10k connections need a file descriptor limit above that on both ends (ulimit -n).
+ */
+public final class HttpLoadBenchmark {
+
+	private static final String PARTITION = "load";
+
+	private HttpLoadBenchmark() {
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final Map<String, String> options = new HashMap<>();
+		for (final String arg : args) {
+			final int separator = arg.indexOf('=');
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		final String url = options.getOrDefault("url", "http://localhost:8080/work-order-manager");
+		final int idle = Integer.parseInt(options.getOrDefault("idle", "10000"));
+		final int requests = Integer.parseInt(options.getOrDefault("requests", "100000"));
+		final int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+		final int depth = Integer.parseInt(options.getOrDefault("depth", "10000"));
+		final long waitMs = Long.parseLong(options.getOrDefault("waitMs", "600000"));
+
+		// Long-polls stay open far longer than the default keep-alive of pooled connections
+		System.setProperty("jdk.httpclient.keepalive.timeout", Long.toString(TimeUnit.MINUTES.toSeconds(10)));
+		final HttpClient client = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofSeconds(30))
+				.build();
+		final long firstId = System.currentTimeMillis() * 1_000;
+		fill(client, url, firstId, depth);
+
+		final AtomicInteger idleFailures = new AtomicInteger();
+		for (int i = 0; i < idle; i++) {
+			client.sendAsync(post(url + "/dequeue?waitMs=" + waitMs, "").build(),
+					HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, failure) -> idleFailures.incrementAndGet());
+		}
+		// Give the server time to accept the idle connections before measuring
+		Thread.sleep(Math.min(10_000, 1_000 + idle / 2));
+
+		final long[] latencies = new long[requests];
+		final AtomicInteger errors = new AtomicInteger();
+		final Semaphore inFlight = new Semaphore(concurrency);
+		final SplittableRandom random = new SplittableRandom();
+		final long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			inFlight.acquire();
+			final int request = i;
+			final long sent = System.nanoTime();
+			final HttpRequest position = HttpRequest.newBuilder(URI.create(url + "/partitions/" + PARTITION
+					+ "/position/" + (firstId + random.nextInt(depth))))
+					.header("Content-Type", "application/json")
+					.header("Accept", "application/json")
+					.GET()
+					.build();
+			client.sendAsync(position, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, failure) -> {
+						latencies[request] = System.nanoTime() - sent;
+						if (failure != null || response.statusCode() != 200) {
+							errors.incrementAndGet();
+						}
+						inFlight.release();
+					});
+		}
+		inFlight.acquire(concurrency);
+		final long elapsed = System.nanoTime() - start;
+
+		Arrays.sort(latencies);
+		System.out.printf("idle connections: %d (%d ended early)%n", idle, idleFailures.get());
+		System.out.printf("requests: %d, errors: %d, concurrency: %d%n", requests, errors.get(), concurrency);
+		System.out.printf("throughput: %.0f requests/s%n", requests / (elapsed / 1e9));
+		System.out.printf("latency ms: p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n", percentile(latencies, 50),
+				percentile(latencies, 99), percentile(latencies, 99.9), latencies[latencies.length - 1] / 1e6);
+		System.exit(0);
+	}
+
+	private static void fill(final HttpClient client, final String url, final long firstId, final int depth)
+			throws Exception {
+		final StringBuilder batch = new StringBuilder("[");
+		for (int i = 0; i < depth; i++) {
+			batch.append(i == 0 ? "" : ",")
+					.append("{\"id\":").append(firstId + i)
+					.append(",\"time\":\"2022-08-24T18:00:00\"}");
+		}
+		final HttpResponse<String> response = client.send(post(url + "/partitions/" + PARTITION + "/enqueue/batch",
+				batch.append(']').toString()).timeout(Duration.ofMinutes(1)).build(),
+				HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Filling the queue failed: " + response.body());
+		}
+	}
+
+	private static HttpRequest.Builder post(final String uri, final String body) {
+		return HttpRequest.newBuilder(URI.create(uri))
+				.header("Content-Type", "application/json")
+				.header("Accept", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+	}
+
+	private static double percentile(final long[] sorted, final double percent) {
+		final int rank = (int) Math.ceil(sorted.length * percent / 100);
+		return sorted[Math.max(0, rank - 1)] / 1e6;
+	}
+
+}
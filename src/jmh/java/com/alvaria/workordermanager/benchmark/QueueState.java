@@ -0,0 +1,89 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * A queue filled to a given depth with a given mix of class types, shared by all benchmark threads
+ */
+@State(Scope.Benchmark)
+public class QueueState {
+
+	static final LocalDateTime START = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+
+	/**
+	 * Class types of the generated ids
+	 */
+	public enum ClassMix {
+
+		/**
+		 * Consecutive ids: about 53% normal, 27% priority, 13% VIP and 7% management override
+		 */
+		MIXED,
+
+		/**
+		 * Only ids that are neither multiples of 3 nor of 5
+		 */
+		NORMAL;
+
+	}
+
+	@Param({ "1000", "100000", "1000000" })
+	public int depth;
+
+	@Param({ "MIXED", "NORMAL" })
+	public ClassMix mix;
+
+	WorkOrderManagerServiceImpl service;
+	long[] queuedIds;
+	private final AtomicLong sequence = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void fill() {
+		service = new WorkOrderManagerServiceImpl();
+		queuedIds = new long[depth];
+		final List<WorkOrderRequest> batch = new ArrayList<>(depth);
+		for (int i = 0; i < depth; i++) {
+			final WorkOrderRequest request = nextRequest();
+			queuedIds[i] = request.getId();
+			batch.add(request);
+		}
+		service.enqueueBatch(batch);
+	}
+
+	/**
+	 * Creates a request for an id that was never queued, enqueued one second after the previous one
+	 */
+	WorkOrderRequest nextRequest() {
+		final long next = sequence.incrementAndGet();
+		return new WorkOrderRequest(idOf(next), START.plusSeconds(next));
+	}
+
+	private long idOf(final long next) {
+		if (mix == ClassMix.MIXED) {
+			return next;
+		}
+		// 8 of every 15 consecutive numbers are neither multiples of 3 nor of 5
+		final long block = (next - 1) / 8;
+		long id = block * 15;
+		for (long remaining = (next - 1) % 8 + 1; remaining > 0;) {
+			id++;
+			if (id % 3 != 0 && id % 5 != 0) {
+				remaining--;
+			}
+		}
+		return id;
+	}
+
+}
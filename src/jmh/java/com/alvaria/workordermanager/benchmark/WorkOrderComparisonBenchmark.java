@@ -0,0 +1,138 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.queue.WorkOrderRanking;
+import com.alvaria.workordermanager.service.ClassificationPolicy;
+
+/**
+ * Cost of one queue-order comparison of two random work-orders of a queue of the given depth.
+ *
+ * listScanCompare is the comparator the queue started with, which looked up the class of both ids
+ * by scanning the id lists of every class and their ranks in a map. The queue now classifies once,
+ * at enqueue, and stores the class type with the work-order: within a class it compares enqueue
+ * time and id (classCompare), and only the heads of different classes are ranked against each
+ * other (rankedCompare). classify is the one-off cost paid at enqueue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderComparisonBenchmark {
+
+	/**
+	 * The same work-orders in the layout of the original comparator and in the stored layout
+	 */
+	@State(Scope.Benchmark)
+	public static class Orders {
+
+		@Param({ "1000", "10000" })
+		public int depth;
+
+		long[] ids;
+		long[] times;
+		ClassTypeEnum[] types;
+		long asOf;
+		final Map<ClassTypeEnum, List<Long>> classTypeGroupedIdsMap = new EnumMap<>(ClassTypeEnum.class);
+		final Map<Long, Double> rankedMap = new HashMap<>();
+
+		@Setup(Level.Trial)
+		public void fill() {
+			final long start = QueueState.START.toEpochSecond(ZoneOffset.UTC);
+			asOf = start + depth;
+			ids = new long[depth];
+			times = new long[depth];
+			types = new ClassTypeEnum[depth];
+			for (int i = 0; i < depth; i++) {
+				ids[i] = i + 1;
+				times[i] = start + i;
+				types[i] = ClassificationPolicy.DIVISIBILITY.classify(ids[i]);
+				classTypeGroupedIdsMap.computeIfAbsent(types[i], type -> new ArrayList<>()).add(ids[i]);
+				rankedMap.put(ids[i], WorkOrderRanking.DEFAULT.rank(types[i], asOf - times[i]));
+			}
+		}
+
+		ClassTypeEnum classTypeOf(final Long id) {
+			for (final Map.Entry<ClassTypeEnum, List<Long>> entry : classTypeGroupedIdsMap.entrySet()) {
+				if (entry.getValue().contains(id)) {
+					return entry.getKey();
+				}
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * Per-thread source of random work-orders
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		final SplittableRandom random = new SplittableRandom(42);
+
+	}
+
+	@Benchmark
+	public int listScanCompare(final Orders orders, final ThreadState thread) {
+		final Long id1 = orders.ids[thread.random.nextInt(orders.depth)];
+		final Long id2 = orders.ids[thread.random.nextInt(orders.depth)];
+		final ClassTypeEnum type1 = orders.classTypeOf(id1);
+		final ClassTypeEnum type2 = orders.classTypeOf(id2);
+		final Double rank1 = orders.rankedMap.get(id1);
+		final Double rank2 = orders.rankedMap.get(id2);
+		if (ClassTypeEnum.MANAGEMENT_OVERRIDE == type1 && ClassTypeEnum.MANAGEMENT_OVERRIDE == type2) {
+			return rank2.compareTo(rank1);
+		} else if (ClassTypeEnum.MANAGEMENT_OVERRIDE == type1) {
+			return -1;
+		} else if (ClassTypeEnum.MANAGEMENT_OVERRIDE == type2) {
+			return 1;
+		} else {
+			return rank2.compareTo(rank1);
+		}
+	}
+
+	@Benchmark
+	public int classCompare(final Orders orders, final ThreadState thread) {
+		final int first = thread.random.nextInt(orders.depth);
+		final int second = thread.random.nextInt(orders.depth);
+		final int byTime = Long.compare(orders.times[first], orders.times[second]);
+		return byTime != 0 ? byTime : Long.compare(orders.ids[first], orders.ids[second]);
+	}
+
+	@Benchmark
+	public int rankedCompare(final Orders orders, final ThreadState thread) {
+		final int first = thread.random.nextInt(orders.depth);
+		final int second = thread.random.nextInt(orders.depth);
+		return WorkOrderRanking.DEFAULT.compare(orders.types[first], orders.times[first], orders.ids[first],
+				orders.types[second], orders.times[second], orders.ids[second], orders.asOf);
+	}
+
+	@Benchmark
+	public ClassTypeEnum classify(final Orders orders, final ThreadState thread) {
+		return ClassificationPolicy.DIVISIBILITY.classify(orders.ids[thread.random.nextInt(orders.depth)]);
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alvaria.workordermanager.ingest.IngestProperties;
+import com.alvaria.workordermanager.ingest.WorkOrderIngestServer;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Enqueue and delete over the TCP ingest listener on loopback, for comparison with the same pair
+ * of calls through the REST layer in {@link WorkOrderResourceBenchmark}. Each invocation sends
+ * pipeline ENQ commands followed by the matching DEL commands in one write and waits for all the
+ * answers, so the score divided by pipeline is the cost of one enqueue and delete.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderIngestBenchmark {
+
+	/**
+	 * The listener in front of an empty queue
+	 */
+	@State(Scope.Benchmark)
+	public static class ServerState {
+
+		final AtomicLong sequence = new AtomicLong();
+		WorkOrderIngestServer server;
+
+		@Setup(Level.Trial)
+		public void start() throws IOException {
+			final IngestProperties properties = new IngestProperties();
+			properties.setPort(0);
+			server = new WorkOrderIngestServer(new WorkOrderManagerServiceImpl(), properties);
+			server.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() {
+			server.stop();
+		}
+
+	}
+
+	/**
+	 * One connection per benchmark thread
+	 */
+	@State(Scope.Thread)
+	public static class ConnectionState {
+
+		@Param({ "1", "64" })
+		public int pipeline;
+
+		Socket socket;
+		OutputStream output;
+		InputStream input;
+		final byte[] answers = new byte[64 * 1024];
+
+		@Setup(Level.Trial)
+		public void connect(final ServerState server) throws IOException {
+			socket = new Socket("127.0.0.1", server.server.getLocalPort());
+			socket.setTcpNoDelay(true);
+			output = socket.getOutputStream();
+			input = socket.getInputStream();
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws IOException {
+			socket.close();
+		}
+
+	}
+
+	@Benchmark
+	public int enqueueThenDelete(final ServerState server, final ConnectionState connection) throws IOException {
+		final long first = server.sequence.getAndAdd(connection.pipeline) + 1;
+		final long time = QueueState.START.toEpochSecond(ZoneOffset.UTC);
+		final StringBuilder commands = new StringBuilder(connection.pipeline * 40);
+		for (int i = 0; i < connection.pipeline; i++) {
+			commands.append("ENQ ").append(first + i).append(' ').append(time + i).append('\n');
+		}
+		for (int i = 0; i < connection.pipeline; i++) {
+			commands.append("DEL ").append(first + i).append('\n');
+		}
+		connection.output.write(commands.toString().getBytes(StandardCharsets.US_ASCII));
+
+		// Two answer lines per work-order
+		int remaining = 2 * connection.pipeline;
+		while (remaining > 0) {
+			final int read = connection.input.read(connection.answers);
+			if (read < 0) {
+				throw new IOException("Connection closed");
+			}
+			for (int i = 0; i < read; i++) {
+				if (connection.answers[i] == '\n') {
+					remaining--;
+				}
+			}
+		}
+		return remaining;
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+/**
+ * Throughput of the partitioned queues. Each benchmark thread works on its own partition, so
+ * running with -t 1, 2, 4, ... and partitions equal to the thread count shows how throughput
+ * scales with cores; partitions=1 puts every thread on the same lock for comparison.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderPartitionBenchmark {
+
+	/**
+	 * Partitions filled to a given depth each, shared by all benchmark threads
+	 */
+	@State(Scope.Benchmark)
+	public static class PartitionState {
+
+		@Param({ "1", "4", "16" })
+		public int partitions;
+
+		@Param({ "10000" })
+		public int depth;
+
+		WorkOrderPartitionServiceImpl service;
+		final AtomicInteger threads = new AtomicInteger();
+		private final AtomicLong sequence = new AtomicLong();
+
+		@Setup(Level.Trial)
+		public void fill() {
+			service = new WorkOrderPartitionServiceImpl(new WorkOrderManagerServiceImpl());
+			for (int partition = 0; partition < partitions; partition++) {
+				final List<WorkOrderRequest> batch = new ArrayList<>(depth);
+				for (int i = 0; i < depth; i++) {
+					batch.add(nextRequest());
+				}
+				service.getOrCreatePartition(key(partition)).enqueueBatch(batch);
+			}
+		}
+
+		WorkOrderRequest nextRequest() {
+			final long next = sequence.incrementAndGet();
+			return new WorkOrderRequest(next, QueueState.START.plusSeconds(next % 86_400));
+		}
+
+		static String key(final int partition) {
+			return "site-" + partition;
+		}
+
+	}
+
+	/**
+	 * The partition of a benchmark thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		String partition;
+
+		@Setup(Level.Trial)
+		public void assign(final PartitionState state) {
+			partition = PartitionState.key(state.threads.getAndIncrement() % state.partitions);
+		}
+
+	}
+
+	@Benchmark
+	public WorkOrderResponse enqueueThenDelete(final PartitionState state, final ThreadState thread) {
+		final WorkOrderRequest request = state.nextRequest();
+		request.setPartition(thread.partition);
+		state.service.enqueue(request);
+		return state.service.partition(thread.partition).delete(request.getId());
+	}
+
+	@Benchmark
+	public WorkOrderResponse dequeueGlobalThenEnqueue(final PartitionState state) {
+		final String partition = state.service.dequeueGlobal().getPartition();
+		final WorkOrderRequest request = state.nextRequest();
+		request.setPartition(partition);
+		return state.service.enqueue(request);
+	}
+
+}
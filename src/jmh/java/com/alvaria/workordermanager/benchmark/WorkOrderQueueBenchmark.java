@@ -0,0 +1,174 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.alvaria.workordermanager.model.ClassRanking;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.RankingPolicy;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.persistence.OperationLog;
+import com.alvaria.workordermanager.queue.WorkOrderRanking;
+import com.alvaria.workordermanager.queue.WorkOrderRecordStore;
+import com.alvaria.workordermanager.service.ClassificationPolicy;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Single operations of {@link com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl}
+ * against a queue of fixed depth. Mutating benchmarks pair an insert with a removal so the depth
+ * stays constant. Runs single-threaded by default; pass -t to run every benchmark from several
+ * threads at once, and -prof gc for the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderQueueBenchmark {
+
+	private static final RankingPolicy NORMAL_FIRST = new RankingPolicy(Map.of(ClassTypeEnum.NORMAL,
+			ClassRanking.builder().tier(2).build()));
+
+	/**
+	 * Per-thread source of random queue positions
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		final SplittableRandom random = new SplittableRandom();
+
+	}
+
+	/**
+	 * An operation log holding the insertion of a million work-orders, as left by a crash before
+	 * the first snapshot
+	 */
+	@State(Scope.Benchmark)
+	public static class RecoveryState {
+
+		static final int ORDERS = 1_000_000;
+
+		Path directory;
+		Path log;
+
+		@Setup(Level.Trial)
+		public void write() throws IOException {
+			directory = Files.createTempDirectory("work-order-recovery");
+			log = directory.resolve("log-1.log");
+			try (OperationLog operationLog = new OperationLog(log, 64 << 20)) {
+				final long start = QueueState.START.toEpochSecond(ZoneOffset.UTC);
+				for (long id = 1; id <= ORDERS; id++) {
+					operationLog.appendEnqueued(id, start + id, 0, ClassificationPolicy.DIVISIBILITY.classify(id), 0);
+				}
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void delete() throws IOException {
+			Files.deleteIfExists(log);
+			Files.deleteIfExists(directory);
+		}
+
+	}
+
+	@Benchmark
+	public WorkOrderResponse enqueueThenDelete(final QueueState queue) {
+		final WorkOrderRequest request = queue.nextRequest();
+		queue.service.enqueue(request);
+		return queue.service.delete(request.getId());
+	}
+
+	@Benchmark
+	public WorkOrderResponse dequeueThenEnqueue(final QueueState queue) {
+		queue.service.dequeue();
+		return queue.service.enqueue(queue.nextRequest());
+	}
+
+	@Benchmark
+	public WorkOrderResponse getPosition(final QueueState queue, final ThreadState thread) {
+		return queue.service.getPosition(queue.queuedIds[thread.random.nextInt(queue.queuedIds.length)]);
+	}
+
+	@Benchmark
+	public Object getIdsPage(final QueueState queue, final ThreadState thread) {
+		return queue.service.getIds(thread.random.nextInt(queue.depth), 50);
+	}
+
+	@Benchmark
+	public Object computeWaitingTime(final QueueState queue) {
+		return queue.service.computeWaitingTime(new WorkOrderRequest(null, QueueState.START));
+	}
+
+	@Benchmark
+	public void streamWaitingTime(final QueueState queue, final Blackhole blackhole) {
+		queue.service.computeWaitingTime(new WorkOrderRequest(null, QueueState.START),
+				(id, waitingTime) -> blackhole.consume(waitingTime));
+	}
+
+	/**
+	 * Compiles and installs a ranking policy, then reads the new head of the queue
+	 */
+	@Benchmark
+	public Object reloadRanking(final QueueState queue, final ThreadState thread) {
+		queue.service.setRanking(WorkOrderRanking.compile(thread.random.nextBoolean() ? NORMAL_FIRST : null));
+		return queue.service.getIds(0, 50);
+	}
+
+	@Benchmark
+	public Object computeWaitingTimeStatistics(final QueueState queue) {
+		return queue.service.computeWaitingTimeStatistics(new WorkOrderRequest(null, QueueState.START));
+	}
+
+	/**
+	 * Replays the log of a million work-orders and bulk loads them into an empty queue, as
+	 * persistence does on startup
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public WorkOrderManagerServiceImpl recover(final RecoveryState recovery) throws IOException {
+		final WorkOrderRecordStore store = new WorkOrderRecordStore();
+		OperationLog.replay(recovery.log, new OperationLog.Handler() {
+
+			@Override
+			public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+					final int timeToLive) {
+				if (!store.contains(id)) {
+					store.allocate(id, time, nano, classType, timeToLive);
+				}
+			}
+
+			@Override
+			public void removed(final long id) {
+				final int slot = store.slotOf(id);
+				if (slot != WorkOrderRecordStore.NO_SLOT) {
+					store.release(slot);
+				}
+			}
+
+		});
+		final WorkOrderManagerServiceImpl service = new WorkOrderManagerServiceImpl();
+		service.restore(store);
+		return service;
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+
+/**
+ * Writers and readers hitting the same queue at once, to measure how much the write lock and the
+ * snapshot publication slow readers down and vice versa.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderQueueContendedBenchmark {
+
+	/**
+	 * Per-thread source of random queue positions
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		final SplittableRandom random = new SplittableRandom();
+
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public WorkOrderResponse writer(final QueueState queue) {
+		final WorkOrderRequest request = queue.nextRequest();
+		queue.service.enqueue(request);
+		return queue.service.delete(request.getId());
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(4)
+	public WorkOrderResponse positionReader(final QueueState queue, final ThreadState thread) {
+		return queue.service.getPosition(queue.queuedIds[thread.random.nextInt(queue.queuedIds.length)]);
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public Object pageReader(final QueueState queue, final ThreadState thread) {
+		return queue.service.getIds(thread.random.nextInt(queue.depth), 50);
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.alvaria.workordermanager.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.alvaria.workordermanager.converter.WorkOrderBinaryMessageConverter;
+import com.alvaria.workordermanager.exception.handler.GlobalExceptionHandler;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.resource.WorkOrderManagerResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Requests through the Spring MVC layer (dispatch, argument resolution, Jackson), without a
+ * network, so the cost of the REST layer can be compared with {@link WorkOrderQueueBenchmark}, and
+ * JSON with the binary format of {@link WorkOrderBinaryMessageConverter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderResourceBenchmark {
+
+	private static final int PAGE_SIZE = 1000;
+
+	/**
+	 * MockMvc bound to the resource of the shared queue
+	 */
+	@State(Scope.Benchmark)
+	public static class ResourceState {
+
+		MockMvc mockMvc;
+		ObjectMapper objectMapper;
+
+		@Setup(Level.Trial)
+		public void setUp(final QueueState queue) {
+			// Without Spring Boot logging is not configured and logback would log every request at DEBUG
+			((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+					.setLevel(ch.qos.logback.classic.Level.WARN);
+			objectMapper = Jackson2ObjectMapperBuilder.json().build();
+			mockMvc = MockMvcBuilders.standaloneSetup(new WorkOrderManagerResource(queue.service))
+					.setControllerAdvice(new GlobalExceptionHandler())
+					.setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper),
+							new WorkOrderBinaryMessageConverter())
+					.build();
+		}
+
+	}
+
+	/**
+	 * Per-thread source of random queue positions
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		final SplittableRandom random = new SplittableRandom();
+
+	}
+
+	@Benchmark
+	public MvcResult enqueueThenDelete(final QueueState queue, final ResourceState resource) throws Exception {
+		final WorkOrderRequest request = queue.nextRequest();
+		resource.mockMvc.perform(MockMvcRequestBuilders.post("/work-order-manager/enqueue")
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.content(resource.objectMapper.writeValueAsBytes(request)))
+				.andReturn();
+		return resource.mockMvc.perform(MockMvcRequestBuilders.delete("/work-order-manager/" + request.getId())
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON))
+				.andReturn();
+	}
+
+	@Benchmark
+	public MvcResult getPosition(final QueueState queue, final ResourceState resource, final ThreadState thread)
+			throws Exception {
+		final long id = queue.queuedIds[thread.random.nextInt(queue.queuedIds.length)];
+		return resource.mockMvc.perform(MockMvcRequestBuilders.get("/work-order-manager/position/" + id)
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON))
+				.andReturn();
+	}
+
+	@Benchmark
+	public MvcResult getIdsJson(final ResourceState resource) throws Exception {
+		return getIds(resource, MediaType.APPLICATION_JSON);
+	}
+
+	@Benchmark
+	public MvcResult getIdsBinary(final ResourceState resource) throws Exception {
+		return getIds(resource, WorkOrderBinaryMessageConverter.WORK_ORDER);
+	}
+
+	private static MvcResult getIds(final ResourceState resource, final MediaType mediaType) throws Exception {
+		return resource.mockMvc.perform(MockMvcRequestBuilders.get("/work-order-manager/getIds")
+				.param("limit", Integer.toString(PAGE_SIZE))
+				.contentType(mediaType)
+				.accept(mediaType))
+				.andReturn();
+	}
+
+}
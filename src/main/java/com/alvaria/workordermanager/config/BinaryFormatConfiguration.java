@@ -0,0 +1,37 @@
+package com.alvaria.workordermanager.config;
+
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.alvaria.workordermanager.converter.WorkOrderBinaryMessageConverter;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Registers the binary format of {@link WorkOrderBinaryMessageConverter} after the JSON converter,
+ * so a client that accepts any media type, e.g. with no Accept header, still gets JSON, errors
+ * included, and only clients that ask for the binary format get it. Epoch seconds are converted in
+ * the zone of the queue's clock.
+ */
+@Configuration
+public class BinaryFormatConfiguration implements WebMvcConfigurer {
+
+	private final ObjectProvider<WorkOrderManagerServiceImpl> workOrderManagerService;
+
+	@Autowired
+	public BinaryFormatConfiguration(final ObjectProvider<WorkOrderManagerServiceImpl> workOrderManagerService) {
+		this.workOrderManagerService = workOrderManagerService;
+	}
+
+	@Override
+	public void extendMessageConverters(final List<HttpMessageConverter<?>> converters) {
+		final WorkOrderManagerServiceImpl queue = workOrderManagerService.getIfUnique();
+		converters.add(new WorkOrderBinaryMessageConverter(queue == null ? ZoneId::systemDefault : queue::getZone));
+	}
+
+}
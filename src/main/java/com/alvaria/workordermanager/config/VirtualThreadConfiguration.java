@@ -0,0 +1,68 @@
+package com.alvaria.workordermanager.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Serves requests on virtual threads instead of the bounded Tomcat worker pool, enabled with
+ * work-order-manager.virtual-threads.enabled=true (the virtual-threads Spring profile) on Java 21
+ * or later.
+ *
+ * Every request and every async task of Spring MVC (streamed responses) gets its own virtual
+ * thread, so requests that block, e.g. a long {@code dequeue(Duration)}, no longer use up the pool.
+ * The executor is looked up reflectively, so the class compiles for any release the build targets
+ * (11 by default, 17 with the virtual-threads Maven profile) and only needs Java 21 at runtime.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "work-order-manager.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+
+	private final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+		return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+	}
+
+	@PreDestroy
+	public void stop() {
+		virtualThreadExecutor.shutdown();
+	}
+
+	@Override
+	public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		final MethodHandle factory;
+		try {
+			factory = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+					MethodType.methodType(ExecutorService.class));
+		} catch (final NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException("Virtual threads require Java 21 or later, running on Java "
+					+ System.getProperty("java.version"), e);
+		}
+		try {
+			return (ExecutorService) factory.invoke();
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.alvaria.workordermanager.converter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.alvaria.workordermanager.model.ErrorDetails;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+
+/**
+ * Compact binary alternative to JSON for bulk clients, negotiated with the media type
+ * {@value #WORK_ORDER_VALUE} in Content-Type and Accept. Registered by
+ * {@link com.alvaria.workordermanager.config.BinaryFormatConfiguration}.
+ *
+ * All numbers are big-endian, ids are raw longs and times are epoch seconds (fractions of a second
+ * are dropped), converted from and to the local times of the queue in the zone of its clock, so a
+ * client can send {@link Instant#getEpochSecond()} whatever zone the server runs in. Strings are
+ * {@link DataOutputStream#writeUTF(String) modified UTF-8} with a 2 byte length prefix.
+ * <ul>
+ * <li>Request: id (8 bytes), time (8 bytes)</li>
+ * <li>Response: a flags byte saying which fields follow, then id (8 bytes), time (8 bytes),
+ * position (4 bytes), waiting time (8 bytes), message, partition and lease deadline (8 bytes), each
+ * only if present</li>
+ * <li>List: count (4 bytes) followed by that many requests or responses</li>
+ * <li>Error: status (4 bytes), message, path</li>
+ * </ul>
+ */
+public class WorkOrderBinaryMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+	public static final String WORK_ORDER_VALUE = "application/x-work-order";
+	public static final MediaType WORK_ORDER = MediaType.valueOf(WORK_ORDER_VALUE);
+
+	static final int HAS_ID = 1;
+	static final int HAS_TIME = 1 << 1;
+	static final int HAS_POSITION = 1 << 2;
+	static final int HAS_WAITING_TIME = 1 << 3;
+	static final int HAS_MESSAGE = 1 << 4;
+	static final int HAS_PARTITION = 1 << 5;
+	static final int HAS_LEASE_DEADLINE = 1 << 6;
+
+	private static final int REQUEST_BYTES = 2 * Long.BYTES;
+	private static final int BUFFER_BYTES = 8192;
+
+	private final Supplier<ZoneId> zone;
+
+	/**
+	 * Creates a converter for a queue on the system default clock
+	 */
+	public WorkOrderBinaryMessageConverter() {
+		this(ZoneId::systemDefault);
+	}
+
+	/**
+	 * Creates a converter for a queue whose clock is in a given zone
+	 *
+	 * @param zone Supplies the zone of the queue's clock
+	 */
+	public WorkOrderBinaryMessageConverter(final Supplier<ZoneId> zone) {
+		super(WORK_ORDER);
+		this.zone = zone;
+	}
+
+	@Override
+	protected boolean supports(final Class<?> clazz) {
+		return clazz == WorkOrderRequest.class || clazz == WorkOrderResponse.class || clazz == ErrorDetails.class
+				|| List.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	public boolean canRead(final Type type, final Class<?> contextClass, final MediaType mediaType) {
+		final ResolvableType resolvableType = ResolvableType.forType(type);
+		return canRead(mediaType) && (resolvableType.resolve() == WorkOrderRequest.class
+				|| isListOf(resolvableType, WorkOrderRequest.class));
+	}
+
+	@Override
+	public boolean canRead(final Class<?> clazz, final MediaType mediaType) {
+		return clazz == WorkOrderRequest.class && canRead(mediaType);
+	}
+
+	@Override
+	public boolean canWrite(final Type type, final Class<?> clazz, final MediaType mediaType) {
+		if (type == null) {
+			return canWrite(clazz, mediaType);
+		}
+		final ResolvableType resolvableType = ResolvableType.forType(type);
+		final Class<?> resolved = resolvableType.resolve(clazz);
+		return canWrite(mediaType) && (resolved == WorkOrderResponse.class || resolved == ErrorDetails.class
+				|| isListOf(resolvableType, WorkOrderResponse.class));
+	}
+
+	@Override
+	public boolean canWrite(final Class<?> clazz, final MediaType mediaType) {
+		return (clazz == WorkOrderResponse.class || clazz == ErrorDetails.class) && canWrite(mediaType);
+	}
+
+	@Override
+	public Object read(final Type type, final Class<?> contextClass, final HttpInputMessage inputMessage)
+			throws IOException {
+		final DataInputStream input = new DataInputStream(new BufferedInputStream(inputMessage.getBody(),
+				BUFFER_BYTES));
+		try {
+			final ZoneId zoneId = zone.get();
+			if (ResolvableType.forType(type).resolve() == WorkOrderRequest.class) {
+				return readRequest(input, zoneId);
+			}
+			final int count = input.readInt();
+			if (count < 0) {
+				throw new HttpMessageNotReadableException("Negative work-order count " + count, inputMessage);
+			}
+			// The count is not trusted for sizing until the records have actually arrived
+			final List<WorkOrderRequest> workOrderRequests = new ArrayList<>(Math.min(count,
+					BUFFER_BYTES / REQUEST_BYTES));
+			for (int i = 0; i < count; i++) {
+				workOrderRequests.add(readRequest(input, zoneId));
+			}
+			return workOrderRequests;
+		} catch (final EOFException e) {
+			throw new HttpMessageNotReadableException("Truncated work-order message", e, inputMessage);
+		}
+	}
+
+	@Override
+	protected Object readInternal(final Class<?> clazz, final HttpInputMessage inputMessage) throws IOException {
+		return read(clazz, null, inputMessage);
+	}
+
+	@Override
+	protected void writeInternal(final Object object, final Type type, final HttpOutputMessage outputMessage)
+			throws IOException {
+		final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody(),
+				BUFFER_BYTES));
+		final ZoneId zoneId = zone.get();
+		if (object instanceof WorkOrderResponse) {
+			writeResponse(output, (WorkOrderResponse) object, zoneId);
+		} else if (object instanceof ErrorDetails) {
+			final ErrorDetails errorDetails = (ErrorDetails) object;
+			output.writeInt(errorDetails.getErrorStatus());
+			output.writeUTF(nullToEmpty(errorDetails.getErrorMessage()));
+			output.writeUTF(nullToEmpty(errorDetails.getPath()));
+		} else if (object instanceof List) {
+			final List<?> list = (List<?>) object;
+			output.writeInt(list.size());
+			for (final Object element : list) {
+				if (!(element instanceof WorkOrderResponse)) {
+					throw new HttpMessageNotWritableException("Cannot write " + element + " as " + WORK_ORDER_VALUE);
+				}
+				writeResponse(output, (WorkOrderResponse) element, zoneId);
+			}
+		} else {
+			throw new HttpMessageNotWritableException("Cannot write " + object + " as " + WORK_ORDER_VALUE);
+		}
+		output.flush();
+	}
+
+	private static WorkOrderRequest readRequest(final DataInputStream input, final ZoneId zoneId)
+			throws IOException {
+		final long id = input.readLong();
+		final long time = input.readLong();
+		return new WorkOrderRequest(id, LocalDateTime.ofInstant(Instant.ofEpochSecond(time), zoneId));
+	}
+
+	private static void writeResponse(final DataOutputStream output, final WorkOrderResponse workOrderResponse,
+			final ZoneId zoneId) throws IOException {
+		final int flags = (workOrderResponse.getId() == null ? 0 : HAS_ID)
+				| (workOrderResponse.getTime() == null ? 0 : HAS_TIME)
+				| (workOrderResponse.getPosition() == null ? 0 : HAS_POSITION)
+				| (workOrderResponse.getWaitingTime() == null ? 0 : HAS_WAITING_TIME)
+				| (workOrderResponse.getMessage() == null ? 0 : HAS_MESSAGE)
+				| (workOrderResponse.getPartition() == null ? 0 : HAS_PARTITION)
+				| (workOrderResponse.getLeaseDeadline() == null ? 0 : HAS_LEASE_DEADLINE);
+		output.writeByte(flags);
+		if ((flags & HAS_ID) != 0) {
+			output.writeLong(workOrderResponse.getId());
+		}
+		if ((flags & HAS_TIME) != 0) {
+			output.writeLong(workOrderResponse.getTime().atZone(zoneId).toEpochSecond());
+		}
+		if ((flags & HAS_POSITION) != 0) {
+			output.writeInt(workOrderResponse.getPosition());
+		}
+		if ((flags & HAS_WAITING_TIME) != 0) {
+			output.writeLong(workOrderResponse.getWaitingTime());
+		}
+		if ((flags & HAS_MESSAGE) != 0) {
+			output.writeUTF(workOrderResponse.getMessage());
+		}
+		if ((flags & HAS_PARTITION) != 0) {
+			output.writeUTF(workOrderResponse.getPartition());
+		}
+		if ((flags & HAS_LEASE_DEADLINE) != 0) {
+			output.writeLong(workOrderResponse.getLeaseDeadline().atZone(zoneId).toEpochSecond());
+		}
+	}
+
+	private static boolean isListOf(final ResolvableType type, final Class<?> elementClass) {
+		return type.resolve() != null && List.class.isAssignableFrom(type.resolve())
+				&& type.asCollection().resolveGeneric(0) == elementClass;
+	}
+
+	private static String nullToEmpty(final String value) {
+		return value == null ? "" : value;
+	}
+
+}
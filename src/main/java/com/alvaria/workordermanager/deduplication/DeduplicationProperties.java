@@ -0,0 +1,30 @@
+package com.alvaria.workordermanager.deduplication;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of duplicate suppression, bound from work-order-manager.deduplication.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.deduplication")
+@Getter
+@Setter
+public class DeduplicationProperties {
+
+	/**
+	 * How long the id of a dequeued or acknowledged work-order is remembered, e.g. 10m; unset or
+	 * zero disables duplicate suppression
+	 */
+	private Duration window;
+
+	/**
+	 * Ids per window remembered per partition; if more arrive within the window the oldest are
+	 * forgotten before it ends. Memory is bounded by a third more ids than this.
+	 */
+	private int maxIds = 1_000_000;
+
+}
@@ -0,0 +1,47 @@
+package com.alvaria.workordermanager.deduplication;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+/**
+ * Applies the configured duplicate suppression to every partition: the ids of work-orders that
+ * were dequeued or acknowledged within the window are rejected on enqueue (see
+ * {@link com.alvaria.workordermanager.queue.RecentIdFilter}).
+ */
+@Component
+@EnableConfigurationProperties(DeduplicationProperties.class)
+public class WorkOrderDeduplication {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderDeduplication.class);
+
+	private final WorkOrderPartitionServiceImpl workOrderPartitionService;
+	private final DeduplicationProperties properties;
+
+	@Autowired
+	public WorkOrderDeduplication(final WorkOrderPartitionServiceImpl workOrderPartitionService,
+			final DeduplicationProperties properties) {
+		this.workOrderPartitionService = workOrderPartitionService;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	public void load() {
+		if (properties.getWindow() == null || properties.getWindow().isZero()) {
+			return;
+		}
+		if (properties.getWindow().isNegative() || properties.getMaxIds() <= 0) {
+			throw new IllegalArgumentException("Deduplication window and max-ids must be positive");
+		}
+		workOrderPartitionService.setDeduplication(properties.getWindow(), properties.getMaxIds());
+		LOGGER.info("Suppressing duplicates of ids processed within {}, up to {} ids per partition",
+				properties.getWindow(), properties.getMaxIds());
+	}
+
+}
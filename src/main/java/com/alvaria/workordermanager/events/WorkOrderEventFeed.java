@@ -0,0 +1,193 @@
+package com.alvaria.workordermanager.events;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.alvaria.workordermanager.model.WorkOrderEvent;
+import com.alvaria.workordermanager.model.WorkOrderEventType;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Fans the change feed of the queue out to Server-Sent Events subscribers.
+ *
+ * A dispatcher thread polls the {@link WorkOrderEventRing} of the queue and, for every subscriber
+ * that has events to catch up on, schedules a drain on a pool with a fixed number of threads. A
+ * subscriber is drained by at most one thread at a time and reads the ring from its own position,
+ * so a slow subscriber only holds up itself and the number of subscribers does not add threads.
+ * One that falls more than the ring capacity behind is sent a single OVERFLOW event with the
+ * number of events it missed and the current queue depth, then disconnected, so it does not keep a
+ * drain thread busy replaying a ring it cannot keep up with; it can subscribe again. Subscribers
+ * whose connection fails are dropped.
+ */
+@Component
+public class WorkOrderEventFeed {
+
+	private static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(15);
+	private static final int DRAIN_BATCH = 256;
+	private static final int DRAIN_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService;
+	private final WorkOrderEventRing ring;
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger threadCount = new AtomicInteger();
+	private final ExecutorService drainPool = Executors.newFixedThreadPool(DRAIN_THREADS, runnable -> {
+		final Thread thread = new Thread(runnable, "work-order-events-" + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Thread dispatcher = new Thread(this::dispatch, "work-order-events-dispatcher");
+	private volatile boolean running;
+
+	@Autowired
+	public WorkOrderEventFeed(final WorkOrderManagerServiceImpl workOrderManagerService) {
+		this.workOrderManagerService = workOrderManagerService;
+		this.ring = workOrderManagerService.events();
+		this.dispatcher.setDaemon(true);
+	}
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		dispatcher.start();
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		LockSupport.unpark(dispatcher);
+		drainPool.shutdownNow();
+		for (final Subscriber subscriber : subscribers) {
+			subscriber.emitter.complete();
+		}
+		subscribers.clear();
+	}
+
+	/**
+	 * Subscribes to the events that happen from now on
+	 *
+	 * @return The emitter of the subscription, which stays open until the client disconnects
+	 */
+	public SseEmitter subscribe() {
+		// 0 disables the async request timeout; dead connections are found by the heartbeat
+		final SseEmitter emitter = new SseEmitter(0L);
+		final Subscriber subscriber = new Subscriber(emitter, ring.nextSequence());
+		emitter.onCompletion(() -> subscribers.remove(subscriber));
+		emitter.onError(e -> subscribers.remove(subscriber));
+		emitter.onTimeout(() -> subscribers.remove(subscriber));
+		subscribers.add(subscriber);
+		LockSupport.unpark(dispatcher);
+		return emitter;
+	}
+
+	public int subscriberCount() {
+		return subscribers.size();
+	}
+
+	private void dispatch() {
+		while (running) {
+			if (subscribers.isEmpty()) {
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, POLL_INTERVAL_NANOS);
+			}
+			final long next = ring.nextSequence();
+			final long now = System.nanoTime();
+			for (final Subscriber subscriber : subscribers) {
+				if ((subscriber.position < next || now - subscriber.lastSent > HEARTBEAT_INTERVAL_NANOS)
+						&& subscriber.draining.compareAndSet(false, true)) {
+					drainPool.execute(subscriber);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A subscriber with its own read position in the ring
+	 */
+	private final class Subscriber implements Runnable {
+
+		private final SseEmitter emitter;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile long position;
+		private volatile long lastSent = System.nanoTime();
+
+		private Subscriber(final SseEmitter emitter, final long position) {
+			this.emitter = emitter;
+			this.position = position;
+		}
+
+		@Override
+		public void run() {
+			try {
+				drain();
+			} catch (final IOException | IllegalStateException e) {
+				// The client went away or the emitter was completed
+				subscribers.remove(this);
+				emitter.completeWithError(e);
+			} finally {
+				draining.set(false);
+			}
+		}
+
+		private void drain() throws IOException {
+			if (position >= ring.nextSequence()) {
+				emitter.send(SseEmitter.event().comment("heartbeat"));
+				lastSent = System.nanoTime();
+				return;
+			}
+			while (position < ring.nextSequence()) {
+				final long oldest = ring.oldestSequence();
+				if (position < oldest) {
+					send(WorkOrderEvent.builder()
+							.sequence(oldest - 1)
+							.type(WorkOrderEventType.OVERFLOW)
+							.missed(oldest - position)
+							.queueDepth(workOrderManagerService.queueDepth())
+							.build());
+					subscribers.remove(this);
+					emitter.complete();
+					return;
+				}
+				position = ring.read(position, DRAIN_BATCH, (sequence, type, id, classType, queueDepth) -> {
+					try {
+						send(WorkOrderEvent.builder()
+								.sequence(sequence)
+								.type(type)
+								.id(id)
+								.classType(classType)
+								.queueDepth(queueDepth)
+								.build());
+					} catch (final IOException e) {
+						throw new IllegalStateException(e);
+					}
+				});
+			}
+		}
+
+		private void send(final WorkOrderEvent event) throws IOException {
+			emitter.send(SseEmitter.event()
+					.id(Long.toString(event.getSequence()))
+					.name(event.getType().name())
+					.data(event, MediaType.APPLICATION_JSON));
+			lastSent = System.nanoTime();
+		}
+
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.alvaria.workordermanager.events;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.WorkOrderEventType;
+
+/**
+ * Bounded ring buffer of queue mutation events, written by the queue and read by any number of
+ * subscribers without locking.
+ *
+ * There is a single writer at a time (the queue appends while holding its write lock) and it never
+ * waits for readers: once the ring is full the oldest events are overwritten. Events are stored in
+ * parallel primitive arrays, so appending allocates nothing. Every slot carries the sequence of
+ * its event, which readers check before and after copying the event out; a reader that finds a
+ * different sequence has been lapped by the writer and must skip ahead to
+ * {@link #oldestSequence()}.
+ */
+public final class WorkOrderEventRing {
+
+	/**
+	 * Callback of {@link WorkOrderEventRing#read(long, int, EventVisitor)}
+	 */
+	@FunctionalInterface
+	public interface EventVisitor {
+
+		void visit(long sequence, WorkOrderEventType type, long id, ClassTypeEnum classType, int queueDepth);
+
+	}
+
+	private static final WorkOrderEventType[] EVENT_TYPES = WorkOrderEventType.values();
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+	private static final long WRITING = -1L;
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final long[] ids;
+	private final byte[] types;
+	private final byte[] classTypes;
+	private final int[] queueDepths;
+	private volatile long nextSequence;
+
+	/**
+	 * @param capacity Number of events kept, rounded up to a power of two
+	 */
+	public WorkOrderEventRing(final int capacity) {
+		final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		this.ids = new long[size];
+		this.types = new byte[size];
+		this.classTypes = new byte[size];
+		this.queueDepths = new int[size];
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, WRITING);
+		}
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Retrieves the sequence the next appended event will get
+	 *
+	 * @return One past the sequence of the newest event
+	 */
+	public long nextSequence() {
+		return nextSequence;
+	}
+
+	/**
+	 * Retrieves the sequence of the oldest event still in the ring
+	 *
+	 * @return The oldest readable sequence
+	 */
+	public long oldestSequence() {
+		return Math.max(0, nextSequence - capacity());
+	}
+
+	/**
+	 * Appends an event. Must only be called by one thread at a time.
+	 *
+	 * @param type       The kind of mutation
+	 * @param id         The id of work-order
+	 * @param classType  The class type of work-order
+	 * @param queueDepth The queue depth after the mutation
+	 */
+	public void append(final WorkOrderEventType type, final long id, final ClassTypeEnum classType,
+			final int queueDepth) {
+		final long sequence = nextSequence;
+		final int index = (int) sequence & mask;
+		sequences.set(index, WRITING);
+		VarHandle.storeStoreFence();
+		ids[index] = id;
+		types[index] = (byte) type.ordinal();
+		classTypes[index] = (byte) classType.ordinal();
+		queueDepths[index] = queueDepth;
+		sequences.set(index, sequence);
+		nextSequence = sequence + 1;
+	}
+
+	/**
+	 * Visits events in sequence order, starting at a given sequence. Stops early when it reaches an
+	 * event that was overwritten, in which case the returned sequence is below
+	 * {@link #oldestSequence()}.
+	 *
+	 * @param from    The sequence of the first event to visit
+	 * @param limit   The maximum number of events to visit
+	 * @param visitor Receives each event
+	 * @return The sequence to continue reading at
+	 */
+	public long read(final long from, final int limit, final EventVisitor visitor) {
+		final long to = Math.min(nextSequence, from + limit);
+		long sequence = from;
+		for (; sequence < to; sequence++) {
+			final int index = (int) sequence & mask;
+			if (sequences.get(index) != sequence) {
+				break;
+			}
+			final long id = ids[index];
+			final int type = types[index];
+			final int classType = classTypes[index];
+			final int queueDepth = queueDepths[index];
+			VarHandle.loadLoadFence();
+			if (sequences.get(index) != sequence) {
+				break;
+			}
+			visitor.visit(sequence, EVENT_TYPES[type], id, CLASS_TYPES[classType], queueDepth);
+		}
+		return sequence;
+	}
+
+}
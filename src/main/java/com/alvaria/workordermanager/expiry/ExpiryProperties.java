@@ -0,0 +1,33 @@
+package com.alvaria.workordermanager.expiry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of work-order expiry, bound from work-order-manager.expiry.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.expiry")
+@Getter
+@Setter
+public class ExpiryProperties {
+
+	/**
+	 * Time-to-live per class type, e.g. work-order-manager.expiry.time-to-live.normal=30m; classes
+	 * left out never expire unless a work-order has a ttl of its own
+	 */
+	private Map<ClassTypeEnum, Duration> timeToLive = new EnumMap<>(ClassTypeEnum.class);
+
+	/**
+	 * Time between two sweeps that remove the expired work-orders
+	 */
+	private long sweepIntervalMillis = 1000;
+
+}
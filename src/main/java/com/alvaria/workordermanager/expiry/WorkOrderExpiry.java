@@ -0,0 +1,73 @@
+package com.alvaria.workordermanager.expiry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+/**
+ * Applies the configured class time-to-live to every partition and sweeps the expired
+ * work-orders out of them at a fixed interval. A sweep only visits the deadlines that are due
+ * (see {@link com.alvaria.workordermanager.queue.TimingWheel}), so its cost does not depend on
+ * the queue depth. The same sweep puts the work-orders whose lease ran out back into the queue.
+ */
+@Component
+@EnableConfigurationProperties(ExpiryProperties.class)
+public class WorkOrderExpiry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderExpiry.class);
+
+	private final WorkOrderPartitionServiceImpl workOrderPartitionService;
+	private final ExpiryProperties properties;
+	private ScheduledExecutorService sweeper;
+
+	@Autowired
+	public WorkOrderExpiry(final WorkOrderPartitionServiceImpl workOrderPartitionService,
+			final ExpiryProperties properties) {
+		this.workOrderPartitionService = workOrderPartitionService;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	public void start() {
+		workOrderPartitionService.setTimesToLive(properties.getTimeToLive());
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "work-order-expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(this::sweepQuietly, properties.getSweepIntervalMillis(),
+				properties.getSweepIntervalMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		sweeper.shutdownNow();
+	}
+
+	private void sweepQuietly() {
+		try {
+			final int expired = workOrderPartitionService.expire();
+			if (expired > 0) {
+				LOGGER.debug("Expired {} work-orders", expired);
+			}
+			final int redelivered = workOrderPartitionService.redeliver();
+			if (redelivered > 0) {
+				LOGGER.debug("Redelivered {} work-orders whose lease ran out", redelivered);
+			}
+		} catch (final RuntimeException e) {
+			LOGGER.warn("Could not expire work-orders", e);
+		}
+	}
+
+}
@@ -0,0 +1,309 @@
+package com.alvaria.workordermanager.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.WorkOrderManagerService;
+
+/**
+ * Buffers and command interpreter of one ingest connection.
+ *
+ * Commands are ASCII lines, answered by one line each in the same order:
+ * <ul>
+ * <li>{@code ENQ <id> <epoch-second>} answers {@code OK <id>}</li>
+ * <li>{@code DEQ} answers {@code OK <id> <epoch-second>}</li>
+ * <li>{@code DEL <id>} answers {@code OK <id>}</li>
+ * <li>{@code POS <id>} answers {@code OK <id> <position>}</li>
+ * </ul>
+ * Epoch seconds are converted from and to the local times of the queue in the zone of its clock.
+ * A failed command answers {@code ERR <message>}. All complete lines received by one read are
+ * interpreted together, and consecutive ENQ or DEQ commands among them go to the queue as one
+ * batch, so they share a single critical section.
+ */
+final class IngestConnection {
+
+	static final int INPUT_BYTES = 64 * 1024;
+
+	private static final int ENQ = 1;
+	private static final int DEQ = 2;
+	private static final int DEL = 3;
+	private static final int POS = 4;
+	private static final int INVALID = 0;
+	private static final int MAX_COMMANDS = 1024;
+	private static final byte[] OK = "OK ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ERR = "ERR ".getBytes(StandardCharsets.US_ASCII);
+	private static final String INVALID_MESSAGE = "Invalid command";
+
+	private final ByteBuffer input = ByteBuffer.allocate(INPUT_BYTES);
+	private ByteBuffer output = ByteBuffer.allocate(INPUT_BYTES);
+	private final int[] commands = new int[MAX_COMMANDS];
+	private final long[] ids = new long[MAX_COMMANDS];
+	private final long[] times = new long[MAX_COMMANDS];
+	private int cursor;
+
+	/**
+	 * @return The buffer the next read goes to, in write mode
+	 */
+	ByteBuffer input() {
+		return input;
+	}
+
+	/**
+	 * @return The buffer of answers not yet sent, in write mode
+	 */
+	ByteBuffer output() {
+		return output;
+	}
+
+	/**
+	 * @return true if the input is full without holding a complete line
+	 */
+	boolean overflowed() {
+		return !input.hasRemaining();
+	}
+
+	/**
+	 * Interprets all complete lines in the input and appends their answers to the output. A
+	 * partial last line stays in the input.
+	 *
+	 * @param workOrderManagerService The queue the commands are applied to
+	 */
+	void process(final WorkOrderManagerService workOrderManagerService) {
+		final byte[] bytes = input.array();
+		final int end = input.position();
+		int count = 0;
+		int lineStart = 0;
+		for (int i = 0; i < end; i++) {
+			if (bytes[i] == '\n') {
+				parse(bytes, lineStart, i, count++);
+				lineStart = i + 1;
+				if (count == MAX_COMMANDS) {
+					executeAll(workOrderManagerService, count);
+					count = 0;
+				}
+			}
+		}
+		executeAll(workOrderManagerService, count);
+		input.flip().position(lineStart);
+		input.compact();
+	}
+
+	private void executeAll(final WorkOrderManagerService workOrderManagerService, final int count) {
+		int first = 0;
+		while (first < count) {
+			int last = first + 1;
+			if (commands[first] == ENQ || commands[first] == DEQ) {
+				while (last < count && commands[last] == commands[first]) {
+					last++;
+				}
+			}
+			execute(workOrderManagerService, first, last);
+			first = last;
+		}
+	}
+
+	private void execute(final WorkOrderManagerService workOrderManagerService, final int first, final int last) {
+		try {
+			switch (commands[first]) {
+			case ENQ:
+				enqueue(workOrderManagerService, first, last);
+				break;
+			case DEQ:
+				dequeue(workOrderManagerService, first, last);
+				break;
+			case DEL:
+				workOrderManagerService.delete(ids[first]);
+				ok(ids[first]);
+				endLine();
+				break;
+			case POS:
+				ok(ids[first]);
+				number(workOrderManagerService.getPosition(ids[first]).getPosition());
+				endLine();
+				break;
+			default:
+				error(INVALID_MESSAGE);
+			}
+		} catch (final WorkOrderException | WorkOrderNotFoundException e) {
+			for (int i = first; i < last; i++) {
+				error(e.getMessage());
+			}
+		}
+	}
+
+	private void enqueue(final WorkOrderManagerService workOrderManagerService, final int first, final int last) {
+		final ZoneId zone = workOrderManagerService.getZone();
+		final List<WorkOrderRequest> workOrderRequests = new ArrayList<>(last - first);
+		for (int i = first; i < last; i++) {
+			workOrderRequests.add(new WorkOrderRequest(ids[i], LocalDateTime.ofInstant(Instant.ofEpochSecond(times[i]),
+					zone)));
+		}
+		final List<WorkOrderResponse> responseList = workOrderManagerService.enqueueBatch(workOrderRequests);
+		for (final WorkOrderResponse workOrderResponse : responseList) {
+			if (workOrderResponse.getMessage() != null) {
+				error(workOrderResponse.getMessage());
+			} else {
+				ok(workOrderResponse.getId());
+				endLine();
+			}
+		}
+	}
+
+	private void dequeue(final WorkOrderManagerService workOrderManagerService, final int first, final int last) {
+		final ZoneId zone = workOrderManagerService.getZone();
+		final List<WorkOrderResponse> responseList = workOrderManagerService.dequeueBatch(last - first);
+		for (final WorkOrderResponse workOrderResponse : responseList) {
+			ok(workOrderResponse.getId());
+			number(workOrderResponse.getTime().atZone(zone).toEpochSecond());
+			endLine();
+		}
+		// The queue ran out part way through the run
+		for (int i = first + responseList.size(); i < last; i++) {
+			error("Queue is empty");
+		}
+	}
+
+	private void parse(final byte[] bytes, final int start, final int end, final int index) {
+		commands[index] = INVALID;
+		final int lineEnd = end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+		if (lineEnd - start < 3) {
+			return;
+		}
+		final int command = opcode(bytes[start], bytes[start + 1], bytes[start + 2]);
+		final int arguments = command == ENQ ? 2 : command == DEQ ? 0 : 1;
+		cursor = start + 3;
+		for (int i = 0; i < arguments; i++) {
+			if (cursor >= lineEnd || bytes[cursor] != ' ') {
+				return;
+			}
+			cursor++;
+			final long value = parseLong(bytes, lineEnd);
+			if (cursor < 0) {
+				return;
+			}
+			if (i == 0) {
+				ids[index] = value;
+			} else {
+				times[index] = value;
+			}
+		}
+		if (cursor == lineEnd) {
+			commands[index] = command;
+		}
+	}
+
+	/**
+	 * Parses a decimal long at the cursor and advances past it, or sets the cursor to
+	 * -1 if there is none or it overflows
+	 */
+	private long parseLong(final byte[] bytes, final int end) {
+		final boolean negative = cursor < end && bytes[cursor] == '-';
+		if (negative) {
+			cursor++;
+		}
+		final int digitsStart = cursor;
+		long value = 0;
+		while (cursor < end && bytes[cursor] >= '0' && bytes[cursor] <= '9') {
+			final int digit = bytes[cursor++] - '0';
+			if (value < (Long.MIN_VALUE + digit) / 10) {
+				cursor = -1;
+				return 0;
+			}
+			// Accumulated negatively so that Long.MIN_VALUE parses
+			value = value * 10 - digit;
+		}
+		if (cursor == digitsStart || !negative && value == Long.MIN_VALUE) {
+			cursor = -1;
+			return 0;
+		}
+		return negative ? value : -value;
+	}
+
+	private static int opcode(final byte first, final byte second, final byte third) {
+		if (first == 'E' && second == 'N' && third == 'Q') {
+			return ENQ;
+		}
+		if (first == 'D' && second == 'E' && third == 'Q') {
+			return DEQ;
+		}
+		if (first == 'D' && second == 'E' && third == 'L') {
+			return DEL;
+		}
+		if (first == 'P' && second == 'O' && third == 'S') {
+			return POS;
+		}
+		return INVALID;
+	}
+
+	private void ok(final long id) {
+		write(OK);
+		appendLong(id);
+	}
+
+	private void number(final long value) {
+		ensureCapacity(1);
+		output.put((byte) ' ');
+		appendLong(value);
+	}
+
+	private void error(final String message) {
+		write(ERR);
+		write(message.replace('\n', ' ').getBytes(StandardCharsets.UTF_8));
+		endLine();
+	}
+
+	private void endLine() {
+		ensureCapacity(1);
+		output.put((byte) '\n');
+	}
+
+	private void write(final byte[] bytes) {
+		ensureCapacity(bytes.length);
+		output.put(bytes);
+	}
+
+	private void appendLong(final long value) {
+		// Long.MIN_VALUE has 19 digits and a sign
+		ensureCapacity(20);
+		if (value == Long.MIN_VALUE) {
+			output.put(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+			return;
+		}
+		long remaining = value;
+		if (remaining < 0) {
+			output.put((byte) '-');
+			remaining = -remaining;
+		}
+		final int start = output.position();
+		do {
+			output.put((byte) ('0' + remaining % 10));
+			remaining /= 10;
+		} while (remaining != 0);
+		// Digits were written least significant first
+		final byte[] bytes = output.array();
+		for (int i = start, j = output.position() - 1; i < j; i++, j--) {
+			final byte digit = bytes[i];
+			bytes[i] = bytes[j];
+			bytes[j] = digit;
+		}
+	}
+
+	private void ensureCapacity(final int bytes) {
+		if (output.remaining() < bytes) {
+			final ByteBuffer grown = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + bytes));
+			output.flip();
+			grown.put(output);
+			output = grown;
+		}
+	}
+
+}
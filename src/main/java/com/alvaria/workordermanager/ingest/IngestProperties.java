@@ -0,0 +1,31 @@
+package com.alvaria.workordermanager.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the TCP ingest listener, bound from work-order-manager.ingest.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.ingest")
+@Getter
+@Setter
+public class IngestProperties {
+
+	/**
+	 * Whether the listener is started at all
+	 */
+	private boolean enabled;
+
+	/**
+	 * Address the listener binds to
+	 */
+	private String address = "127.0.0.1";
+
+	/**
+	 * Port the listener binds to; 0 picks a free one
+	 */
+	private int port = 7070;
+
+}
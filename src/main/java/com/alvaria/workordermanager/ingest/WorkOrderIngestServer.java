@@ -0,0 +1,178 @@
+package com.alvaria.workordermanager.ingest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.service.WorkOrderManagerService;
+
+/**
+ * Plain TCP listener for high-rate clients, without the framing and dispatch cost of HTTP.
+ *
+ * Clients pipeline line commands (see {@link IngestConnection}) and read the answers in order. A
+ * single selector thread accepts, reads, applies the commands to the queue and writes the answers;
+ * a connection whose answers cannot be written as fast as they are produced is not read from until
+ * they have been.
+ */
+@Component
+@ConditionalOnProperty(prefix = "work-order-manager.ingest", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(IngestProperties.class)
+public class WorkOrderIngestServer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderIngestServer.class);
+
+	private final WorkOrderManagerService workOrderManagerService;
+	private final IngestProperties properties;
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private Thread selectorThread;
+	private volatile boolean running;
+
+	@Autowired
+	public WorkOrderIngestServer(final WorkOrderManagerService workOrderManagerService,
+			final IngestProperties properties) {
+		this.workOrderManagerService = workOrderManagerService;
+		this.properties = properties;
+	}
+
+	/**
+	 * Binds the listener and starts serving
+	 *
+	 * @throws IOException If the address cannot be bound
+	 */
+	@PostConstruct
+	public void start() throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(properties.getAddress(), properties.getPort()));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		running = true;
+		selectorThread = new Thread(this::serve, "work-order-ingest");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+		LOGGER.info("Ingest listener started on {}", serverChannel.getLocalAddress());
+	}
+
+	/**
+	 * Closes the listener and all connections
+	 */
+	@PreDestroy
+	public void stop() {
+		running = false;
+		selector.wakeup();
+		try {
+			selectorThread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return The port the listener is bound to
+	 */
+	public int getLocalPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	private void serve() {
+		try {
+			while (running) {
+				selector.select();
+				final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+				while (selectedKeys.hasNext()) {
+					final SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+					try {
+						if (key.isAcceptable()) {
+							accept();
+						} else if (key.isReadable()) {
+							read(key);
+						} else if (key.isWritable()) {
+							write(key);
+						}
+					} catch (final IOException e) {
+						// The client went away
+						close(key);
+					} catch (final RuntimeException e) {
+						LOGGER.error("Ingest connection failed", e);
+						close(key);
+					}
+				}
+			}
+		} catch (final IOException | ClosedSelectorException e) {
+			LOGGER.error("Ingest listener failed", e);
+		} finally {
+			for (final SelectionKey key : selector.keys()) {
+				close(key);
+			}
+			try {
+				selector.close();
+			} catch (final IOException e) {
+				LOGGER.warn("Could not close the ingest selector", e);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		final SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		// Answers are small and pipelined clients wait for them
+		channel.socket().setTcpNoDelay(true);
+		channel.register(selector, SelectionKey.OP_READ, new IngestConnection());
+	}
+
+	private void read(final SelectionKey key) throws IOException {
+		final IngestConnection connection = (IngestConnection) key.attachment();
+		final int read = ((SocketChannel) key.channel()).read(connection.input());
+		if (read < 0) {
+			close(key);
+			return;
+		}
+		connection.process(workOrderManagerService);
+		if (connection.overflowed()) {
+			// A line longer than the whole input buffer can never complete
+			close(key);
+			return;
+		}
+		write(key);
+	}
+
+	private void write(final SelectionKey key) throws IOException {
+		final ByteBuffer output = ((IngestConnection) key.attachment()).output();
+		output.flip();
+		((SocketChannel) key.channel()).write(output);
+		final boolean pending = output.hasRemaining();
+		output.compact();
+		key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
+	private static void close(final SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (final IOException e) {
+			LOGGER.debug("Could not close an ingest connection", e);
+		}
+	}
+
+}
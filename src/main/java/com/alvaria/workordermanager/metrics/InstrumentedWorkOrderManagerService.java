@@ -0,0 +1,293 @@
+package com.alvaria.workordermanager.metrics;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.PendingDequeue;
+import com.alvaria.workordermanager.service.WorkOrderManagerService;
+import com.alvaria.workordermanager.service.WorkOrderPartitionService;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records a latency histogram per operation of the work-order queue and counts rejected
+ * requests, then delegates to {@link WorkOrderManagerServiceImpl}.
+ *
+ * Meters are resolved once, up front, and latencies are recorded from {@link System#nanoTime()}
+ * differences, so recording allocates nothing on the request path. Dequeues that wait for a
+ * work-order are not timed, as their latency is mostly the wait.
+ *
+ * This bean meters the default partition; {@link WorkOrderQueueMetrics} fronts every other
+ * partition with an instance of its own, tagged with its partition key.
+ */
+@Service
+@Primary
+public class InstrumentedWorkOrderManagerService implements WorkOrderManagerService {
+
+	static final String OPERATION_TIMER = "workorder.operation";
+	static final String REJECTION_COUNTER = "workorder.rejections";
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService;
+	private final Timer enqueueTimer;
+	private final Timer enqueueBatchTimer;
+	private final Timer dequeueTimer;
+	private final Timer dequeueBatchTimer;
+	private final Timer leaseTimer;
+	private final Timer acknowledgeTimer;
+	private final Timer getIdsTimer;
+	private final Timer deleteTimer;
+	private final Timer getPositionTimer;
+	private final Timer computeWaitingTimeTimer;
+	private final Timer streamWaitingTimeTimer;
+	private final Timer computeWaitingTimeStatisticsTimer;
+	private final Timer queryTimer;
+	private final Counter duplicateIdCounter;
+	private final Counter notFoundDeleteCounter;
+
+	@Autowired
+	public InstrumentedWorkOrderManagerService(final WorkOrderManagerServiceImpl workOrderManagerService,
+			final MeterRegistry meterRegistry) {
+		this(workOrderManagerService, meterRegistry, WorkOrderPartitionService.DEFAULT_PARTITION);
+	}
+
+	/**
+	 * Meters the queue of a partition; the meters of every partition share their names and differ
+	 * in the partition tag
+	 *
+	 * @param workOrderManagerService The queue of the partition
+	 * @param meterRegistry           The registry of the meters
+	 * @param partition               The partition key
+	 */
+	public InstrumentedWorkOrderManagerService(final WorkOrderManagerServiceImpl workOrderManagerService,
+			final MeterRegistry meterRegistry, final String partition) {
+		this.workOrderManagerService = workOrderManagerService;
+		this.enqueueTimer = timer(meterRegistry, "enqueue", partition);
+		this.enqueueBatchTimer = timer(meterRegistry, "enqueue-batch", partition);
+		this.dequeueTimer = timer(meterRegistry, "dequeue", partition);
+		this.dequeueBatchTimer = timer(meterRegistry, "dequeue-batch", partition);
+		this.leaseTimer = timer(meterRegistry, "lease", partition);
+		this.acknowledgeTimer = timer(meterRegistry, "acknowledge", partition);
+		this.getIdsTimer = timer(meterRegistry, "get-ids", partition);
+		this.deleteTimer = timer(meterRegistry, "delete", partition);
+		this.getPositionTimer = timer(meterRegistry, "get-position", partition);
+		this.computeWaitingTimeTimer = timer(meterRegistry, "compute-waiting-time", partition);
+		this.streamWaitingTimeTimer = timer(meterRegistry, "stream-waiting-time", partition);
+		this.computeWaitingTimeStatisticsTimer = timer(meterRegistry, "compute-waiting-time-statistics", partition);
+		this.queryTimer = timer(meterRegistry, "query", partition);
+		this.duplicateIdCounter = Counter.builder(REJECTION_COUNTER)
+				.description("Requests rejected by the work-order queue")
+				.tag("reason", "duplicate-id")
+				.tag("partition", partition)
+				.register(meterRegistry);
+		this.notFoundDeleteCounter = Counter.builder(REJECTION_COUNTER)
+				.description("Requests rejected by the work-order queue")
+				.tag("reason", "delete-not-found")
+				.tag("partition", partition)
+				.register(meterRegistry);
+	}
+
+	@Override
+	public WorkOrderResponse enqueue(final WorkOrderRequest workOrderRequest) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.enqueue(workOrderRequest);
+		} catch (final WorkOrderException e) {
+			if (isDuplicate(e.getMessage())) {
+				duplicateIdCounter.increment();
+			}
+			throw e;
+		} finally {
+			enqueueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public List<WorkOrderResponse> enqueueBatch(final List<WorkOrderRequest> workOrderRequests) {
+		final long start = System.nanoTime();
+		try {
+			final List<WorkOrderResponse> responseList = workOrderManagerService.enqueueBatch(workOrderRequests);
+			for (int i = 0; i < responseList.size(); i++) {
+				if (isDuplicate(responseList.get(i).getMessage())) {
+					duplicateIdCounter.increment();
+				}
+			}
+			return responseList;
+		} finally {
+			enqueueBatchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public WorkOrderResponse dequeue() {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.dequeue();
+		} finally {
+			dequeueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public WorkOrderResponse dequeue(final Duration timeout) {
+		return workOrderManagerService.dequeue(timeout);
+	}
+
+	@Override
+	public WorkOrderResponse lease(final Duration leaseDuration) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.lease(leaseDuration);
+		} finally {
+			leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public WorkOrderResponse acknowledge(final Long id) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.acknowledge(id);
+		} finally {
+			acknowledgeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public PendingDequeue dequeueWhenAvailable(final Consumer<WorkOrderResponse> callback) {
+		return workOrderManagerService.dequeueWhenAvailable(callback);
+	}
+
+	@Override
+	public boolean cancelDequeue(final PendingDequeue pendingDequeue) {
+		return workOrderManagerService.cancelDequeue(pendingDequeue);
+	}
+
+	@Override
+	public List<WorkOrderResponse> dequeueBatch(final int count) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.dequeueBatch(count);
+		} finally {
+			dequeueBatchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public List<WorkOrderResponse> getIds() {
+		return getIds(0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<WorkOrderResponse> getIds(final int offset, final int limit) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.getIds(offset, limit);
+		} finally {
+			getIdsTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public WorkOrderResponse delete(final Long id) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.delete(id);
+		} catch (final WorkOrderNotFoundException e) {
+			notFoundDeleteCounter.increment();
+			throw e;
+		} finally {
+			deleteTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public WorkOrderResponse getPosition(final Long id) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.getPosition(id);
+		} finally {
+			getPositionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public List<WorkOrderResponse> computeWaitingTime(final WorkOrderRequest workOrderRequest) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.computeWaitingTime(workOrderRequest);
+		} finally {
+			computeWaitingTimeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void computeWaitingTime(final WorkOrderRequest workOrderRequest, final WaitingTimeVisitor visitor) {
+		final long start = System.nanoTime();
+		try {
+			workOrderManagerService.computeWaitingTime(workOrderRequest, visitor);
+		} finally {
+			streamWaitingTimeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public List<WaitingTimeStatistics> computeWaitingTimeStatistics(final WorkOrderRequest workOrderRequest) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.computeWaitingTimeStatistics(workOrderRequest);
+		} finally {
+			computeWaitingTimeStatisticsTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public List<WorkOrderResponse> query(final WorkOrderQuery query) {
+		final long start = System.nanoTime();
+		try {
+			return workOrderManagerService.query(query);
+		} finally {
+			queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public List<WorkOrderResponse> getExpired() {
+		return workOrderManagerService.getExpired();
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return workOrderManagerService.getZone();
+	}
+
+	private static boolean isDuplicate(final String message) {
+		return WorkOrderManagerServiceImpl.ID_EXISTS_MESSAGE.equals(message)
+				|| WorkOrderManagerServiceImpl.ID_PROCESSED_MESSAGE.equals(message);
+	}
+
+	private static Timer timer(final MeterRegistry meterRegistry, final String operation, final String partition) {
+		return Timer.builder(OPERATION_TIMER)
+				.description("Latency of work-order queue operations")
+				.tag("operation", operation)
+				.tag("partition", partition)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
+}
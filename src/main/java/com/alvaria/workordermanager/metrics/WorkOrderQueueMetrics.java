@@ -0,0 +1,57 @@
+package com.alvaria.workordermanager.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges of the work-order queue backlog of every partition, tagged with the partition key. They
+ * read the published snapshot of the queue, so a scrape never takes the queue lock. Partitions
+ * created later are metered as they are created, gauges and operation meters alike.
+ */
+@Component
+public class WorkOrderQueueMetrics implements MeterBinder {
+
+	static final String DEPTH_GAUGE = "workorder.queue.depth";
+	static final String OLDEST_AGE_GAUGE = "workorder.queue.oldest.age";
+
+	private final WorkOrderPartitionServiceImpl workOrderPartitionService;
+
+	@Autowired
+	public WorkOrderQueueMetrics(final WorkOrderPartitionServiceImpl workOrderPartitionService) {
+		this.workOrderPartitionService = workOrderPartitionService;
+	}
+
+	@Override
+	public void bindTo(final MeterRegistry meterRegistry) {
+		workOrderPartitionService.setPartitionDecorator((partition, workOrderManagerService) -> {
+			bindGauges(meterRegistry, partition, workOrderManagerService);
+			return new InstrumentedWorkOrderManagerService(workOrderManagerService, meterRegistry, partition);
+		});
+	}
+
+	private static void bindGauges(final MeterRegistry meterRegistry, final String partition,
+			final WorkOrderManagerServiceImpl workOrderManagerService) {
+		// Per class only, so that summing the series gives the total
+		for (final ClassTypeEnum type : ClassTypeEnum.values()) {
+			Gauge.builder(DEPTH_GAUGE, workOrderManagerService, service -> service.queueDepth(type))
+					.description("Number of queued work-orders")
+					.tag("class", type.name())
+					.tag("partition", partition)
+					.register(meterRegistry);
+		}
+		Gauge.builder(OLDEST_AGE_GAUGE, workOrderManagerService, WorkOrderManagerServiceImpl::oldestAge)
+				.description("Waiting time of the oldest queued work-order")
+				.baseUnit("seconds")
+				.tag("partition", partition)
+				.register(meterRegistry);
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.alvaria.workordermanager.model;
+
+/**
+ * Growth of the rank of a work-order with its age n in seconds. Every function is non-decreasing
+ * in n and 0 for n <= 0, except LINEAR, which is n.
+ */
+public enum AgeFunction {
+
+	/**
+	 * 0, so the rank is the floor of the class
+	 */
+	CONSTANT,
+
+	/**
+	 * n
+	 */
+	LINEAR,
+
+	/**
+	 * ln(1 + n)
+	 */
+	LOG,
+
+	/**
+	 * n ln n
+	 */
+	N_LOG_N,
+
+	/**
+	 * n squared
+	 */
+	QUADRATIC;
+
+}
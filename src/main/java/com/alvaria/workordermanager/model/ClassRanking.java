@@ -0,0 +1,30 @@
+package com.alvaria.workordermanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Ranking of the Work-Orders of one class type: rank = min(cap, max(floor, weight * ageFunction(age))).
+ * Work-orders of a higher tier are always ahead of those of a lower tier; within a tier they are
+ * ordered by rank. Fields left out take the default of the class.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassRanking {
+
+	private Integer tier;
+	private Double floor;
+	private Double weight;
+	private AgeFunction ageFunction;
+	private Double cap;
+
+}
@@ -0,0 +1,26 @@
+package com.alvaria.workordermanager.model;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Ranking of every class type of Work-Orders. Classes left out take their default ranking.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankingPolicy {
+
+	private Map<ClassTypeEnum, ClassRanking> classes;
+
+}
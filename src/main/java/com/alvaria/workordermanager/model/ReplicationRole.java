@@ -0,0 +1,18 @@
+package com.alvaria.workordermanager.model;
+
+/**
+ * Role of an instance in replication
+ */
+public enum ReplicationRole {
+
+	/**
+	 * Takes all mutations and streams them to the replicas
+	 */
+	PRIMARY,
+
+	/**
+	 * Follows a primary and serves reads only
+	 */
+	REPLICA;
+
+}
@@ -0,0 +1,24 @@
+package com.alvaria.workordermanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Replication state of an instance
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@Getter
+@Setter
+public class ReplicationStatus {
+
+	private ReplicationRole role;
+	private Integer replicas;
+	private String primary;
+	private Boolean synced;
+	private Long appliedRecords;
+
+}
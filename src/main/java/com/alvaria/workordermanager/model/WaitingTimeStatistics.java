@@ -0,0 +1,26 @@
+package com.alvaria.workordermanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Waiting time aggregates of the Work-Orders of one class type, in seconds
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@Getter
+@Setter
+public class WaitingTimeStatistics {
+
+	private ClassTypeEnum classType;
+	private Integer count;
+	private Double mean;
+	private Long max;
+	private Long p50;
+	private Long p95;
+	private Long p99;
+
+}
@@ -0,0 +1,25 @@
+package com.alvaria.workordermanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Event of the Work-Order change feed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@Getter
+@Setter
+public class WorkOrderEvent {
+
+	private Long sequence;
+	private WorkOrderEventType type;
+	private Long id;
+	private ClassTypeEnum classType;
+	private Integer queueDepth;
+	private Long missed;
+
+}
@@ -0,0 +1,28 @@
+package com.alvaria.workordermanager.model;
+
+/**
+ * Enum to hold the kinds of events of the Work-Order change feed
+ */
+public enum WorkOrderEventType {
+
+	ENQUEUED,
+	DEQUEUED,
+	DELETED,
+	/**
+	 * The time-to-live of the work-order ran out
+	 */
+	EXPIRED,
+	/**
+	 * The work-order left the queue under a lease
+	 */
+	LEASED,
+	/**
+	 * The lease of the work-order ran out and it is back in the queue
+	 */
+	REDELIVERED,
+	/**
+	 * The subscriber fell behind and missed events; carries the current queue depth
+	 */
+	OVERFLOW;
+
+}
@@ -0,0 +1,40 @@
+package com.alvaria.workordermanager.model;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Filter of queued Work-Orders. Every field is optional and bounds are inclusive; enqueue times
+ * are compared to the second.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkOrderQuery {
+
+	private ClassTypeEnum classType;
+	private LocalDateTime from;
+	private LocalDateTime to;
+	/**
+	 * Least waiting time in seconds, as of the time of the query
+	 */
+	private Long minWaitingTime;
+	/**
+	 * Greatest waiting time in seconds, as of the time of the query
+	 */
+	private Long maxWaitingTime;
+	private Long minId;
+	private Long maxId;
+	private Integer limit;
+
+}
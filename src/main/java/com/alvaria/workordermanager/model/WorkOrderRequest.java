@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 /**
@@ -11,10 +12,25 @@ import lombok.Setter;
  */
 @Getter
 @Setter
+@NoArgsConstructor
 @AllArgsConstructor
 public class WorkOrderRequest {
 
 	private Long id;
 	private LocalDateTime time;
+	private String partition;
+	/**
+	 * Seconds the work-order may wait in the queue before it expires, overriding the time-to-live
+	 * of its class
+	 */
+	private Long ttl;
+
+	public WorkOrderRequest(final Long id, final LocalDateTime time) {
+		this(id, time, null, null);
+	}
+
+	public WorkOrderRequest(final Long id, final LocalDateTime time, final String partition) {
+		this(id, time, partition, null);
+	}
 
 }
@@ -22,5 +22,7 @@ public class WorkOrderResponse {
 	private String message;
 	private Integer position;
 	private Long waitingTime;
+	private String partition;
+	private LocalDateTime leaseDeadline;
 
 }
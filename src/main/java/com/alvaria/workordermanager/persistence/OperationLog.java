@@ -0,0 +1,248 @@
+package com.alvaria.workordermanager.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Append-only, memory-mapped log of queue mutations.
+ *
+ * Records have a fixed size: an operation byte, the class type, id, time, nano-of-second and
+ * time-to-live, followed by a CRC32C of the preceding bytes. The file is mapped in regions and an append is a
+ * copy into the mapped region, so it never blocks on I/O; {@link #force()} makes everything
+ * appended so far durable. A torn or never written record fails its checksum, which is where
+ * {@link #replay(Path, Handler)} stops.
+ *
+ * Appends must come from a single thread at a time; force may run concurrently on another one.
+ *
+ * The record format is shared with replication, which streams the same records over a socket
+ * (see {@link #encodeEnqueued}, {@link #encodeRemoved} and {@link #decode}). These take the
+ * {@link CRC32C} to compute checksums with, so that every writer and reader reuses one of its own.
+ */
+public class OperationLog implements Closeable {
+
+	public static final int RECORD_SIZE = 30;
+
+	private static final byte ENQUEUED = 1;
+	private static final byte REMOVED = 2;
+	private static final int CHECKSUM_OFFSET = RECORD_SIZE - Integer.BYTES;
+	private static final int REPLAY_WINDOW = Integer.MAX_VALUE - Integer.MAX_VALUE % RECORD_SIZE;
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	private final FileChannel channel;
+	private final int regionBytes;
+	private final List<MappedByteBuffer> unforcedRegions = new ArrayList<>();
+	private final byte[] record = new byte[RECORD_SIZE];
+	private final CRC32C checksum = new CRC32C();
+	private MappedByteBuffer region;
+	private long regionStart;
+
+	/**
+	 * Creates a new, empty log
+	 *
+	 * @param path        The file of the log, which must not exist
+	 * @param regionBytes Size of the regions the file is mapped in, rounded down to whole records
+	 * @throws IOException If the file cannot be created or mapped
+	 */
+	public OperationLog(final Path path, final int regionBytes) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.regionBytes = Math.max(RECORD_SIZE, regionBytes - regionBytes % RECORD_SIZE);
+		this.region = map(0);
+	}
+
+	/**
+	 * Appends the insertion of a work-order
+	 */
+	public void appendEnqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+			final int timeToLive) throws IOException {
+		encodeEnqueued(record, checksum, id, time, nano, classType, timeToLive);
+		append();
+	}
+
+	/**
+	 * Appends the removal of a work-order
+	 */
+	public void appendRemoved(final long id) throws IOException {
+		encodeRemoved(record, checksum, id);
+		append();
+	}
+
+	/**
+	 * Writes every record appended so far to the storage device
+	 */
+	public void force() {
+		final MappedByteBuffer[] regions;
+		synchronized (unforcedRegions) {
+			regions = unforcedRegions.toArray(new MappedByteBuffer[0]);
+			unforcedRegions.clear();
+		}
+		for (final MappedByteBuffer unforced : regions) {
+			unforced.force();
+		}
+		currentRegion().force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	/**
+	 * Reads back the intact records of a log, in append order
+	 *
+	 * @param path    The file of the log
+	 * @param handler Receives each record
+	 * @return The number of records read
+	 * @throws IOException If the file cannot be read
+	 */
+	public static long replay(final Path path, final Handler handler) throws IOException {
+		final byte[] record = new byte[RECORD_SIZE];
+		final CRC32C checksum = new CRC32C();
+		long count = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			for (long start = 0; start < size; start += REPLAY_WINDOW) {
+				final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(size - start, REPLAY_WINDOW));
+				while (buffer.remaining() >= RECORD_SIZE) {
+					buffer.get(record);
+					if (!decode(record, checksum, handler)) {
+						return count;
+					}
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Encodes the insertion of a work-order as a record
+	 *
+	 * @param record   Array of {@link #RECORD_SIZE} bytes receiving the record
+	 * @param checksum Computes the checksum of the record; reset before use
+	 */
+	public static void encodeEnqueued(final byte[] record, final CRC32C checksum, final long id, final long time, final int nano,
+			final ClassTypeEnum classType, final int timeToLive) {
+		record[0] = ENQUEUED;
+		record[1] = (byte) classType.ordinal();
+		putLong(record, 2, id);
+		putLong(record, 10, time);
+		putInt(record, 18, nano);
+		putInt(record, 22, timeToLive);
+		putInt(record, CHECKSUM_OFFSET, checksum(record, checksum));
+	}
+
+	/**
+	 * Encodes the removal of a work-order as a record
+	 *
+	 * @param record   Array of {@link #RECORD_SIZE} bytes receiving the record
+	 * @param checksum Computes the checksum of the record; reset before use
+	 */
+	public static void encodeRemoved(final byte[] record, final CRC32C checksum, final long id) {
+		record[0] = REMOVED;
+		record[1] = 0;
+		putLong(record, 2, id);
+		putLong(record, 10, 0L);
+		putInt(record, 18, 0);
+		putInt(record, 22, 0);
+		putInt(record, CHECKSUM_OFFSET, checksum(record, checksum));
+	}
+
+	/**
+	 * Decodes a record and hands it to a handler
+	 *
+	 * @param record   Array of {@link #RECORD_SIZE} bytes holding the record
+	 * @param checksum Computes the checksum of the record; reset before use
+	 * @param handler  Receives the record if it is intact
+	 * @return false if the record is torn, never written or not a mutation
+	 */
+	public static boolean decode(final byte[] record, final CRC32C checksum, final Handler handler) {
+		if (record[0] != ENQUEUED && record[0] != REMOVED
+				|| checksum(record, checksum) != getInt(record, CHECKSUM_OFFSET)) {
+			return false;
+		}
+		final long id = getLong(record, 2);
+		if (record[0] == ENQUEUED) {
+			if (record[1] < 0 || record[1] >= CLASS_TYPES.length) {
+				return false;
+			}
+			handler.enqueued(id, getLong(record, 10), getInt(record, 18), CLASS_TYPES[record[1]], getInt(record, 22));
+		} else {
+			handler.removed(id);
+		}
+		return true;
+	}
+
+	private void append() throws IOException {
+		if (region.remaining() < RECORD_SIZE) {
+			final MappedByteBuffer next = map(regionStart + region.position());
+			synchronized (unforcedRegions) {
+				unforcedRegions.add(region);
+				region = next;
+			}
+		}
+		region.put(record);
+	}
+
+	private MappedByteBuffer currentRegion() {
+		synchronized (unforcedRegions) {
+			return region;
+		}
+	}
+
+	private MappedByteBuffer map(final long start) throws IOException {
+		regionStart = start;
+		return channel.map(FileChannel.MapMode.READ_WRITE, start, regionBytes);
+	}
+
+	private static int checksum(final byte[] record, final CRC32C checksum) {
+		checksum.reset();
+		checksum.update(record, 0, CHECKSUM_OFFSET);
+		return (int) checksum.getValue();
+	}
+
+	private static void putLong(final byte[] bytes, final int offset, final long value) {
+		putInt(bytes, offset, (int) (value >>> 32));
+		putInt(bytes, offset + 4, (int) value);
+	}
+
+	private static void putInt(final byte[] bytes, final int offset, final int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	private static long getLong(final byte[] bytes, final int offset) {
+		return ((long) getInt(bytes, offset) << 32) | (getInt(bytes, offset + 4) & 0xFFFFFFFFL);
+	}
+
+	private static int getInt(final byte[] bytes, final int offset) {
+		return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8
+				| (bytes[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * Callback for {@link OperationLog#replay(Path, Handler)} and {@link OperationLog#decode(byte[], CRC32C, Handler)}
+	 */
+	public interface Handler {
+
+		void enqueued(long id, long time, int nano, ClassTypeEnum classType, int timeToLive);
+
+		void removed(long id);
+
+	}
+
+}
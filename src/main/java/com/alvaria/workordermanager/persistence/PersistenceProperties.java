@@ -0,0 +1,52 @@
+package com.alvaria.workordermanager.persistence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the write-ahead log and snapshots, bound from work-order-manager.persistence.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.persistence")
+@Getter
+@Setter
+public class PersistenceProperties {
+
+	/**
+	 * Whether the queue is persisted at all
+	 */
+	private boolean enabled;
+
+	/**
+	 * Directory holding the log and snapshot files
+	 */
+	private String directory = "data";
+
+	/**
+	 * Maximum time between two fsyncs of the log
+	 */
+	private long fsyncIntervalMillis = 10;
+
+	/**
+	 * Number of unsynced log records that triggers an fsync before the interval elapses
+	 */
+	private int fsyncBatchSize = 4096;
+
+	/**
+	 * Whether enqueue, dequeue and delete wait for their log records to be fsynced before
+	 * answering. Waiting callers share fsyncs (group commit).
+	 */
+	private boolean syncCommit;
+
+	/**
+	 * Time between two snapshots; each snapshot starts a new log
+	 */
+	private long snapshotIntervalSeconds = 300;
+
+	/**
+	 * Size of the regions the log file is mapped in
+	 */
+	private int logRegionBytes = 64 << 20;
+
+}
@@ -0,0 +1,143 @@
+package com.alvaria.workordermanager.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.queue.WorkOrderRecordStore;
+
+/**
+ * Compact binary snapshot of all queued work-orders.
+ *
+ * The file holds a header (magic, version, record count), one fixed-size record per work-order
+ * (id, time, nano-of-second, class type, time-to-live) and a CRC32C of the records. It is written to a
+ * temporary file, synced and then atomically renamed, so a snapshot file is always complete.
+ */
+public final class SnapshotFile {
+
+	private static final int MAGIC = 0x574F5153;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 3 * Integer.BYTES;
+	private static final int RECORD_SIZE = 2 * Long.BYTES + 2 * Integer.BYTES + 1;
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	private SnapshotFile() {
+	}
+
+	/**
+	 * Writes a snapshot
+	 *
+	 * @param path    The file of the snapshot
+	 * @param records The work-orders to write
+	 * @throws IOException If the snapshot cannot be written
+	 */
+	public static void write(final Path path, final Records records) throws IOException {
+		final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		final CRC32C checksum = new CRC32C();
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(records.size);
+			flush(channel, buffer);
+			for (int i = 0; i < records.size; i++) {
+				if (buffer.remaining() < RECORD_SIZE) {
+					checksum.update(buffer.duplicate().flip());
+					flush(channel, buffer);
+				}
+				buffer.putLong(records.ids[i]).putLong(records.times[i]).putInt(records.nanos[i])
+						.put(records.classTypes[i]).putInt(records.timesToLive[i]);
+			}
+			checksum.update(buffer.duplicate().flip());
+			flush(channel, buffer);
+			buffer.putInt((int) checksum.getValue());
+			flush(channel, buffer);
+			channel.force(true);
+		}
+		Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads a snapshot into a record store
+	 *
+	 * @param path  The file of the snapshot
+	 * @param store Receives the work-orders
+	 * @throws IOException If the snapshot cannot be read or is corrupt
+	 */
+	public static void read(final Path path, final WorkOrderRecordStore store) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a work-order snapshot: " + path);
+			}
+			final int count = buffer.getInt();
+			final long length = (long) count * RECORD_SIZE;
+			if (count < 0 || buffer.remaining() != length + Integer.BYTES) {
+				throw new IOException("Truncated work-order snapshot: " + path);
+			}
+			final CRC32C checksum = new CRC32C();
+			checksum.update(buffer.slice().limit((int) length));
+			buffer.position(HEADER_SIZE + (int) length);
+			if (buffer.getInt() != (int) checksum.getValue()) {
+				throw new IOException("Corrupt work-order snapshot: " + path);
+			}
+			buffer.position(HEADER_SIZE);
+			for (int i = 0; i < count; i++) {
+				store.allocate(buffer.getLong(), buffer.getLong(), buffer.getInt(), CLASS_TYPES[buffer.get()],
+						buffer.getInt());
+			}
+		}
+	}
+
+	private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Growable copy of the work-orders to snapshot, filled while the queue is locked
+	 */
+	public static final class Records implements WorkOrderRecordStore.RecordVisitor {
+
+		private long[] ids = new long[1024];
+		private long[] times = new long[1024];
+		private int[] nanos = new int[1024];
+		private byte[] classTypes = new byte[1024];
+		private int[] timesToLive = new int[1024];
+		private int size;
+
+		@Override
+		public void visit(final long id, final long time, final int nano, final ClassTypeEnum classType,
+				final int timeToLive) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size << 1);
+				times = Arrays.copyOf(times, size << 1);
+				nanos = Arrays.copyOf(nanos, size << 1);
+				classTypes = Arrays.copyOf(classTypes, size << 1);
+				timesToLive = Arrays.copyOf(timesToLive, size << 1);
+			}
+			ids[size] = id;
+			times[size] = time;
+			nanos[size] = nano;
+			classTypes[size] = (byte) classType.ordinal();
+			timesToLive[size] = timeToLive;
+			size++;
+		}
+
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
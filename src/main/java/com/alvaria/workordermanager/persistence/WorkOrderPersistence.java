@@ -0,0 +1,357 @@
+package com.alvaria.workordermanager.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.queue.WorkOrderRecordStore;
+import com.alvaria.workordermanager.service.WorkOrderMutationListener;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+/**
+ * Makes the work-order queue survive restarts.
+ *
+ * Every mutation is appended to a memory-mapped {@link OperationLog} while the queue holds its
+ * write lock, before the queue applies it, which costs a copy of a few bytes; a mutation that
+ * cannot be appended is rejected rather than applied. A flusher thread syncs the log every
+ * fsync-interval-millis, or sooner once fsync-batch-size records are pending; with sync-commit
+ * callers wait for the sync that covers their records, so concurrent callers share one fsync, and
+ * fail if that sync fails.
+ *
+ * Every snapshot-interval-seconds the queue is copied, under its write lock, into a
+ * {@link SnapshotFile} and a new log is started at the same instant; older files are deleted once
+ * the snapshot is on disk. Files are numbered by generation: snapshot-N holds the queue at the
+ * start of log-N. On startup the newest snapshot is loaded and the logs from its generation on are
+ * replayed, then the recovered queue is bulk loaded and immediately snapshotted again. Replay is
+ * idempotent, so a log may safely hold mutations its snapshot already contains.
+ */
+@Component
+@ConditionalOnProperty(prefix = "work-order-manager.persistence", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class WorkOrderPersistence implements WorkOrderMutationListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderPersistence.class);
+	private static final String LOG_PREFIX = "log-";
+	private static final String LOG_SUFFIX = ".log";
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".bin";
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService;
+	private final WorkOrderPartitionServiceImpl workOrderPartitionService;
+	private final PersistenceProperties properties;
+	private final Path directory;
+	private final Object flushLock = new Object();
+	private final Object durableLock = new Object();
+	private final List<OperationLog> retiredLogs = new ArrayList<>();
+	private OperationLog log;
+	private OperationLog pendingLog;
+	private long generation;
+	private volatile long appendedRecords;
+	private volatile long durableRecords;
+	private volatile long failedRecords;
+	private IOException syncFailure;
+	private volatile boolean running;
+	private Thread flusher;
+	private ScheduledExecutorService snapshotScheduler;
+
+	@Autowired
+	public WorkOrderPersistence(final WorkOrderManagerServiceImpl workOrderManagerService,
+			final WorkOrderPartitionServiceImpl workOrderPartitionService, final PersistenceProperties properties) {
+		this.workOrderManagerService = workOrderManagerService;
+		this.workOrderPartitionService = workOrderPartitionService;
+		this.properties = properties;
+		this.directory = Paths.get(properties.getDirectory());
+	}
+
+	/**
+	 * Recovers the persisted queue and starts logging. Must run before the queue serves requests.
+	 *
+	 * @throws IOException If the persisted files cannot be read or new ones cannot be written
+	 */
+	@PostConstruct
+	public void start() throws IOException {
+		workOrderPartitionService.restrictToDefaultPartition("Persistence");
+		Files.createDirectories(directory);
+		final long started = System.nanoTime();
+		final WorkOrderRecordStore recovered = recover();
+		workOrderManagerService.restore(recovered);
+		LOGGER.info("Recovered {} work-orders in {} ms", recovered.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+		generation++;
+		log = new OperationLog(logPath(generation), properties.getLogRegionBytes());
+		running = true;
+		flusher = new Thread(this::flushLoop, "work-order-log-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+		workOrderManagerService.addMutationListener(this);
+		final SnapshotFile.Records records = new SnapshotFile.Records();
+		workOrderManagerService.checkpoint(records);
+		writeSnapshot(generation, records);
+
+		snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "work-order-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshotScheduler.scheduleWithFixedDelay(this::checkpointQuietly, properties.getSnapshotIntervalSeconds(),
+				properties.getSnapshotIntervalSeconds(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Syncs and closes the log. Mutations applied afterwards are not persisted.
+	 *
+	 * @throws IOException If the log cannot be closed
+	 */
+	@PreDestroy
+	public void stop() throws IOException {
+		if (!running) {
+			return;
+		}
+		running = false;
+		snapshotScheduler.shutdownNow();
+		LockSupport.unpark(flusher);
+		try {
+			flusher.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (flushLock) {
+			log.close();
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the queue and starts a new log
+	 *
+	 * @throws IOException If the snapshot or the new log cannot be written
+	 */
+	public synchronized void checkpoint() throws IOException {
+		final long next = generation + 1;
+		pendingLog = new OperationLog(logPath(next), properties.getLogRegionBytes());
+		final SnapshotFile.Records records = new SnapshotFile.Records();
+		workOrderManagerService.checkpoint(records);
+		writeSnapshot(next, records);
+	}
+
+	@Override
+	public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+			final int timeToLive) {
+		try {
+			log.appendEnqueued(id, time, nano, classType, timeToLive);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		appended();
+	}
+
+	@Override
+	public void removed(final long id) {
+		try {
+			log.appendRemoved(id);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		appended();
+	}
+
+	@Override
+	public void committed() {
+		if (!properties.isSyncCommit()) {
+			return;
+		}
+		final long target = appendedRecords;
+		if (durableRecords >= target) {
+			return;
+		}
+		LockSupport.unpark(flusher);
+		synchronized (durableLock) {
+			while (durableRecords < target && failedRecords < target && running) {
+				try {
+					durableLock.wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			if (durableRecords < target && failedRecords >= target) {
+				throw new UncheckedIOException("Work-order log could not be synced", syncFailure);
+			}
+		}
+	}
+
+	@Override
+	public void checkpointed() {
+		if (pendingLog == null) {
+			return;
+		}
+		synchronized (flushLock) {
+			retiredLogs.add(log);
+			log = pendingLog;
+			pendingLog = null;
+		}
+	}
+
+	/**
+	 * Counts an appended record and wakes the flusher once enough records are pending. Runs under
+	 * the queue write lock, so there is a single writer.
+	 */
+	private void appended() {
+		final long appended = appendedRecords + 1;
+		appendedRecords = appended;
+		if (appended - durableRecords >= properties.getFsyncBatchSize()) {
+			LockSupport.unpark(flusher);
+		}
+	}
+
+	private void flushLoop() {
+		final long interval = TimeUnit.MILLISECONDS.toNanos(properties.getFsyncIntervalMillis());
+		while (running) {
+			LockSupport.parkNanos(this, interval);
+			flush();
+		}
+		flush();
+	}
+
+	/**
+	 * Syncs every record appended so far, in the current log and in logs retired by a checkpoint
+	 */
+	private void flush() {
+		final long target;
+		final OperationLog current;
+		final OperationLog[] retired;
+		synchronized (flushLock) {
+			target = appendedRecords;
+			current = log;
+			retired = retiredLogs.toArray(new OperationLog[0]);
+			retiredLogs.clear();
+		}
+		try {
+			for (final OperationLog retiredLog : retired) {
+				retiredLog.close();
+			}
+			current.force();
+		} catch (final IOException | UncheckedIOException e) {
+			LOGGER.error("Failed to sync the work-order log", e);
+			// Fail the sync-commit callers waiting for these records rather than leave them waiting
+			synchronized (durableLock) {
+				syncFailure = e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause()
+						: (IOException) e;
+				failedRecords = target;
+				durableLock.notifyAll();
+			}
+			return;
+		}
+		if (durableRecords < target) {
+			synchronized (durableLock) {
+				durableRecords = target;
+				durableLock.notifyAll();
+			}
+		}
+	}
+
+	private void checkpointQuietly() {
+		try {
+			checkpoint();
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.error("Failed to snapshot the work-order queue", e);
+		}
+	}
+
+	private synchronized void writeSnapshot(final long snapshotGeneration, final SnapshotFile.Records records)
+			throws IOException {
+		SnapshotFile.write(snapshotPath(snapshotGeneration), records);
+		generation = snapshotGeneration;
+		for (final long older : generations(LOG_PREFIX, LOG_SUFFIX).headSet(snapshotGeneration)) {
+			Files.deleteIfExists(logPath(older));
+		}
+		for (final long older : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headSet(snapshotGeneration)) {
+			Files.deleteIfExists(snapshotPath(older));
+		}
+	}
+
+	/**
+	 * Loads the newest snapshot and replays the logs written since
+	 *
+	 * @return Store holding the recovered work-orders
+	 */
+	private WorkOrderRecordStore recover() throws IOException {
+		final TreeSet<Long> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		final TreeSet<Long> logs = generations(LOG_PREFIX, LOG_SUFFIX);
+		final WorkOrderRecordStore store = new WorkOrderRecordStore();
+		long first = 0;
+		if (!snapshots.isEmpty()) {
+			first = snapshots.last();
+			SnapshotFile.read(snapshotPath(first), store);
+		}
+		for (final long logGeneration : logs.tailSet(first)) {
+			OperationLog.replay(logPath(logGeneration), new OperationLog.Handler() {
+
+				@Override
+				public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+						final int timeToLive) {
+					if (!store.contains(id)) {
+						store.allocate(id, time, nano, classType, timeToLive);
+					}
+				}
+
+				@Override
+				public void removed(final long id) {
+					final int slot = store.slotOf(id);
+					if (slot != WorkOrderRecordStore.NO_SLOT) {
+						store.release(slot);
+					}
+				}
+
+			});
+		}
+		generation = Math.max(snapshots.isEmpty() ? 0 : snapshots.last(), logs.isEmpty() ? 0 : logs.last());
+		return store;
+	}
+
+	private TreeSet<Long> generations(final String prefix, final String suffix) throws IOException {
+		final TreeSet<Long> generations = new TreeSet<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (final Path file : files) {
+				final String name = file.getFileName().toString();
+				try {
+					generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+				} catch (final NumberFormatException e) {
+					LOGGER.warn("Ignoring unexpected file {}", file);
+				}
+			}
+		}
+		return generations;
+	}
+
+	private Path logPath(final long logGeneration) {
+		return directory.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+	}
+
+	private Path snapshotPath(final long snapshotGeneration) {
+		return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX);
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+
+/**
+ * Immutable view of the latest expired work-orders, at most a fixed capacity of them, in the order
+ * they expired.
+ *
+ * The view is a chain of batches, newest first, each one holding the work-orders of one expiry
+ * sweep. Appending a batch links it in front of the chain and copies nothing but the batch itself,
+ * so a writer can publish a new view after every sweep and readers can walk any published view
+ * without locking. Batches that fell out of the capacity are unlinked once the chain retains
+ * twice the capacity, which relinks the batches still visible but copies none of their entries.
+ */
+public final class ExpiredWorkOrders {
+
+	private final int capacity;
+	private final Batch newest;
+
+	private ExpiredWorkOrders(final int capacity, final Batch newest) {
+		this.capacity = capacity;
+		this.newest = newest;
+	}
+
+	/**
+	 * Creates a view with no expired work-orders
+	 *
+	 * @param capacity The number of latest expired work-orders the view keeps
+	 * @return The empty view
+	 */
+	public static ExpiredWorkOrders empty(final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		return new ExpiredWorkOrders(capacity, null);
+	}
+
+	/**
+	 * Creates a copy of this view with a batch of expired work-orders appended. The arrays are taken
+	 * over by the view and must not be changed afterwards.
+	 *
+	 * @param ids   Ids of the expired work-orders, in the order they expired
+	 * @param times Epoch seconds of the enqueue times
+	 * @param nanos Nanoseconds of the enqueue times
+	 * @param count The number of expired work-orders in the arrays
+	 * @return The updated view
+	 */
+	public ExpiredWorkOrders with(final long[] ids, final long[] times, final int[] nanos, final int count) {
+		if (count == 0) {
+			return this;
+		}
+		final Batch batch = new Batch(ids, times, nanos, count, newest);
+		if (batch.retained < 2L * capacity) {
+			return new ExpiredWorkOrders(capacity, batch);
+		}
+		return new ExpiredWorkOrders(capacity, relink(batch, capacity));
+	}
+
+	/**
+	 * @return The number of expired work-orders in the view
+	 */
+	public int size() {
+		return newest == null ? 0 : (int) Math.min(newest.retained, capacity);
+	}
+
+	/**
+	 * Visits the expired work-orders of the view, oldest expiration first
+	 *
+	 * @param visitor Callback for each expired work-order
+	 */
+	public void forEach(final Visitor visitor) {
+		// Batches are linked newest first, so the visible ones are collected before they are visited
+		final Batch[] batches = visible(newest, capacity);
+		// The oldest visible batch may hold entries beyond the capacity, which are skipped
+		int from = -size();
+		for (final Batch batch : batches) {
+			from += batch.count;
+		}
+		for (int b = batches.length - 1; b >= 0; b--) {
+			final Batch batch = batches[b];
+			for (int i = from; i < batch.count; i++) {
+				visitor.visit(batch.ids[i], batch.times[i], batch.nanos[i]);
+			}
+			from = 0;
+		}
+	}
+
+	private static Batch relink(final Batch batch, final int capacity) {
+		final Batch[] batches = visible(batch, capacity);
+		Batch previous = null;
+		for (int b = batches.length - 1; b >= 0; b--) {
+			previous = new Batch(batches[b].ids, batches[b].times, batches[b].nanos, batches[b].count, previous);
+		}
+		return previous;
+	}
+
+	/**
+	 * Collects the batches holding the latest entries up to the capacity, newest first
+	 */
+	private static Batch[] visible(final Batch newest, final int capacity) {
+		Batch[] batches = new Batch[8];
+		int batchCount = 0;
+		long remaining = capacity;
+		for (Batch batch = newest; batch != null && remaining > 0; batch = batch.previous) {
+			if (batchCount == batches.length) {
+				batches = Arrays.copyOf(batches, batchCount * 2);
+			}
+			batches[batchCount++] = batch;
+			remaining -= batch.count;
+		}
+		return Arrays.copyOf(batches, batchCount);
+	}
+
+	/**
+	 * Callback for {@link ExpiredWorkOrders#forEach(Visitor)}
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+
+		void visit(long id, long time, int nano);
+
+	}
+
+	private static final class Batch {
+
+		private final long[] ids;
+		private final long[] times;
+		private final int[] nanos;
+		private final int count;
+		private final Batch previous;
+		/**
+		 * The number of entries of this batch and all the older batches still linked to it
+		 */
+		private final long retained;
+
+		private Batch(final long[] ids, final long[] times, final int[] nanos, final int count,
+				final Batch previous) {
+			this.ids = ids;
+			this.times = times;
+			this.nanos = nanos;
+			this.count = count;
+			this.previous = previous;
+			this.retained = previous == null ? count : previous.retained + count;
+		}
+
+	}
+
+}
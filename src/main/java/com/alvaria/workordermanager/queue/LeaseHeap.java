@@ -0,0 +1,229 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Work-orders handed out under a lease, in an indexed binary min-heap ordered by lease deadline.
+ *
+ * Each lease keeps everything needed to put its work-order back at its original rank: id, enqueue
+ * time, class type and the time-to-live of its own, if any. Leases live in pooled entries
+ * addressed by index, and the heap only moves entry indexes. A hash map from id to entry makes
+ * acknowledging a lease O(log n), and finding the leases that ran out is O(1) per lease plus
+ * O(log n) to remove it, however many leases are outstanding.
+ */
+public class LeaseHeap {
+
+	/**
+	 * Entry returned when there is no lease
+	 */
+	public static final int NO_ENTRY = -1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	private final LongIntHashMap entriesById = new LongIntHashMap();
+	private long[] ids = new long[DEFAULT_CAPACITY];
+	private long[] times = new long[DEFAULT_CAPACITY];
+	private int[] nanos = new int[DEFAULT_CAPACITY];
+	private byte[] classTypes = new byte[DEFAULT_CAPACITY];
+	private int[] timesToLive = new int[DEFAULT_CAPACITY];
+	private long[] deadlines = new long[DEFAULT_CAPACITY];
+	// Heap index of each entry; chains the free entries while they are unused
+	private int[] heapIndexes = new int[DEFAULT_CAPACITY];
+	private int[] heap = new int[DEFAULT_CAPACITY];
+	private int size;
+	private int freeEntry = NO_ENTRY;
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(final long id) {
+		return entriesById.containsKey(id);
+	}
+
+	/**
+	 * Finds the lease of a work-order
+	 *
+	 * @param id The id of work-order
+	 * @return The entry of its lease, or {@link #NO_ENTRY} if it is not leased
+	 */
+	public int entryOf(final long id) {
+		final int entry = entriesById.get(id);
+		return entry == LongIntHashMap.NO_VALUE ? NO_ENTRY : entry;
+	}
+
+	/**
+	 * Leases a work-order
+	 *
+	 * @param id         The id of work-order
+	 * @param time       Enqueue time in epoch seconds
+	 * @param nano       Nanosecond of the enqueue time
+	 * @param classType  The class type of work-order
+	 * @param timeToLive Seconds the work-order may wait in the queue, or 0 if it has none of its own
+	 * @param deadline   Time the lease runs out, in epoch milliseconds
+	 * @return The entry of the lease
+	 */
+	public int add(final long id, final long time, final int nano, final ClassTypeEnum classType,
+			final int timeToLive, final long deadline) {
+		if (entriesById.containsKey(id)) {
+			throw new IllegalArgumentException("Id " + id + " is already leased");
+		}
+		final int entry = allocate();
+		ids[entry] = id;
+		times[entry] = time;
+		nanos[entry] = nano;
+		classTypes[entry] = (byte) classType.ordinal();
+		timesToLive[entry] = timeToLive;
+		deadlines[entry] = deadline;
+		entriesById.put(id, entry);
+		final int index = size++;
+		place(entry, index);
+		siftUp(index);
+		return entry;
+	}
+
+	/**
+	 * Retrieves, without removing, the lease that runs out first
+	 *
+	 * @return Its entry, or {@link #NO_ENTRY} if nothing is leased
+	 */
+	public int peek() {
+		return size == 0 ? NO_ENTRY : heap[0];
+	}
+
+	/**
+	 * Ends a lease. Its entry must not be used afterwards.
+	 *
+	 * @param entry The entry of the lease
+	 */
+	public void remove(final int entry) {
+		entriesById.remove(ids[entry]);
+		final int index = heapIndexes[entry];
+		final int last = --size;
+		if (index != last) {
+			place(heap[last], index);
+			if (!siftUp(index)) {
+				siftDown(index);
+			}
+		}
+		heapIndexes[entry] = freeEntry;
+		freeEntry = entry;
+	}
+
+	/**
+	 * Ends every lease
+	 */
+	public void clear() {
+		while (size > 0) {
+			remove(heap[size - 1]);
+		}
+	}
+
+	public long id(final int entry) {
+		return ids[entry];
+	}
+
+	public long time(final int entry) {
+		return times[entry];
+	}
+
+	public int nano(final int entry) {
+		return nanos[entry];
+	}
+
+	public ClassTypeEnum classType(final int entry) {
+		return CLASS_TYPES[classTypes[entry]];
+	}
+
+	public int timeToLive(final int entry) {
+		return timesToLive[entry];
+	}
+
+	public long deadline(final int entry) {
+		return deadlines[entry];
+	}
+
+	/**
+	 * Hands every leased work-order to a visitor, in no particular order
+	 *
+	 * @param visitor Receives each leased work-order
+	 */
+	public void forEach(final WorkOrderRecordStore.RecordVisitor visitor) {
+		for (int index = 0; index < size; index++) {
+			final int entry = heap[index];
+			visitor.visit(ids[entry], times[entry], nanos[entry], classType(entry), timesToLive[entry]);
+		}
+	}
+
+	private int allocate() {
+		if (freeEntry != NO_ENTRY) {
+			final int entry = freeEntry;
+			freeEntry = heapIndexes[entry];
+			return entry;
+		}
+		if (size == ids.length) {
+			final int capacity = size << 1;
+			ids = Arrays.copyOf(ids, capacity);
+			times = Arrays.copyOf(times, capacity);
+			nanos = Arrays.copyOf(nanos, capacity);
+			classTypes = Arrays.copyOf(classTypes, capacity);
+			timesToLive = Arrays.copyOf(timesToLive, capacity);
+			deadlines = Arrays.copyOf(deadlines, capacity);
+			heapIndexes = Arrays.copyOf(heapIndexes, capacity);
+			heap = Arrays.copyOf(heap, capacity);
+		}
+		// With no free entry every entry below size is in use
+		return size;
+	}
+
+	private boolean siftUp(int index) {
+		final int entry = heap[index];
+		final int start = index;
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if (!precedes(entry, heap[parent])) {
+				break;
+			}
+			place(heap[parent], index);
+			index = parent;
+		}
+		place(entry, index);
+		return index != start;
+	}
+
+	private void siftDown(int index) {
+		final int entry = heap[index];
+		final int half = size >>> 1;
+		while (index < half) {
+			int child = (index << 1) + 1;
+			final int right = child + 1;
+			if (right < size && precedes(heap[right], heap[child])) {
+				child = right;
+			}
+			if (!precedes(heap[child], entry)) {
+				break;
+			}
+			place(heap[child], index);
+			index = child;
+		}
+		place(entry, index);
+	}
+
+	private boolean precedes(final int entry, final int other) {
+		final int byDeadline = Long.compare(deadlines[entry], deadlines[other]);
+		return byDeadline != 0 ? byDeadline < 0 : ids[entry] < ids[other];
+	}
+
+	private void place(final int entry, final int index) {
+		heap[index] = entry;
+		heapIndexes[entry] = index;
+	}
+
+}
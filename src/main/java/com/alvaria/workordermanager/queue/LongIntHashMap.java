@@ -0,0 +1,177 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative int values.
+ *
+ * Uses linear probing with backward-shift deletion, so no tombstones are left behind and lookups
+ * stay short no matter how many keys have been removed.
+ */
+public class LongIntHashMap {
+
+	/**
+	 * Value returned by {@link #get(long)} and {@link #remove(long)} when the key is absent
+	 */
+	public static final int NO_VALUE = -1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+	private int shift;
+	private int resizeThreshold;
+
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public LongIntHashMap(final int expectedSize) {
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * Retrieves the value mapped to key
+	 *
+	 * @param key The key to look up
+	 * @return The mapped value, or {@link #NO_VALUE} if key is absent
+	 */
+	public int get(final long key) {
+		final long[] keys = this.keys;
+		final int[] values = this.values;
+		int index = indexOf(key);
+		while (values[index] != NO_VALUE) {
+			if (keys[index] == key) {
+				return values[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	public boolean containsKey(final long key) {
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * Maps key to value, replacing any previous mapping
+	 *
+	 * @param key   The key
+	 * @param value The non-negative value
+	 * @return The previous value, or {@link #NO_VALUE} if key was absent
+	 */
+	public int put(final long key, final int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Value must be non-negative");
+		}
+		int index = indexOf(key);
+		while (values[index] != NO_VALUE) {
+			if (keys[index] == key) {
+				final int previous = values[index];
+				values[index] = value;
+				return previous;
+			}
+			index = (index + 1) & mask;
+		}
+		keys[index] = key;
+		values[index] = value;
+		if (++size > resizeThreshold) {
+			rehash(keys.length << 1);
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Removes the mapping of key
+	 *
+	 * @param key The key to remove
+	 * @return The removed value, or {@link #NO_VALUE} if key was absent
+	 */
+	public int remove(final long key) {
+		int index = indexOf(key);
+		while (values[index] != NO_VALUE) {
+			if (keys[index] == key) {
+				final int previous = values[index];
+				shiftBack(index);
+				size--;
+				return previous;
+			}
+			index = (index + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(values, NO_VALUE);
+		size = 0;
+	}
+
+	/**
+	 * Closes the gap left at index by moving back any entry of the same probe chain
+	 *
+	 * @param gap The index of the removed entry
+	 */
+	private void shiftBack(int gap) {
+		int index = gap;
+		while (true) {
+			index = (index + 1) & mask;
+			if (values[index] == NO_VALUE) {
+				break;
+			}
+			final int home = indexOf(keys[index]);
+			// Move the entry only if its home slot is not cyclically between the gap and its current slot
+			if (((index - home) & mask) >= ((index - gap) & mask)) {
+				keys[gap] = keys[index];
+				values[gap] = values[index];
+				gap = index;
+			}
+		}
+		values[gap] = NO_VALUE;
+	}
+
+	private int indexOf(final long key) {
+		return (int) ((key * GOLDEN_RATIO) >>> shift);
+	}
+
+	private void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final int[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != NO_VALUE) {
+				int index = indexOf(oldKeys[i]);
+				while (values[index] != NO_VALUE) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, NO_VALUE);
+		mask = capacity - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+		resizeThreshold = (int) (capacity * 0.6f);
+	}
+
+	private static int tableSizeFor(final int expectedSize) {
+		final int minimum = Math.max(DEFAULT_CAPACITY, (int) Math.ceil(expectedSize / 0.6));
+		return Integer.highestOneBit(minimum - 1) << 1;
+	}
+
+}
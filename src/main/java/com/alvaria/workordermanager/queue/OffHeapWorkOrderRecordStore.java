@@ -0,0 +1,260 @@
+package com.alvaria.workordermanager.queue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * {@link WorkOrderRecordStore} that keeps its records and its id index outside the Java heap.
+ *
+ * Records have a fixed size and live in direct buffers allocated in chunks of 2^20 slots, so
+ * growing never copies existing records. The id to slot index is an open-addressing hash table
+ * with linear probing and backward-shift deletion in a direct buffer of its own; the buffer it
+ * outgrows is left to the garbage collector, whose cleaner releases its memory. The store itself
+ * only holds the buffer objects on the heap, whatever the number of work-orders. The per-class
+ * heaps and position indexes of the queue are not part of the store and stay on the heap.
+ *
+ * Like the on-heap store it is not thread-safe. The queue reads it only under its read or write
+ * lock, lookups included, and changes it only under its write lock.
+ */
+public class OffHeapWorkOrderRecordStore extends WorkOrderRecordStore {
+
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	// Record layout: id, enqueue time, nano-of-second, heap index or next free slot, class type, time-to-live
+	private static final int RECORD_BYTES = 32;
+	private static final int ID = 0;
+	private static final int TIME = 8;
+	private static final int NANO = 16;
+	private static final int HEAP_INDEX = 20;
+	private static final int CLASS_TYPE = 24;
+	private static final int TIME_TO_LIVE = 28;
+	private static final int CHUNK_BITS = 20;
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+	// Index entry layout: id, slot + 1 so that zeroed memory reads as an empty entry
+	private static final int ENTRY_BYTES = 12;
+	private static final int MIN_TABLE_SIZE = 16;
+	private static final int MAX_TABLE_SIZE = 1 << 27;
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+	private ByteBuffer[] chunks = new ByteBuffer[0];
+	private int chunkSlots;
+	private ByteBuffer table;
+	private int tableMask;
+	private int tableShift;
+	private int highWaterMark;
+	private int freeHead = NO_SLOT;
+	private int size;
+
+	public OffHeapWorkOrderRecordStore() {
+		super(0);
+		allocateTable(MIN_TABLE_SIZE);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int slotCount() {
+		return highWaterMark;
+	}
+
+	@Override
+	public int slotOf(final long id) {
+		int index = indexOf(id);
+		int value;
+		while ((value = table.getInt(index * ENTRY_BYTES + 8)) != 0) {
+			if (table.getLong(index * ENTRY_BYTES) == id) {
+				return value - 1;
+			}
+			index = (index + 1) & tableMask;
+		}
+		return NO_SLOT;
+	}
+
+	@Override
+	public boolean contains(final long id) {
+		return slotOf(id) != NO_SLOT;
+	}
+
+	@Override
+	public int allocate(final long id, final long time, final int nano, final ClassTypeEnum classType,
+			final int timeToLive) {
+		if (contains(id)) {
+			throw new IllegalStateException("Id already stored: " + id);
+		}
+		final int slot;
+		if (freeHead != NO_SLOT) {
+			slot = freeHead;
+			freeHead = heapIndex(slot);
+		} else {
+			if (highWaterMark == chunkSlots) {
+				addChunk();
+			}
+			slot = highWaterMark++;
+		}
+		final ByteBuffer chunk = chunks[slot >>> CHUNK_BITS];
+		final int offset = (slot & CHUNK_MASK) * RECORD_BYTES;
+		chunk.putLong(offset + ID, id);
+		chunk.putLong(offset + TIME, time);
+		chunk.putInt(offset + NANO, nano);
+		chunk.putInt(offset + HEAP_INDEX, -1);
+		chunk.put(offset + CLASS_TYPE, (byte) classType.ordinal());
+		chunk.putInt(offset + TIME_TO_LIVE, timeToLive);
+		put(id, slot);
+		size++;
+		return slot;
+	}
+
+	@Override
+	public void release(final int slot) {
+		if (slot < 0 || slot >= highWaterMark || !remove(id(slot), slot)) {
+			throw new NoSuchElementException();
+		}
+		setHeapIndex(slot, freeHead);
+		freeHead = slot;
+		size--;
+	}
+
+	@Override
+	public long id(final int slot) {
+		return chunks[slot >>> CHUNK_BITS].getLong((slot & CHUNK_MASK) * RECORD_BYTES + ID);
+	}
+
+	@Override
+	public long time(final int slot) {
+		return chunks[slot >>> CHUNK_BITS].getLong((slot & CHUNK_MASK) * RECORD_BYTES + TIME);
+	}
+
+	@Override
+	public int nano(final int slot) {
+		return chunks[slot >>> CHUNK_BITS].getInt((slot & CHUNK_MASK) * RECORD_BYTES + NANO);
+	}
+
+	@Override
+	public ClassTypeEnum classType(final int slot) {
+		return CLASS_TYPES[chunks[slot >>> CHUNK_BITS].get((slot & CHUNK_MASK) * RECORD_BYTES + CLASS_TYPE)];
+	}
+
+	@Override
+	public int timeToLive(final int slot) {
+		return chunks[slot >>> CHUNK_BITS].getInt((slot & CHUNK_MASK) * RECORD_BYTES + TIME_TO_LIVE);
+	}
+
+	@Override
+	public int heapIndex(final int slot) {
+		return chunks[slot >>> CHUNK_BITS].getInt((slot & CHUNK_MASK) * RECORD_BYTES + HEAP_INDEX);
+	}
+
+	@Override
+	public void setHeapIndex(final int slot, final int heapIndex) {
+		chunks[slot >>> CHUNK_BITS].putInt((slot & CHUNK_MASK) * RECORD_BYTES + HEAP_INDEX, heapIndex);
+	}
+
+	@Override
+	public void forEach(final RecordVisitor visitor) {
+		for (int slot = 0; slot < highWaterMark; slot++) {
+			final long id = id(slot);
+			if (slotOf(id) == slot) {
+				visitor.visit(id, time(slot), nano(slot), classType(slot), timeToLive(slot));
+			}
+		}
+	}
+
+	private void addChunk() {
+		chunks = Arrays.copyOf(chunks, chunks.length + 1);
+		chunks[chunks.length - 1] = ByteBuffer.allocateDirect(RECORD_BYTES << CHUNK_BITS)
+				.order(ByteOrder.nativeOrder());
+		chunkSlots += 1 << CHUNK_BITS;
+	}
+
+	private void put(final long id, final int slot) {
+		int index = indexOf(id);
+		while (table.getInt(index * ENTRY_BYTES + 8) != 0) {
+			index = (index + 1) & tableMask;
+		}
+		table.putLong(index * ENTRY_BYTES, id);
+		table.putInt(index * ENTRY_BYTES + 8, slot + 1);
+		// Keep the load factor at most 1/2
+		if (size + 1 > (tableMask + 1) >>> 1) {
+			rehash((tableMask + 1) << 1);
+		}
+	}
+
+	private boolean remove(final long id, final int slot) {
+		int index = indexOf(id);
+		int value;
+		while ((value = table.getInt(index * ENTRY_BYTES + 8)) != 0) {
+			if (table.getLong(index * ENTRY_BYTES) == id) {
+				if (value - 1 != slot) {
+					return false;
+				}
+				shiftBack(index);
+				return true;
+			}
+			index = (index + 1) & tableMask;
+		}
+		return false;
+	}
+
+	/**
+	 * Closes the gap left at an index by moving back any entry of the same probe chain
+	 */
+	private void shiftBack(int gap) {
+		int index = gap;
+		while (true) {
+			index = (index + 1) & tableMask;
+			final int value = table.getInt(index * ENTRY_BYTES + 8);
+			if (value == 0) {
+				break;
+			}
+			final long key = table.getLong(index * ENTRY_BYTES);
+			final int home = indexOf(key);
+			// Move the entry only if its home index is not cyclically between the gap and its current index
+			if (((index - home) & tableMask) >= ((index - gap) & tableMask)) {
+				table.putLong(gap * ENTRY_BYTES, key);
+				table.putInt(gap * ENTRY_BYTES + 8, value);
+				gap = index;
+			}
+		}
+		table.putInt(gap * ENTRY_BYTES + 8, 0);
+	}
+
+	private void rehash(final int tableSize) {
+		if (tableSize > MAX_TABLE_SIZE) {
+			throw new IllegalStateException("Off-heap index is full");
+		}
+		final ByteBuffer previous = table;
+		final int previousSize = tableMask + 1;
+		allocateTable(tableSize);
+		for (int index = 0; index < previousSize; index++) {
+			final int value = previous.getInt(index * ENTRY_BYTES + 8);
+			if (value != 0) {
+				final long key = previous.getLong(index * ENTRY_BYTES);
+				int target = indexOf(key);
+				while (table.getInt(target * ENTRY_BYTES + 8) != 0) {
+					target = (target + 1) & tableMask;
+				}
+				table.putLong(target * ENTRY_BYTES, key);
+				table.putInt(target * ENTRY_BYTES + 8, value);
+			}
+		}
+	}
+
+	private void allocateTable(final int tableSize) {
+		table = ByteBuffer.allocateDirect(tableSize * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+		tableMask = tableSize - 1;
+		tableShift = 64 - Integer.numberOfTrailingZeros(tableSize);
+	}
+
+	private int indexOf(final long id) {
+		return (int) ((id * GOLDEN_RATIO) >>> tableShift);
+	}
+
+}
@@ -0,0 +1,419 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Size-augmented AVL tree of work-order ids ordered by enqueue time.
+ *
+ * Entries are keyed by (time, id), the same order as {@link WorkOrderHeap}, so the index of an
+ * entry is its position within its class. Index lookup, select by index and seeking a cursor are
+ * all O(log n). Every node also carries the sum of the enqueue times below it, so the total
+ * waiting time of the entries as of any time is O(1).
+ *
+ * Nodes are immutable and updates copy the O(log n) nodes on the path from the root, so a
+ * {@link #snapshot()} is O(1) and stays valid, unchanged, while the tree keeps being updated.
+ */
+public class OrderStatisticTree {
+
+	private Node root;
+
+	public OrderStatisticTree() {
+	}
+
+	private OrderStatisticTree(final Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * Captures the current state of the tree. The returned tree shares all nodes with this one and
+	 * is safe to read from any thread once published.
+	 *
+	 * @return Point-in-time copy of the tree
+	 */
+	public OrderStatisticTree snapshot() {
+		return new OrderStatisticTree(root);
+	}
+
+	public int size() {
+		return size(root);
+	}
+
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * Retrieves the sum of the enqueue times of all entries. The total waiting time as of a given
+	 * time is size() * asOf - timeSum().
+	 *
+	 * @return The sum in epoch seconds
+	 */
+	public long timeSum() {
+		return root == null ? 0 : root.timeSum;
+	}
+
+	/**
+	 * Inserts a work-order in the tree
+	 *
+	 * @param id   The id of work-order
+	 * @param time The enqueue time of work-order in epoch seconds
+	 */
+	public void add(final long id, final long time) {
+		root = insert(root, id, time);
+	}
+
+	/**
+	 * Inserts a batch of work-orders absent from the tree. Large batches are sorted, merged with
+	 * the existing entries and the tree is rebuilt perfectly balanced in O(n), instead of paying a
+	 * path copy per entry.
+	 *
+	 * @param ids   The ids of the work-orders; reordered by this call
+	 * @param times The enqueue times of the work-orders; reordered by this call
+	 * @param count Number of entries to take from the arrays
+	 */
+	public void addAll(final long[] ids, final long[] times, final int count) {
+		final int total = size(root) + count;
+		final int log = 32 - Integer.numberOfLeadingZeros(total);
+		if ((long) count * log <= 2L * total) {
+			for (int i = 0; i < count; i++) {
+				add(ids[i], times[i]);
+			}
+			return;
+		}
+
+		sort(ids, times, count);
+		final long[] mergedIds = new long[total];
+		final long[] mergedTimes = new long[total];
+		final Cursor cursor = cursor(0);
+		int next = 0;
+		for (int i = 0; i < total; i++) {
+			if (next < count && (!cursor.hasNext() || (times[next] != cursor.time()
+					? times[next] < cursor.time() : ids[next] < cursor.id()))) {
+				mergedIds[i] = ids[next];
+				mergedTimes[i] = times[next++];
+			} else {
+				mergedIds[i] = cursor.id();
+				mergedTimes[i] = cursor.time();
+				cursor.advance();
+			}
+		}
+		root = build(mergedIds, mergedTimes, 0, total);
+	}
+
+	/**
+	 * Removes a work-order from the tree
+	 *
+	 * @param id   The id of work-order
+	 * @param time The enqueue time the work-order was inserted with
+	 */
+	public void remove(final long id, final long time) {
+		root = delete(root, id, time);
+	}
+
+	/**
+	 * Retrieves the index of a work-order
+	 *
+	 * @param id   The id of work-order
+	 * @param time The enqueue time the work-order was inserted with
+	 * @return The zero based index, or -1 if the work-order is not present
+	 */
+	public int indexOf(final long id, final long time) {
+		int index = 0;
+		Node node = root;
+		while (node != null) {
+			final int comparison = compare(id, time, node);
+			if (comparison < 0) {
+				node = node.left;
+			} else if (comparison > 0) {
+				index += size(node.left) + 1;
+				node = node.right;
+			} else {
+				return index + size(node.left);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Counts the entries of the longest prefix whose entries all satisfy the predicate. The
+	 * predicate must be monotone: once it fails for an entry it fails for every later one.
+	 *
+	 * @param predicate Test applied to O(log n) entries
+	 * @return The number of leading entries satisfying the predicate
+	 */
+	public int countWhile(final Predicate predicate) {
+		int count = 0;
+		Node node = root;
+		while (node != null) {
+			if (predicate.test(node.id, node.time)) {
+				count += size(node.left) + 1;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Opens a cursor on the entry at a given index
+	 *
+	 * @param index The index of the first entry to visit
+	 * @return Cursor positioned at index, exhausted if index is past the last entry
+	 */
+	public Cursor cursor(final int index) {
+		return new Cursor(root, index);
+	}
+
+	/**
+	 * Visits entries in order starting at a given index
+	 *
+	 * @param offset  The index of the first entry to visit
+	 * @param limit   The maximum number of entries to visit
+	 * @param visitor Receives each visited entry
+	 */
+	public void forEach(final int offset, final int limit, final Visitor visitor) {
+		final Cursor cursor = cursor(offset);
+		for (int visited = 0; visited < limit && cursor.hasNext(); visited++) {
+			visitor.visit(cursor.id(), cursor.time());
+			cursor.advance();
+		}
+	}
+
+	private static int compare(final long id, final long time, final Node node) {
+		final int byTime = Long.compare(time, node.time);
+		return byTime != 0 ? byTime : Long.compare(id, node.id);
+	}
+
+	private static Node build(final long[] ids, final long[] times, final int from, final int to) {
+		if (from >= to) {
+			return null;
+		}
+		final int middle = (from + to) >>> 1;
+		return new Node(ids[middle], times[middle], build(ids, times, from, middle),
+				build(ids, times, middle + 1, to));
+	}
+
+	/**
+	 * Sorts parallel id and time arrays by (time, id) with a bottom-up merge sort
+	 */
+	private static void sort(final long[] ids, final long[] times, final int count) {
+		long[] sourceIds = ids;
+		long[] sourceTimes = times;
+		long[] targetIds = new long[count];
+		long[] targetTimes = new long[count];
+		for (int width = 1; width < count; width <<= 1) {
+			for (int from = 0; from < count; from += width << 1) {
+				final int middle = Math.min(from + width, count);
+				final int to = Math.min(from + (width << 1), count);
+				int left = from;
+				int right = middle;
+				for (int i = from; i < to; i++) {
+					if (left < middle && (right >= to || (sourceTimes[left] != sourceTimes[right]
+							? sourceTimes[left] < sourceTimes[right] : sourceIds[left] < sourceIds[right]))) {
+						targetIds[i] = sourceIds[left];
+						targetTimes[i] = sourceTimes[left++];
+					} else {
+						targetIds[i] = sourceIds[right];
+						targetTimes[i] = sourceTimes[right++];
+					}
+				}
+			}
+			final long[] swapIds = sourceIds;
+			final long[] swapTimes = sourceTimes;
+			sourceIds = targetIds;
+			sourceTimes = targetTimes;
+			targetIds = swapIds;
+			targetTimes = swapTimes;
+		}
+		if (sourceIds != ids) {
+			System.arraycopy(sourceIds, 0, ids, 0, count);
+			System.arraycopy(sourceTimes, 0, times, 0, count);
+		}
+	}
+
+	private static Node insert(final Node node, final long id, final long time) {
+		if (node == null) {
+			return new Node(id, time, null, null);
+		}
+		final int comparison = compare(id, time, node);
+		if (comparison < 0) {
+			return balance(node, insert(node.left, id, time), node.right);
+		} else if (comparison > 0) {
+			return balance(node, node.left, insert(node.right, id, time));
+		}
+		return node;
+	}
+
+	private static Node delete(final Node node, final long id, final long time) {
+		if (node == null) {
+			return null;
+		}
+		final int comparison = compare(id, time, node);
+		if (comparison < 0) {
+			return balance(node, delete(node.left, id, time), node.right);
+		} else if (comparison > 0) {
+			return balance(node, node.left, delete(node.right, id, time));
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		}
+		Node successor = node.right;
+		while (successor.left != null) {
+			successor = successor.left;
+		}
+		return balance(successor, node.left, deleteMin(node.right));
+	}
+
+	private static Node deleteMin(final Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		return balance(node, deleteMin(node.left), node.right);
+	}
+
+	/**
+	 * Rebuilds a node with new children, rotating when the AVL balance invariant is broken
+	 *
+	 * @param node  The node supplying the entry
+	 * @param left  The new left child
+	 * @param right The new right child
+	 * @return The root of the balanced subtree
+	 */
+	private static Node balance(final Node node, final Node left, final Node right) {
+		final int leftHeight = height(left);
+		final int rightHeight = height(right);
+		if (leftHeight > rightHeight + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return left.with(left.left, node.with(left.right, right));
+			}
+			final Node pivot = left.right;
+			return pivot.with(left.with(left.left, pivot.left), node.with(pivot.right, right));
+		} else if (rightHeight > leftHeight + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return right.with(node.with(left, right.left), right.right);
+			}
+			final Node pivot = right.left;
+			return pivot.with(node.with(left, pivot.left), right.with(pivot.right, right.right));
+		}
+		return node.with(left, right);
+	}
+
+	private static int size(final Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static int height(final Node node) {
+		return node == null ? 0 : node.height;
+	}
+
+	/**
+	 * Callback for {@link OrderStatisticTree#forEach(int, int, Visitor)}
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+
+		void visit(long id, long time);
+
+	}
+
+	/**
+	 * Condition for {@link OrderStatisticTree#countWhile(Predicate)}
+	 */
+	@FunctionalInterface
+	public interface Predicate {
+
+		boolean test(long id, long time);
+
+	}
+
+	/**
+	 * In-order cursor over the entries of a tree
+	 */
+	public static final class Cursor {
+
+		private final Node[] stack;
+		private int depth;
+
+		private Cursor(final Node root, final int index) {
+			this.stack = new Node[height(root) + 1];
+			int remaining = index;
+			Node node = root;
+			while (node != null) {
+				final int leftSize = size(node.left);
+				if (remaining < leftSize) {
+					stack[depth++] = node;
+					node = node.left;
+				} else if (remaining == leftSize) {
+					stack[depth++] = node;
+					break;
+				} else {
+					remaining -= leftSize + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return depth > 0;
+		}
+
+		public long id() {
+			return current().id;
+		}
+
+		public long time() {
+			return current().time;
+		}
+
+		/**
+		 * Moves the cursor to the next entry
+		 */
+		public void advance() {
+			final Node node = current();
+			depth--;
+			for (Node next = node.right; next != null; next = next.left) {
+				stack[depth++] = next;
+			}
+		}
+
+		private Node current() {
+			if (depth == 0) {
+				throw new NoSuchElementException();
+			}
+			return stack[depth - 1];
+		}
+
+	}
+
+	private static final class Node {
+
+		private final long id;
+		private final long time;
+		private final Node left;
+		private final Node right;
+		private final int size;
+		private final int height;
+		private final long timeSum;
+
+		private Node(final long id, final long time, final Node left, final Node right) {
+			this.id = id;
+			this.time = time;
+			this.left = left;
+			this.right = right;
+			this.size = size(left) + size(right) + 1;
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.timeSum = (left == null ? 0 : left.timeSum) + (right == null ? 0 : right.timeSum) + time;
+		}
+
+		private Node with(final Node left, final Node right) {
+			if (left == this.left && right == this.right) {
+				return this;
+			}
+			return new Node(id, time, left, right);
+		}
+
+	}
+
+}
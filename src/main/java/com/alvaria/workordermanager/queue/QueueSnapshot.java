@@ -0,0 +1,223 @@
+package com.alvaria.workordermanager.queue;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Immutable point-in-time view of the queue, one {@link OrderStatisticTree} per class.
+ *
+ * Queue order is evaluated lazily at an as-of time supplied by the caller. Because each class is
+ * ordered by time and its rank function is monotone in age (see {@link WorkOrderRanking}), the
+ * work-orders of one class that are ahead of a given work-order always form a prefix of that
+ * class, so positions are found with one O(log n) prefix search per class. The snapshot carries
+ * the ranking it is ordered by, so a reader sees one consistent order even while the ranking is
+ * replaced.
+ */
+public final class QueueSnapshot {
+
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	private final OrderStatisticTree[] trees;
+	private final WorkOrderRanking ranking;
+
+	private QueueSnapshot(final OrderStatisticTree[] trees, final WorkOrderRanking ranking) {
+		this.trees = trees;
+		this.ranking = ranking;
+	}
+
+	/**
+	 * Creates a snapshot with no work-orders, ordered by the default ranking
+	 *
+	 * @return The empty snapshot
+	 */
+	public static QueueSnapshot empty() {
+		final OrderStatisticTree[] trees = new OrderStatisticTree[CLASS_TYPES.length];
+		for (int i = 0; i < trees.length; i++) {
+			trees[i] = new OrderStatisticTree();
+		}
+		return new QueueSnapshot(trees, WorkOrderRanking.DEFAULT);
+	}
+
+	/**
+	 * Creates a copy of this snapshot with the tree of one class replaced
+	 *
+	 * @param classType The class type whose tree changed
+	 * @param tree      Snapshot of the new tree of the class
+	 * @return The updated snapshot
+	 */
+	public QueueSnapshot with(final ClassTypeEnum classType, final OrderStatisticTree tree) {
+		final OrderStatisticTree[] updated = trees.clone();
+		updated[classType.ordinal()] = tree;
+		return new QueueSnapshot(updated, ranking);
+	}
+
+	/**
+	 * Creates a copy of this snapshot ordered by another ranking. No tree is touched, because a
+	 * ranking never changes the order within a class.
+	 *
+	 * @param ranking The new ranking
+	 * @return The updated snapshot
+	 */
+	public QueueSnapshot with(final WorkOrderRanking ranking) {
+		return new QueueSnapshot(trees, ranking);
+	}
+
+	public WorkOrderRanking ranking() {
+		return ranking;
+	}
+
+	public int size() {
+		int size = 0;
+		for (final OrderStatisticTree tree : trees) {
+			size += tree.size();
+		}
+		return size;
+	}
+
+	public boolean isEmpty() {
+		for (final OrderStatisticTree tree : trees) {
+			if (!tree.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Retrieves the work-orders of a single class
+	 *
+	 * @param classType The class type
+	 * @return Tree of the class, ordered by enqueue time
+	 */
+	public OrderStatisticTree classTree(final ClassTypeEnum classType) {
+		return trees[classType.ordinal()];
+	}
+
+	/**
+	 * Retrieves the position of a work-order in queue order
+	 *
+	 * @param id        The id of work-order
+	 * @param classType The class type of work-order
+	 * @param time      The enqueue time of work-order in epoch seconds
+	 * @param asOf      The time ranks are evaluated at, in epoch seconds
+	 * @return The zero based position, or -1 if the work-order is not in this snapshot
+	 */
+	public int positionOf(final long id, final ClassTypeEnum classType, final long time, final long asOf) {
+		final int index = classTree(classType).indexOf(id, time);
+		if (index < 0) {
+			return -1;
+		}
+		return positionOf(id, classType, time, index, asOf);
+	}
+
+	/**
+	 * Visits work-orders in queue order starting at a given position
+	 *
+	 * @param offset  The position of the first work-order to visit
+	 * @param limit   The maximum number of work-orders to visit
+	 * @param asOf    The time ranks are evaluated at, in epoch seconds
+	 * @param visitor Receives each visited work-order
+	 */
+	public void forEach(final int offset, final int limit, final long asOf, final OrderStatisticTree.Visitor visitor) {
+		if (limit <= 0 || offset >= size()) {
+			return;
+		}
+		final OrderStatisticTree.Cursor[] cursors = new OrderStatisticTree.Cursor[trees.length];
+		for (int i = 0; i < trees.length; i++) {
+			cursors[i] = trees[i].cursor(offset == 0 ? 0 : countBefore(CLASS_TYPES[i], offset, asOf));
+		}
+
+		for (int visited = 0; visited < limit; visited++) {
+			int best = -1;
+			for (int i = 0; i < cursors.length; i++) {
+				if (cursors[i].hasNext() && (best < 0 || ranking.compare(CLASS_TYPES[i], cursors[i].time(),
+						cursors[i].id(), CLASS_TYPES[best], cursors[best].time(), cursors[best].id(), asOf) < 0)) {
+					best = i;
+				}
+			}
+			if (best < 0) {
+				return;
+			}
+			visitor.visit(cursors[best].id(), cursors[best].time());
+			cursors[best].advance();
+		}
+	}
+
+	/**
+	 * Visits the work-orders enqueued within a time range, oldest first, then lowest id first. The
+	 * range is found with one O(log n) prefix search per class, and every further work-order is
+	 * O(1) per class, so no work-order outside the range is visited.
+	 *
+	 * @param classType The class type of the work-orders to visit, or null for every class
+	 * @param from      The earliest enqueue time to visit, in epoch seconds
+	 * @param to        The latest enqueue time to visit, in epoch seconds
+	 * @param visitor   Receives each work-order in the range, and returns false to stop
+	 */
+	public void forEachBetween(final ClassTypeEnum classType, final long from, final long to,
+			final OrderStatisticTree.Predicate visitor) {
+		final OrderStatisticTree.Cursor[] cursors = new OrderStatisticTree.Cursor[trees.length];
+		for (int i = 0; i < trees.length; i++) {
+			if (classType == null || classType == CLASS_TYPES[i]) {
+				cursors[i] = trees[i].cursor(trees[i].countWhile((id, time) -> time < from));
+			}
+		}
+
+		while (true) {
+			int best = -1;
+			for (int i = 0; i < cursors.length; i++) {
+				if (cursors[i] != null && cursors[i].hasNext() && cursors[i].time() <= to && (best < 0
+						|| cursors[i].time() < cursors[best].time()
+						|| cursors[i].time() == cursors[best].time() && cursors[i].id() < cursors[best].id())) {
+					best = i;
+				}
+			}
+			if (best < 0 || !visitor.test(cursors[best].id(), cursors[best].time())) {
+				return;
+			}
+			cursors[best].advance();
+		}
+	}
+
+	/**
+	 * Visits all work-orders, class by class, without evaluating ranks
+	 *
+	 * @param visitor Receives each work-order
+	 */
+	public void forEachUnordered(final OrderStatisticTree.Visitor visitor) {
+		for (final OrderStatisticTree tree : trees) {
+			tree.forEach(0, Integer.MAX_VALUE, visitor);
+		}
+	}
+
+	private int positionOf(final long id, final ClassTypeEnum classType, final long time, final int index,
+			final long asOf) {
+		int position = index;
+		for (final ClassTypeEnum other : CLASS_TYPES) {
+			if (other != classType) {
+				position += classTree(other).countWhile((otherId, otherTime) -> ranking.compare(other,
+						otherTime, otherId, classType, time, id, asOf) < 0);
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Counts the work-orders of a class whose position is below a given position, by binary
+	 * searching the class for the first work-order at or after it
+	 */
+	private int countBefore(final ClassTypeEnum classType, final int position, final long asOf) {
+		final OrderStatisticTree tree = classTree(classType);
+		int low = 0;
+		int high = tree.size();
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			final OrderStatisticTree.Cursor cursor = tree.cursor(middle);
+			if (positionOf(cursor.id(), classType, cursor.time(), middle, asOf) < position) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+}
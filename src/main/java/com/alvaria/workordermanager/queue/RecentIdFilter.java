@@ -0,0 +1,142 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+
+/**
+ * Bounded set of the ids seen within a sliding time window.
+ *
+ * The window is split over a ring of four generations. Ids are added to the newest generation,
+ * and when it has covered a third of the window, or holds a third of the maximum number of ids,
+ * the oldest generation is cleared and becomes the newest. An id is therefore remembered for the
+ * whole window as long as ids arrive no faster than the maximum number per window, and the newest
+ * maximum number of ids are always remembered. Memory is bounded by four generations, a third more
+ * than the maximum number of ids, however long the application runs.
+ *
+ * Each generation is a Bloom filter in front of an exact {@link LongIntHashMap} used as a set. Most
+ * lookups are of new ids, which the filters reject without probing the hash sets; a filter hit is
+ * confirmed by the exact set, so there are no false positives.
+ */
+public final class RecentIdFilter {
+
+	private static final int GENERATIONS = 4;
+	private static final int HASHES = 7;
+	private static final int BITS_PER_ID = 10;
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+	private final long generationMillis;
+	private final int generationCapacity;
+	private final long[][] filters = new long[GENERATIONS][];
+	private final LongIntHashMap[] sets = new LongIntHashMap[GENERATIONS];
+	private final int filterMask;
+	private int newest;
+	private long newestStart;
+
+	/**
+	 * Creates an empty filter
+	 *
+	 * @param windowMillis How long an id is remembered
+	 * @param maxIds       Ids remembered however fast they arrive; up to a third more may be held
+	 * @param now          The current time in epoch milliseconds
+	 */
+	public RecentIdFilter(final long windowMillis, final int maxIds, final long now) {
+		if (windowMillis <= 0 || maxIds <= 0) {
+			throw new IllegalArgumentException("Window and maximum number of ids must be positive");
+		}
+		// The newest generation fills up while the others, covering the rest of the window, stay full
+		this.generationMillis = Math.max(1, windowMillis / (GENERATIONS - 1));
+		this.generationCapacity = (int) (((long) maxIds + GENERATIONS - 2) / (GENERATIONS - 1));
+		final int filterBits = Integer.highestOneBit((int) Math.min(1 << 30,
+				Math.max(64L, (long) generationCapacity * BITS_PER_ID)) * 2 - 1);
+		this.filterMask = filterBits - 1;
+		for (int i = 0; i < GENERATIONS; i++) {
+			filters[i] = new long[filterBits >>> 6];
+			sets[i] = new LongIntHashMap();
+		}
+		this.newestStart = now;
+	}
+
+	/**
+	 * Remembers an id
+	 *
+	 * @param id  The id
+	 * @param now The current time in epoch milliseconds
+	 */
+	public void add(final long id, final long now) {
+		rotate(now);
+		if (sets[newest].size() >= generationCapacity) {
+			advance(now);
+		}
+		if (sets[newest].put(id, 0) == LongIntHashMap.NO_VALUE) {
+			final long[] filter = filters[newest];
+			final long hash = hash(id);
+			final int step = (int) (hash >>> 32) | 1;
+			int bit = (int) hash;
+			for (int i = 0; i < HASHES; i++, bit += step) {
+				filter[(bit & filterMask) >>> 6] |= 1L << bit;
+			}
+		}
+	}
+
+	/**
+	 * Tells whether an id was added within the window
+	 *
+	 * @param id  The id
+	 * @param now The current time in epoch milliseconds
+	 * @return true if the id is remembered
+	 */
+	public boolean contains(final long id, final long now) {
+		rotate(now);
+		final long hash = hash(id);
+		final int step = (int) (hash >>> 32) | 1;
+		for (int generation = 0; generation < GENERATIONS; generation++) {
+			if (sets[generation].isEmpty()) {
+				continue;
+			}
+			final long[] filter = filters[generation];
+			boolean maybe = true;
+			int bit = (int) hash;
+			for (int i = 0; i < HASHES && maybe; i++, bit += step) {
+				maybe = (filter[(bit & filterMask) >>> 6] & (1L << bit)) != 0;
+			}
+			if (maybe && sets[generation].containsKey(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The number of ids remembered
+	 */
+	public int size() {
+		int size = 0;
+		for (final LongIntHashMap set : sets) {
+			size += set.size();
+		}
+		return size;
+	}
+
+	private void rotate(final long now) {
+		if (now - newestStart < generationMillis) {
+			return;
+		}
+		// After a whole window without ids every generation is stale
+		final long elapsed = Math.min(GENERATIONS, (now - newestStart) / generationMillis);
+		for (int i = 0; i < elapsed; i++) {
+			advance(now);
+		}
+	}
+
+	private void advance(final long now) {
+		newest = (newest + 1) % GENERATIONS;
+		Arrays.fill(filters[newest], 0);
+		sets[newest].clear();
+		newestStart = now;
+	}
+
+	private static long hash(final long id) {
+		final long hash = id * GOLDEN_RATIO;
+		return hash ^ (hash >>> 29);
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of deadlines, keyed by the slots of a {@link WorkOrderRecordStore}.
+ *
+ * Time advances in ticks of one second. The wheel has four levels of 64 buckets: level 0 holds the
+ * deadlines of the next 64 ticks, one bucket per tick, and every further level covers 64 times the
+ * span of the one below, about 194 days in total; later deadlines wait in the last level. Each
+ * bucket is an intrusive doubly linked list threaded through per-slot arrays, so schedule and
+ * cancel are O(1) and the wheel allocates nothing per deadline. When level 0 wraps around, the
+ * next bucket of level 1 is cascaded, i.e. its entries are spread over the lower levels, and so
+ * on upwards. Every entry is cascaded at most once per level, so expiring n deadlines costs O(n)
+ * plus one step per elapsed tick, without ever scanning the queue.
+ */
+public final class TimingWheel {
+
+	private static final int LEVELS = 4;
+	private static final int BITS = 6;
+	private static final int BUCKETS = 1 << BITS;
+	private static final int MASK = BUCKETS - 1;
+	private static final long MAX_SPAN = (1L << (LEVELS * BITS)) - 1;
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int NIL = -1;
+	// prev values: a slot, UNSCHEDULED, or HEAD_OF - bucket for the first entry of a bucket
+	private static final int UNSCHEDULED = -1;
+	private static final int HEAD_OF = -2;
+
+	private final int[] heads = new int[LEVELS * BUCKETS];
+	private int[] next = new int[0];
+	private int[] prev = new int[0];
+	private long[] deadlines = new long[0];
+	private long base;
+	private int size;
+
+	/**
+	 * Creates an empty wheel
+	 *
+	 * @param now The current time in epoch seconds; the first tick to expire is the next one
+	 */
+	public TimingWheel(final long now) {
+		this.base = now + 1;
+		Arrays.fill(heads, NIL);
+	}
+
+	/**
+	 * @return The number of scheduled deadlines
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isScheduled(final int slot) {
+		return slot < prev.length && prev[slot] != UNSCHEDULED;
+	}
+
+	/**
+	 * Schedules the deadline of a slot, replacing its previous deadline
+	 *
+	 * @param slot     The slot of the work-order
+	 * @param deadline The time in epoch seconds at which it expires; a past deadline expires on
+	 *                 the next {@link #advance}
+	 */
+	public void schedule(final int slot, final long deadline) {
+		if (slot >= prev.length) {
+			grow(slot);
+		}
+		if (prev[slot] != UNSCHEDULED) {
+			unlink(slot);
+		} else {
+			size++;
+		}
+		deadlines[slot] = deadline;
+		link(slot);
+	}
+
+	/**
+	 * Removes the deadline of a slot, if it has one
+	 *
+	 * @param slot The slot of the work-order
+	 */
+	public void cancel(final int slot) {
+		if (isScheduled(slot)) {
+			unlink(slot);
+			prev[slot] = UNSCHEDULED;
+			size--;
+		}
+	}
+
+	public long deadline(final int slot) {
+		return deadlines[slot];
+	}
+
+	/**
+	 * Expires every deadline up to a given time. Each expired slot is unscheduled before it is
+	 * handed to the visitor, which may cancel or schedule other slots.
+	 *
+	 * @param now     The current time in epoch seconds
+	 * @param visitor Receives each expired slot
+	 */
+	public void advance(final long now, final SlotVisitor visitor) {
+		while (base <= now) {
+			if (size == 0) {
+				// Nothing can be due, so skip the idle ticks
+				base = now + 1;
+				return;
+			}
+			final int index = (int) (base & MASK);
+			if (index == 0) {
+				for (int level = 1; level < LEVELS; level++) {
+					final int levelIndex = (int) ((base >>> (level * BITS)) & MASK);
+					cascade(level * BUCKETS + levelIndex);
+					if (levelIndex != 0) {
+						break;
+					}
+				}
+			}
+			int slot = heads[index];
+			heads[index] = NIL;
+			while (slot != NIL) {
+				final int following = next[slot];
+				prev[slot] = UNSCHEDULED;
+				size--;
+				visitor.visit(slot);
+				slot = following;
+			}
+			base++;
+		}
+	}
+
+	private void cascade(final int bucket) {
+		int slot = heads[bucket];
+		heads[bucket] = NIL;
+		while (slot != NIL) {
+			final int following = next[slot];
+			link(slot);
+			slot = following;
+		}
+	}
+
+	private void link(final int slot) {
+		final long deadline = deadlines[slot];
+		final long delta = deadline - base;
+		final int bucket;
+		if (delta < BUCKETS) {
+			bucket = (int) ((delta < 0 ? base : deadline) & MASK);
+		} else {
+			// Deadlines beyond the span of the wheel wait in the last level and are cascaded again
+			final long span = Math.min(delta, MAX_SPAN);
+			final long due = base + span;
+			final int level = (63 - Long.numberOfLeadingZeros(span)) / BITS;
+			bucket = level * BUCKETS + (int) ((due >>> (level * BITS)) & MASK);
+		}
+		final int head = heads[bucket];
+		next[slot] = head;
+		prev[slot] = HEAD_OF - bucket;
+		if (head != NIL) {
+			prev[head] = slot;
+		}
+		heads[bucket] = slot;
+	}
+
+	private void unlink(final int slot) {
+		final int previous = prev[slot];
+		final int following = next[slot];
+		if (previous >= 0) {
+			next[previous] = following;
+		} else {
+			heads[HEAD_OF - previous] = following;
+		}
+		if (following != NIL) {
+			prev[following] = previous;
+		}
+	}
+
+	private void grow(final int slot) {
+		final int capacity = Math.max(DEFAULT_CAPACITY, Math.max(slot + 1, prev.length << 1));
+		final int oldCapacity = prev.length;
+		next = Arrays.copyOf(next, capacity);
+		prev = Arrays.copyOf(prev, capacity);
+		deadlines = Arrays.copyOf(deadlines, capacity);
+		Arrays.fill(prev, oldCapacity, capacity, UNSCHEDULED);
+	}
+
+	/**
+	 * Callback for {@link TimingWheel#advance(long, SlotVisitor)}
+	 */
+	@FunctionalInterface
+	public interface SlotVisitor {
+
+		void visit(int slot);
+
+	}
+
+}
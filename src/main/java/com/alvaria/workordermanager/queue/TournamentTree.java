@@ -0,0 +1,117 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Winner tree over the heads of several independent queues, used to merge them in queue order.
+ *
+ * Every leaf holds the top work-order of one queue and every internal node the leaf that wins the
+ * match between its two subtrees, so the overall winner sits at the root. Replacing the head of a
+ * queue replays only the O(log k) matches on the path of its leaf. All matches are decided by
+ * one {@link WorkOrderRanking} against one as-of time, both fixed at construction.
+ */
+public final class TournamentTree {
+
+	/**
+	 * Winner of a tree whose leaves are all empty
+	 */
+	public static final int NO_WINNER = -1;
+
+	private final long asOf;
+	private final WorkOrderRanking ranking;
+	private final int capacity;
+	private final int[] nodes;
+	private final ClassTypeEnum[] types;
+	private final long[] times;
+	private final long[] ids;
+
+	/**
+	 * Creates a tree whose leaves are all empty
+	 *
+	 * @param leaves  Number of queues to merge
+	 * @param asOf    The time ranks are evaluated at, in epoch seconds
+	 * @param ranking The ranking that decides the matches
+	 */
+	public TournamentTree(final int leaves, final long asOf, final WorkOrderRanking ranking) {
+		int capacity = 1;
+		while (capacity < leaves) {
+			capacity <<= 1;
+		}
+		this.asOf = asOf;
+		this.ranking = ranking;
+		this.capacity = capacity;
+		this.nodes = new int[2 * capacity];
+		this.types = new ClassTypeEnum[leaves];
+		this.times = new long[leaves];
+		this.ids = new long[leaves];
+		Arrays.fill(nodes, NO_WINNER);
+	}
+
+	public int leaves() {
+		return types.length;
+	}
+
+	public long asOf() {
+		return asOf;
+	}
+
+	public WorkOrderRanking ranking() {
+		return ranking;
+	}
+
+	/**
+	 * Sets the head of a queue
+	 *
+	 * @param leaf      The leaf of the queue
+	 * @param classType The class type of the head
+	 * @param time      The enqueue time of the head in epoch seconds
+	 * @param id        The id of the head
+	 */
+	public void offer(final int leaf, final ClassTypeEnum classType, final long time, final long id) {
+		types[leaf] = classType;
+		times[leaf] = time;
+		ids[leaf] = id;
+		nodes[capacity + leaf] = leaf;
+		replay(leaf);
+	}
+
+	/**
+	 * Marks a queue as empty
+	 *
+	 * @param leaf The leaf of the queue
+	 */
+	public void clear(final int leaf) {
+		types[leaf] = null;
+		nodes[capacity + leaf] = NO_WINNER;
+		replay(leaf);
+	}
+
+	/**
+	 * Retrieves the queue whose head is on top of all queues
+	 *
+	 * @return The leaf of the winning queue, or {@link #NO_WINNER} if every queue is empty
+	 */
+	public int winner() {
+		return nodes[1];
+	}
+
+	private void replay(final int leaf) {
+		for (int node = (capacity + leaf) >>> 1; node > 0; node >>>= 1) {
+			nodes[node] = match(nodes[2 * node], nodes[2 * node + 1]);
+		}
+	}
+
+	private int match(final int leaf, final int otherLeaf) {
+		if (leaf == NO_WINNER) {
+			return otherLeaf;
+		}
+		if (otherLeaf == NO_WINNER) {
+			return leaf;
+		}
+		return ranking.compare(types[leaf], times[leaf], ids[leaf], types[otherLeaf], times[otherLeaf],
+				ids[otherLeaf], asOf) <= 0 ? leaf : otherLeaf;
+	}
+
+}
@@ -0,0 +1,176 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed binary min-heap of work-orders ordered by enqueue time.
+ *
+ * The heap holds slots of a {@link WorkOrderRecordStore}; ids and times are read from the store
+ * and each slot's heap index is kept in the store, which makes removal by slot O(log n) without
+ * any lookup structure of its own. Equal times fall back to the lower id so the order is
+ * deterministic.
+ *
+ * One heap holds the work-orders of a single class; see {@link WorkOrderRanking} for why ordering
+ * by time alone is enough within a class.
+ */
+public class WorkOrderHeap {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final WorkOrderRecordStore store;
+	private int[] slots = new int[DEFAULT_CAPACITY];
+	private int size;
+
+	public WorkOrderHeap(final WorkOrderRecordStore store) {
+		this.store = store;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Inserts a stored work-order in the heap
+	 *
+	 * @param slot The store slot of work-order
+	 */
+	public void add(final int slot) {
+		if (size == slots.length) {
+			slots = Arrays.copyOf(slots, size << 1);
+		}
+		final int index = size++;
+		place(slot, index);
+		siftUp(index);
+	}
+
+	/**
+	 * Inserts a batch of stored work-orders in the heap. Large batches are appended unordered and
+	 * the heap is rebuilt bottom-up in O(n), which beats sifting each entry up once the batch is
+	 * big relative to the heap.
+	 *
+	 * @param batch Store slots of the work-orders
+	 * @param count Number of slots to take from batch
+	 */
+	public void addAll(final int[] batch, final int count) {
+		final int total = size + count;
+		if (total > slots.length) {
+			slots = Arrays.copyOf(slots, Math.max(total, slots.length << 1));
+		}
+		final int log = 32 - Integer.numberOfLeadingZeros(total);
+		if ((long) count * log <= 2L * total) {
+			for (int i = 0; i < count; i++) {
+				add(batch[i]);
+			}
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			place(batch[i], size++);
+		}
+		for (int index = (size >>> 1) - 1; index >= 0; index--) {
+			siftDown(index);
+		}
+	}
+
+	/**
+	 * Retrieves, without removing, the work-order on top of the heap
+	 *
+	 * @return The store slot of the oldest work-order
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return slots[0];
+	}
+
+	/**
+	 * Retrieves and removes the work-order on top of the heap
+	 *
+	 * @return The store slot of the oldest work-order
+	 */
+	public int poll() {
+		final int slot = peek();
+		removeAt(0);
+		return slot;
+	}
+
+	/**
+	 * Removes a specific work-order from the heap
+	 *
+	 * @param slot The store slot of work-order
+	 */
+	public void remove(final int slot) {
+		final int index = store.heapIndex(slot);
+		if (index < 0 || index >= size || slots[index] != slot) {
+			throw new NoSuchElementException();
+		}
+		removeAt(index);
+	}
+
+	private void removeAt(final int index) {
+		store.setHeapIndex(slots[index], -1);
+		final int last = --size;
+		if (index != last) {
+			place(slots[last], index);
+			if (!siftUp(index)) {
+				siftDown(index);
+			}
+		}
+	}
+
+	/**
+	 * Moves the entry at index towards the root while it is older than its parent
+	 *
+	 * @param index The heap index to sift
+	 * @return true if the entry moved
+	 */
+	private boolean siftUp(int index) {
+		final int slot = slots[index];
+		final int start = index;
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if (!precedes(slot, slots[parent])) {
+				break;
+			}
+			place(slots[parent], index);
+			index = parent;
+		}
+		place(slot, index);
+		return index != start;
+	}
+
+	private void siftDown(int index) {
+		final int slot = slots[index];
+		final int half = size >>> 1;
+		while (index < half) {
+			int child = (index << 1) + 1;
+			final int right = child + 1;
+			if (right < size && precedes(slots[right], slots[child])) {
+				child = right;
+			}
+			if (!precedes(slots[child], slot)) {
+				break;
+			}
+			place(slots[child], index);
+			index = child;
+		}
+		place(slot, index);
+	}
+
+	private boolean precedes(final int slot, final int otherSlot) {
+		final long time = store.time(slot);
+		final long otherTime = store.time(otherSlot);
+		return time != otherTime ? time < otherTime : store.id(slot) < store.id(otherSlot);
+	}
+
+	private void place(final int slot, final int index) {
+		slots[index] = slot;
+		store.setHeapIndex(slot, index);
+	}
+
+}
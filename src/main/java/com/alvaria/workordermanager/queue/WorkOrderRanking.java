@@ -0,0 +1,202 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.model.AgeFunction;
+import com.alvaria.workordermanager.model.ClassRanking;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.RankingPolicy;
+
+/**
+ * Rank functions of the work-order classes and the queue order derived from them, compiled from a
+ * {@link RankingPolicy}. Instances are immutable.
+ *
+ * Ranks grow with the age of a work-order and are always evaluated against a common as-of time.
+ * Every rank function is non-decreasing in age, so within one class the oldest work-order always
+ * ranks highest, whatever the as-of time. Each class can therefore be kept ordered by enqueue
+ * time alone, and ranks only need evaluating when work-orders of different classes are compared.
+ * For the same reason a new policy never reorders a class: replacing the ranking of a queue only
+ * changes how the classes interleave, which is evaluated at the time of each call.
+ *
+ * Queue order: higher tier first, then higher rank first, then older first, then lower id first.
+ * The default policy puts Management Override in a tier of its own and ranks Normal n, Priority
+ * max(3, n log n) and VIP max(4, 2n log n), n being the age in seconds.
+ */
+public final class WorkOrderRanking {
+
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	/**
+	 * The default ranking
+	 */
+	public static final WorkOrderRanking DEFAULT = compile(null);
+
+	private final RankingPolicy policy;
+	private final int[] tiers;
+	private final RankFunction[] functions;
+
+	private WorkOrderRanking(final RankingPolicy policy, final int[] tiers, final RankFunction[] functions) {
+		this.policy = policy;
+		this.tiers = tiers;
+		this.functions = functions;
+	}
+
+	/**
+	 * Compiles a policy into rank functions. Classes and fields the policy leaves out take their
+	 * default.
+	 *
+	 * @param policy The policy, or null for the default ranking
+	 * @return The compiled ranking
+	 * @throws WorkOrderException If the policy is invalid, e.g. has a negative weight, which would
+	 *                            make a rank decrease with age
+	 */
+	public static WorkOrderRanking compile(final RankingPolicy policy) {
+		final Map<ClassTypeEnum, ClassRanking> classes = new EnumMap<>(ClassTypeEnum.class);
+		final int[] tiers = new int[CLASS_TYPES.length];
+		final RankFunction[] functions = new RankFunction[CLASS_TYPES.length];
+		for (final ClassTypeEnum type : CLASS_TYPES) {
+			final ClassRanking configured = policy == null || policy.getClasses() == null ? null
+					: policy.getClasses().get(type);
+			final ClassRanking ranking = merge(configured, defaultRanking(type));
+			validate(type, ranking);
+			classes.put(type, ranking);
+			tiers[type.ordinal()] = ranking.getTier();
+			functions[type.ordinal()] = rankFunction(ranking);
+		}
+		return new WorkOrderRanking(new RankingPolicy(classes), tiers, functions);
+	}
+
+	/**
+	 * Retrieves the policy this ranking was compiled from, with every default filled in
+	 *
+	 * @return A copy of the policy
+	 */
+	public RankingPolicy policy() {
+		final Map<ClassTypeEnum, ClassRanking> classes = new EnumMap<>(ClassTypeEnum.class);
+		policy.getClasses().forEach((type, ranking) -> classes.put(type, merge(ranking, defaultRanking(type))));
+		return new RankingPolicy(classes);
+	}
+
+	/**
+	 * Computes the rank of a work-order
+	 *
+	 * @param classType  The class type of work-order
+	 * @param ageSeconds Seconds between the enqueue time and the as-of time
+	 * @return rank of work-order
+	 */
+	public double rank(final ClassTypeEnum classType, final long ageSeconds) {
+		return functions[classType.ordinal()].rank(ageSeconds);
+	}
+
+	/**
+	 * Compares the queue order of two work-orders as of a given time
+	 *
+	 * @return a negative value if the first work-order is ahead of the second
+	 */
+	public int compare(final ClassTypeEnum classType, final long time, final long id,
+			final ClassTypeEnum otherClassType, final long otherTime, final long otherId, final long asOf) {
+		if (classType != otherClassType) {
+			final int byTier = Integer.compare(tiers[otherClassType.ordinal()], tiers[classType.ordinal()]);
+			if (byTier != 0) {
+				return byTier;
+			}
+			final int byRank = Double.compare(rank(otherClassType, asOf - otherTime), rank(classType, asOf - time));
+			if (byRank != 0) {
+				return byRank;
+			}
+		}
+		final int byTime = Long.compare(time, otherTime);
+		return byTime != 0 ? byTime : Long.compare(id, otherId);
+	}
+
+	private static ClassRanking defaultRanking(final ClassTypeEnum classType) {
+		switch (classType) {
+		case MANAGEMENT_OVERRIDE:
+			return ClassRanking.builder().tier(1).weight(1.0).ageFunction(AgeFunction.LINEAR).build();
+		case PRIORITY:
+			return ClassRanking.builder().tier(0).floor(3.0).weight(1.0).ageFunction(AgeFunction.N_LOG_N).build();
+		case VIP:
+			return ClassRanking.builder().tier(0).floor(4.0).weight(2.0).ageFunction(AgeFunction.N_LOG_N).build();
+		default:
+			return ClassRanking.builder().tier(0).weight(1.0).ageFunction(AgeFunction.LINEAR).build();
+		}
+	}
+
+	private static ClassRanking merge(final ClassRanking configured, final ClassRanking defaults) {
+		if (configured == null) {
+			return defaults;
+		}
+		return ClassRanking.builder()
+				.tier(configured.getTier() != null ? configured.getTier() : defaults.getTier())
+				.floor(configured.getFloor() != null ? configured.getFloor() : defaults.getFloor())
+				.weight(configured.getWeight() != null ? configured.getWeight() : defaults.getWeight())
+				.ageFunction(configured.getAgeFunction() != null ? configured.getAgeFunction()
+						: defaults.getAgeFunction())
+				.cap(configured.getCap() != null ? configured.getCap() : defaults.getCap())
+				.build();
+	}
+
+	private static void validate(final ClassTypeEnum type, final ClassRanking ranking) {
+		if (!Double.isFinite(ranking.getWeight()) || ranking.getWeight() < 0) {
+			throw new WorkOrderException("Weight of " + type + " must be a non-negative number");
+		}
+		if (ranking.getFloor() != null && !Double.isFinite(ranking.getFloor())
+				|| ranking.getCap() != null && !Double.isFinite(ranking.getCap())) {
+			throw new WorkOrderException("Floor and cap of " + type + " must be finite");
+		}
+		if (ranking.getFloor() != null && ranking.getCap() != null && ranking.getCap() < ranking.getFloor()) {
+			throw new WorkOrderException("Cap of " + type + " must not be below its floor");
+		}
+	}
+
+	/**
+	 * Builds the rank function of a class once, so evaluating a rank does not look at the policy
+	 */
+	private static RankFunction rankFunction(final ClassRanking ranking) {
+		final double weight = ranking.getWeight();
+		final RankFunction growth;
+		switch (ranking.getAgeFunction()) {
+		case CONSTANT:
+			growth = age -> 0;
+			break;
+		case LOG:
+			growth = age -> age <= 0 ? 0 : weight * Math.log1p(age);
+			break;
+		case N_LOG_N:
+			// n log n, taken as 0 where the logarithm is zero or undefined so the rank stays monotone
+			growth = age -> age <= 1 ? 0 : weight * (age * Math.log(age));
+			break;
+		case QUADRATIC:
+			growth = age -> age <= 0 ? 0 : weight * ((double) age * age);
+			break;
+		default:
+			growth = weight == 1 ? age -> age : age -> weight * age;
+			break;
+		}
+		final RankFunction floored;
+		if (ranking.getFloor() == null) {
+			floored = growth;
+		} else {
+			final double floor = ranking.getFloor();
+			floored = age -> Math.max(floor, growth.rank(age));
+		}
+		if (ranking.getCap() == null) {
+			return floored;
+		}
+		final double cap = ranking.getCap();
+		return age -> Math.min(cap, floored.rank(age));
+	}
+
+	/**
+	 * Rank of a work-order of one class as a function of its age in seconds
+	 */
+	@FunctionalInterface
+	private interface RankFunction {
+
+		double rank(long ageSeconds);
+
+	}
+
+}
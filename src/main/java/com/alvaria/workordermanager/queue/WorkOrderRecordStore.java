@@ -0,0 +1,203 @@
+package com.alvaria.workordermanager.queue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Compact store of the per-order state of all queued work-orders.
+ *
+ * Each work-order occupies one slot across a set of parallel primitive arrays (id, enqueue time,
+ * class type, time-to-live and heap index), and an id to slot index gives O(1) lookup. Slots released by
+ * dequeue or delete are chained into a free list and reused, so the store grows with the peak
+ * queue depth rather than with the number of work-orders ever enqueued.
+ */
+public class WorkOrderRecordStore {
+
+	/**
+	 * Slot returned by {@link #slotOf(long)} when the id is not stored
+	 */
+	public static final int NO_SLOT = LongIntHashMap.NO_VALUE;
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	private long[] ids;
+	private long[] times;
+	private int[] nanos;
+	private byte[] classTypes;
+	private int[] timesToLive;
+	private int[] heapIndexes;
+	private final LongIntHashMap slotIndex;
+	private int highWaterMark;
+	private int freeHead = NO_SLOT;
+	private int size;
+
+	public WorkOrderRecordStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public WorkOrderRecordStore(final int initialCapacity) {
+		final int capacity = Math.max(DEFAULT_CAPACITY, initialCapacity);
+		this.ids = new long[capacity];
+		this.times = new long[capacity];
+		this.nanos = new int[capacity];
+		this.classTypes = new byte[capacity];
+		this.timesToLive = new int[capacity];
+		this.heapIndexes = new int[capacity];
+		this.slotIndex = new LongIntHashMap(capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Retrieves the number of slots allocated so far, live or free
+	 *
+	 * @return The slot capacity in use
+	 */
+	public int slotCount() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Retrieves the slot of a work-order id
+	 *
+	 * @param id The id of work-order
+	 * @return The slot of id, or {@link #NO_SLOT} if it is not stored
+	 */
+	public int slotOf(final long id) {
+		return slotIndex.get(id);
+	}
+
+	public boolean contains(final long id) {
+		return slotIndex.containsKey(id);
+	}
+
+	/**
+	 * Stores a new work-order without a time-to-live of its own
+	 *
+	 * @param id        The id of work-order
+	 * @param time      The enqueue time of work-order in epoch seconds
+	 * @param nano      The nano-of-second of the enqueue time
+	 * @param classType The class type of work-order
+	 * @return The slot holding the work-order
+	 */
+	public int allocate(final long id, final long time, final int nano, final ClassTypeEnum classType) {
+		return allocate(id, time, nano, classType, 0);
+	}
+
+	/**
+	 * Stores a new work-order
+	 *
+	 * @param id         The id of work-order
+	 * @param time       The enqueue time of work-order in epoch seconds
+	 * @param nano       The nano-of-second of the enqueue time
+	 * @param classType  The class type of work-order
+	 * @param timeToLive Seconds the work-order may wait, or 0 if it has none of its own
+	 * @return The slot holding the work-order
+	 */
+	public int allocate(final long id, final long time, final int nano, final ClassTypeEnum classType,
+			final int timeToLive) {
+		if (slotIndex.containsKey(id)) {
+			throw new IllegalStateException("Id already stored: " + id);
+		}
+		final int slot;
+		if (freeHead != NO_SLOT) {
+			slot = freeHead;
+			freeHead = heapIndexes[slot];
+		} else {
+			if (highWaterMark == ids.length) {
+				grow();
+			}
+			slot = highWaterMark++;
+		}
+		ids[slot] = id;
+		times[slot] = time;
+		nanos[slot] = nano;
+		classTypes[slot] = (byte) classType.ordinal();
+		timesToLive[slot] = timeToLive;
+		heapIndexes[slot] = -1;
+		slotIndex.put(id, slot);
+		size++;
+		return slot;
+	}
+
+	/**
+	 * Removes a work-order and makes its slot available for reuse
+	 *
+	 * @param slot The slot of the work-order
+	 */
+	public void release(final int slot) {
+		if (slotIndex.remove(ids[slot]) != slot) {
+			throw new NoSuchElementException();
+		}
+		heapIndexes[slot] = freeHead;
+		freeHead = slot;
+		size--;
+	}
+
+	public long id(final int slot) {
+		return ids[slot];
+	}
+
+	public long time(final int slot) {
+		return times[slot];
+	}
+
+	public int nano(final int slot) {
+		return nanos[slot];
+	}
+
+	public ClassTypeEnum classType(final int slot) {
+		return CLASS_TYPES[classTypes[slot]];
+	}
+
+	public int timeToLive(final int slot) {
+		return timesToLive[slot];
+	}
+
+	public int heapIndex(final int slot) {
+		return heapIndexes[slot];
+	}
+
+	public void setHeapIndex(final int slot, final int heapIndex) {
+		heapIndexes[slot] = heapIndex;
+	}
+
+	/**
+	 * Visits every stored work-order, in slot order
+	 *
+	 * @param visitor Receives each work-order
+	 */
+	public void forEach(final RecordVisitor visitor) {
+		for (int slot = 0; slot < highWaterMark; slot++) {
+			if (slotIndex.get(ids[slot]) == slot) {
+				visitor.visit(ids[slot], times[slot], nanos[slot], CLASS_TYPES[classTypes[slot]], timesToLive[slot]);
+			}
+		}
+	}
+
+	private void grow() {
+		final int capacity = ids.length << 1;
+		ids = Arrays.copyOf(ids, capacity);
+		times = Arrays.copyOf(times, capacity);
+		nanos = Arrays.copyOf(nanos, capacity);
+		classTypes = Arrays.copyOf(classTypes, capacity);
+		timesToLive = Arrays.copyOf(timesToLive, capacity);
+		heapIndexes = Arrays.copyOf(heapIndexes, capacity);
+	}
+
+	/**
+	 * Callback for {@link WorkOrderRecordStore#forEach(RecordVisitor)}
+	 */
+	@FunctionalInterface
+	public interface RecordVisitor {
+
+		void visit(long id, long time, int nano, ClassTypeEnum classType, int timeToLive);
+
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.alvaria.workordermanager.ranking;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.alvaria.workordermanager.model.ClassRanking;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Ranking policy the queue starts with, bound from work-order-manager.ranking.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.ranking")
+@Getter
+@Setter
+public class RankingProperties {
+
+	/**
+	 * Ranking per class type, e.g. work-order-manager.ranking.classes.vip.weight=3; classes and
+	 * fields left out keep their default
+	 */
+	private Map<ClassTypeEnum, ClassRanking> classes = new EnumMap<>(ClassTypeEnum.class);
+
+}
@@ -0,0 +1,61 @@
+package com.alvaria.workordermanager.ranking;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.model.RankingPolicy;
+import com.alvaria.workordermanager.queue.WorkOrderRanking;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+/**
+ * The ranking policy of all partitions: loaded from configuration on startup and replaceable at
+ * runtime. A policy is compiled once into rank functions, and replacing it never re-sorts a
+ * queue (see {@link WorkOrderRanking}).
+ */
+@Component
+@EnableConfigurationProperties(RankingProperties.class)
+public class WorkOrderRankingPolicy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderRankingPolicy.class);
+
+	private final WorkOrderPartitionServiceImpl workOrderPartitionService;
+	private final RankingProperties properties;
+
+	@Autowired
+	public WorkOrderRankingPolicy(final WorkOrderPartitionServiceImpl workOrderPartitionService,
+			final RankingProperties properties) {
+		this.workOrderPartitionService = workOrderPartitionService;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	public void load() {
+		update(new RankingPolicy(properties.getClasses()));
+	}
+
+	/**
+	 * @return The policy in effect, with every default filled in
+	 */
+	public RankingPolicy get() {
+		return workOrderPartitionService.getRanking().policy();
+	}
+
+	/**
+	 * Compiles a policy and makes every partition use it
+	 *
+	 * @param policy The policy; classes and fields left out take their default
+	 * @return The policy in effect, with every default filled in
+	 */
+	public synchronized RankingPolicy update(final RankingPolicy policy) {
+		final WorkOrderRanking ranking = WorkOrderRanking.compile(policy);
+		workOrderPartitionService.setRanking(ranking);
+		LOGGER.info("Ranking policy updated");
+		return ranking.policy();
+	}
+
+}
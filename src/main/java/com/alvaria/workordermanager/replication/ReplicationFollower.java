@@ -0,0 +1,199 @@
+package com.alvaria.workordermanager.replication;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.persistence.OperationLog;
+import com.alvaria.workordermanager.queue.WorkOrderRecordStore;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Replica side of replication: follows the stream of a primary and applies it to the local queue.
+ *
+ * On every connect the replica receives a full copy of the primary's queue and makes its own
+ * queue match it, then applies the mutations that follow. Records that are already buffered are
+ * applied as one batch under a single write lock. If the primary goes quiet for longer than
+ * timeout-millis or the connection fails, the replica keeps serving what it has and reconnects.
+ */
+final class ReplicationFollower implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationFollower.class);
+	private static final int BATCH_RECORDS = 1024;
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService;
+	private final ReplicationProperties properties;
+	private final String host;
+	private final int port;
+	private final Thread follower;
+	private final byte[][] batch = new byte[BATCH_RECORDS][OperationLog.RECORD_SIZE];
+	private final CRC32C checksum = new CRC32C();
+	private volatile Socket socket;
+	private volatile boolean running = true;
+	private volatile boolean synced;
+	private volatile long appliedRecords;
+
+	ReplicationFollower(final WorkOrderManagerServiceImpl workOrderManagerService,
+			final ReplicationProperties properties, final String host, final int port) {
+		this.workOrderManagerService = workOrderManagerService;
+		this.properties = properties;
+		this.host = host;
+		this.port = port;
+		this.follower = new Thread(this::follow, "work-order-replication-follower");
+		this.follower.setDaemon(true);
+		this.follower.start();
+	}
+
+	String primary() {
+		return host + ":" + port;
+	}
+
+	/**
+	 * @return true while the replica holds the primary's queue and receives its mutations
+	 */
+	boolean isSynced() {
+		return synced;
+	}
+
+	/**
+	 * @return The number of mutation records applied since the last copy was received
+	 */
+	long appliedRecords() {
+		return appliedRecords;
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		final Socket current = socket;
+		if (current != null) {
+			current.close();
+		}
+		follower.interrupt();
+		try {
+			follower.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void follow() {
+		while (running) {
+			try (Socket connection = new Socket()) {
+				socket = connection;
+				if (!running) {
+					return;
+				}
+				connection.connect(new InetSocketAddress(host, port), (int) properties.getTimeoutMillis());
+				connection.setSoTimeout((int) properties.getTimeoutMillis());
+				LOGGER.info("Following primary {}", primary());
+				stream(new DataInputStream(new BufferedInputStream(connection.getInputStream(), BUFFER_BYTES)));
+			} catch (final IOException | RuntimeException e) {
+				if (running) {
+					LOGGER.warn("Lost primary {}: {}", primary(), e.toString());
+				}
+			} finally {
+				synced = false;
+			}
+			try {
+				Thread.sleep(properties.getHeartbeatIntervalMillis());
+			} catch (final InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void stream(final DataInputStream input) throws IOException {
+		if (input.readInt() != ReplicationStream.MAGIC || input.readInt() != ReplicationStream.VERSION) {
+			throw new IOException("Not a compatible replication stream");
+		}
+
+		final WorkOrderRecordStore copy = new WorkOrderRecordStore();
+		final OperationLog.Handler copier = new OperationLog.Handler() {
+
+			@Override
+			public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+					final int timeToLive) {
+				if (!copy.contains(id)) {
+					copy.allocate(id, time, nano, classType, timeToLive);
+				}
+			}
+
+			@Override
+			public void removed(final long id) {
+				final int slot = copy.slotOf(id);
+				if (slot != WorkOrderRecordStore.NO_SLOT) {
+					copy.release(slot);
+				}
+			}
+
+		};
+		final byte[] record = batch[0];
+		while (true) {
+			input.readFully(record);
+			if (record[0] == ReplicationStream.SYNCED) {
+				break;
+			}
+			if (record[0] != ReplicationStream.HEARTBEAT && !OperationLog.decode(record, checksum, copier)) {
+				throw new IOException("Corrupt replication record");
+			}
+		}
+		workOrderManagerService.synchronize(copy);
+		appliedRecords = 0;
+		synced = true;
+		LOGGER.info("Synced {} work-orders from primary {}", copy.size(), primary());
+
+		while (running) {
+			int count = 0;
+			do {
+				input.readFully(batch[count]);
+				if (batch[count][0] != ReplicationStream.HEARTBEAT) {
+					count++;
+				}
+			} while (count < BATCH_RECORDS && input.available() >= OperationLog.RECORD_SIZE);
+			if (count > 0) {
+				apply(count);
+			}
+		}
+	}
+
+	/**
+	 * Applies a batch of mutation records under a single write lock
+	 */
+	private void apply(final int count) throws IOException {
+		final boolean[] corrupt = new boolean[1];
+		workOrderManagerService.applyReplicated(listener -> {
+			final OperationLog.Handler handler = new OperationLog.Handler() {
+
+				@Override
+				public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+						final int timeToLive) {
+					listener.enqueued(id, time, nano, classType, timeToLive);
+				}
+
+				@Override
+				public void removed(final long id) {
+					listener.removed(id);
+				}
+
+			};
+			for (int i = 0; i < count && !corrupt[0]; i++) {
+				corrupt[0] = !OperationLog.decode(batch[i], checksum, handler);
+			}
+		});
+		if (corrupt[0]) {
+			throw new IOException("Corrupt replication record");
+		}
+		appliedRecords += count;
+	}
+
+}
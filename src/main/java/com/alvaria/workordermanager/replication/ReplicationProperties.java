@@ -0,0 +1,60 @@
+package com.alvaria.workordermanager.replication;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.alvaria.workordermanager.model.ReplicationRole;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of primary/replica replication, bound from work-order-manager.replication.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.replication")
+@Getter
+@Setter
+public class ReplicationProperties {
+
+	/**
+	 * Role the instance starts in; replication is off if not set
+	 */
+	private ReplicationRole role;
+
+	/**
+	 * Address a primary listens on for replicas
+	 */
+	private String address = "127.0.0.1";
+
+	/**
+	 * Port a primary listens on for replicas; 0 picks a free one
+	 */
+	private int port = 7071;
+
+	/**
+	 * Host of the primary a replica follows
+	 */
+	private String primaryHost = "127.0.0.1";
+
+	/**
+	 * Replication port of the primary a replica follows
+	 */
+	private int primaryPort = 7071;
+
+	/**
+	 * Time after which an idle primary sends a heartbeat, and between reconnect attempts of a
+	 * replica
+	 */
+	private long heartbeatIntervalMillis = 1000;
+
+	/**
+	 * Time without any data after which a replica considers its primary lost and reconnects
+	 */
+	private long timeoutMillis = 5000;
+
+	/**
+	 * Unsent bytes beyond its initial copy after which a primary drops a replica that cannot keep
+	 * up; the replica reconnects and starts over with a fresh copy
+	 */
+	private int maxBacklogBytes = 64 << 20;
+
+}
@@ -0,0 +1,277 @@
+package com.alvaria.workordermanager.replication;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.persistence.OperationLog;
+import com.alvaria.workordermanager.service.WorkOrderMutationListener;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Primary side of replication: accepts replicas and streams the mutations of the queue to them.
+ *
+ * A new replica gets a copy of the queue taken by a checkpoint, which holds the write lock, and
+ * joins the stream in the same critical section, so it sees every later mutation exactly once.
+ * Mutation records are copied into a buffer per replica while the queue holds its write lock; a
+ * sender thread per replica writes them to the socket, so a slow replica never blocks the queue.
+ * One that falls more than max-backlog-bytes behind is dropped and has to reconnect.
+ */
+final class ReplicationSource implements WorkOrderMutationListener, Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationSource.class);
+	private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService;
+	private final ReplicationProperties properties;
+	private final ServerSocket serverSocket;
+	private final Thread acceptor;
+	private final byte[] record = new byte[OperationLog.RECORD_SIZE];
+	private final CRC32C checksum = new CRC32C();
+	private volatile ReplicaLink[] replicas = new ReplicaLink[0];
+	private ReplicaLink joining;
+	private volatile boolean running = true;
+
+	ReplicationSource(final WorkOrderManagerServiceImpl workOrderManagerService,
+			final ReplicationProperties properties) throws IOException {
+		this.workOrderManagerService = workOrderManagerService;
+		this.properties = properties;
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(new InetSocketAddress(properties.getAddress(), properties.getPort()));
+		workOrderManagerService.addMutationListener(this);
+		this.acceptor = new Thread(this::accept, "work-order-replication-acceptor");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+		LOGGER.info("Replication listener started on {}", serverSocket.getLocalSocketAddress());
+	}
+
+	int getLocalPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return The number of replicas that have their copy and follow the stream
+	 */
+	int replicaCount() {
+		return replicas.length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		workOrderManagerService.removeMutationListener(this);
+		serverSocket.close();
+		for (final ReplicaLink replica : replicas) {
+			replica.close();
+		}
+	}
+
+	@Override
+	public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+			final int timeToLive) {
+		OperationLog.encodeEnqueued(record, checksum, id, time, nano, classType, timeToLive);
+		broadcast();
+	}
+
+	@Override
+	public void removed(final long id) {
+		OperationLog.encodeRemoved(record, checksum, id);
+		broadcast();
+	}
+
+	@Override
+	public void checkpointed() {
+		// Checkpoints taken by others, e.g. persistence snapshots, have no replica joining
+		if (Thread.currentThread() != acceptor || joining == null) {
+			return;
+		}
+		final ReplicaLink replica = joining;
+		joining = null;
+		ReplicationStream.encodeControl(record, ReplicationStream.SYNCED);
+		replica.append(record);
+		replica.startStreaming();
+		synchronized (this) {
+			replicas = Arrays.copyOf(replicas, replicas.length + 1);
+			replicas[replicas.length - 1] = replica;
+		}
+	}
+
+	private void broadcast() {
+		for (final ReplicaLink replica : replicas) {
+			replica.append(record);
+		}
+	}
+
+	private void accept() {
+		while (running) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (final IOException e) {
+				if (running) {
+					LOGGER.error("Replication listener failed", e);
+				}
+				return;
+			}
+			try {
+				join(new ReplicaLink(socket));
+			} catch (final IOException e) {
+				LOGGER.warn("Could not start replicating to {}", socket.getRemoteSocketAddress(), e);
+				closeQuietly(socket);
+			}
+		}
+	}
+
+	/**
+	 * Copies the queue to a new replica and lets it join the stream
+	 */
+	private void join(final ReplicaLink replica) {
+		// The copy is made and the replica joins while the checkpoint holds the write lock
+		joining = replica;
+		workOrderManagerService.checkpoint((id, time, nano, classType, timeToLive) -> {
+			OperationLog.encodeEnqueued(record, checksum, id, time, nano, classType, timeToLive);
+			replica.append(record);
+		});
+		LOGGER.info("Replica {} joined", replica.socket.getRemoteSocketAddress());
+	}
+
+	private synchronized void leave(final ReplicaLink replica) {
+		replicas = Arrays.stream(replicas)
+				.filter(registered -> registered != replica)
+				.toArray(ReplicaLink[]::new);
+		LOGGER.info("Replica {} left", replica.socket.getRemoteSocketAddress());
+	}
+
+	private static void closeQuietly(final Socket socket) {
+		try {
+			socket.close();
+		} catch (final IOException e) {
+			LOGGER.debug("Could not close a replica connection", e);
+		}
+	}
+
+	/**
+	 * Connection to one replica with the records not yet sent to it
+	 */
+	private final class ReplicaLink implements Runnable {
+
+		private final Socket socket;
+		private final OutputStream output;
+		private byte[] pending = new byte[INITIAL_BUFFER_BYTES];
+		private byte[] sending = new byte[INITIAL_BUFFER_BYTES];
+		private int pendingBytes;
+		private long limit = Long.MAX_VALUE;
+		private boolean closed;
+
+		private ReplicaLink(final Socket socket) throws IOException {
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			this.output = socket.getOutputStream();
+			final DataOutputStream header = new DataOutputStream(output);
+			header.writeInt(ReplicationStream.MAGIC);
+			header.writeInt(ReplicationStream.VERSION);
+		}
+
+		/**
+		 * Buffers a record. Called while the queue holds its write lock.
+		 */
+		private synchronized void append(final byte[] bytes) {
+			if (closed) {
+				return;
+			}
+			if (pendingBytes + bytes.length > limit) {
+				LOGGER.warn("Dropping replica {}, which is more than {} bytes behind",
+						socket.getRemoteSocketAddress(), properties.getMaxBacklogBytes());
+				closed = true;
+				notifyAll();
+				return;
+			}
+			if (pendingBytes + bytes.length > pending.length) {
+				pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingBytes + bytes.length));
+			}
+			System.arraycopy(bytes, 0, pending, pendingBytes, bytes.length);
+			if (pendingBytes == 0) {
+				notifyAll();
+			}
+			pendingBytes += bytes.length;
+		}
+
+		/**
+		 * Starts sending once the copy of the queue is buffered. Called while the queue holds its
+		 * write lock.
+		 */
+		private synchronized void startStreaming() {
+			limit = (long) pendingBytes + properties.getMaxBacklogBytes();
+			final Thread sender = new Thread(this, "work-order-replication-" + socket.getRemoteSocketAddress());
+			sender.setDaemon(true);
+			sender.start();
+		}
+
+		private synchronized void close() {
+			closed = true;
+			notifyAll();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final int bytes = takePending();
+					if (bytes < 0) {
+						return;
+					}
+					output.write(sending, 0, bytes);
+					output.flush();
+				}
+			} catch (final SocketException e) {
+				LOGGER.debug("Replica {} disconnected", socket.getRemoteSocketAddress(), e);
+			} catch (final IOException | InterruptedException e) {
+				LOGGER.warn("Replicating to {} failed", socket.getRemoteSocketAddress(), e);
+			} finally {
+				close();
+				closeQuietly(socket);
+				leave(this);
+			}
+		}
+
+		/**
+		 * Waits for records, or a heartbeat interval, and swaps them into the sending buffer
+		 *
+		 * @return The number of bytes to send, or -1 once the link is closed
+		 */
+		private synchronized int takePending() throws InterruptedException {
+			if (pendingBytes == 0 && !closed) {
+				wait(properties.getHeartbeatIntervalMillis());
+			}
+			if (closed) {
+				return -1;
+			}
+			if (pendingBytes == 0) {
+				final byte[] heartbeat = new byte[OperationLog.RECORD_SIZE];
+				ReplicationStream.encodeControl(heartbeat, ReplicationStream.HEARTBEAT);
+				append(heartbeat);
+			}
+			final byte[] swapped = sending;
+			sending = pending;
+			pending = swapped;
+			final int bytes = pendingBytes;
+			pendingBytes = 0;
+			// Once the copy of the queue is on its way, only the backlog behind it counts
+			limit = properties.getMaxBacklogBytes();
+			return bytes;
+		}
+
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.alvaria.workordermanager.replication;
+
+import java.util.Arrays;
+
+import com.alvaria.workordermanager.persistence.OperationLog;
+
+/**
+ * Format of the stream a primary sends to each replica.
+ *
+ * The stream starts with a header (magic and version, 4 bytes each), followed by records of
+ * {@link OperationLog#RECORD_SIZE} bytes: first an enqueue record for every work-order queued when
+ * the replica connected, then a SYNCED record, then the mutations of the primary in the order they
+ * were applied. The mutation records are those of the {@link OperationLog}. HEARTBEAT records are
+ * sent while the primary is idle, so a replica can tell a quiet primary from a lost one.
+ */
+final class ReplicationStream {
+
+	static final int MAGIC = 0x574F5152;
+	static final int VERSION = 2;
+	static final byte SYNCED = 0x10;
+	static final byte HEARTBEAT = 0x11;
+
+	private ReplicationStream() {
+	}
+
+	/**
+	 * Encodes a control record
+	 *
+	 * @param record    Array of {@link OperationLog#RECORD_SIZE} bytes receiving the record
+	 * @param operation SYNCED or HEARTBEAT
+	 */
+	static void encodeControl(final byte[] record, final byte operation) {
+		Arrays.fill(record, (byte) 0);
+		record[0] = operation;
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.alvaria.workordermanager.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.model.ReplicationRole;
+import com.alvaria.workordermanager.model.ReplicationStatus;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+/**
+ * Primary/replica replication of the default partition, enabled by setting
+ * work-order-manager.replication.role to primary or replica. No other partition can be created
+ * while replication is enabled.
+ *
+ * A primary takes all mutations and streams them to its replicas (see {@link ReplicationSource}).
+ * A replica keeps its queue read-only, so enqueue, dequeue and delete are rejected while getIds,
+ * getPosition and computeWaitingTime are served from its copy (see {@link ReplicationFollower}).
+ * A replica can be promoted when its primary fails, after which it takes mutations and accepts
+ * replicas of its own; any instance can be told to follow another primary.
+ */
+@Component
+@ConditionalOnProperty(prefix = "work-order-manager.replication", name = "role")
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class WorkOrderReplication {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderReplication.class);
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService;
+	private final WorkOrderPartitionServiceImpl workOrderPartitionService;
+	private final ReplicationProperties properties;
+	private ReplicationSource source;
+	private ReplicationFollower follower;
+
+	@Autowired
+	public WorkOrderReplication(final WorkOrderManagerServiceImpl workOrderManagerService,
+			final WorkOrderPartitionServiceImpl workOrderPartitionService, final ReplicationProperties properties) {
+		this.workOrderManagerService = workOrderManagerService;
+		this.workOrderPartitionService = workOrderPartitionService;
+		this.properties = properties;
+	}
+
+	/**
+	 * Starts in the configured role
+	 *
+	 * @throws IOException If a primary cannot bind its replication port
+	 */
+	@PostConstruct
+	public synchronized void start() throws IOException {
+		workOrderPartitionService.restrictToDefaultPartition("Replication");
+		if (properties.getRole() == ReplicationRole.REPLICA) {
+			startFollowing(properties.getPrimaryHost(), properties.getPrimaryPort());
+		} else {
+			source = new ReplicationSource(workOrderManagerService, properties);
+		}
+	}
+
+	@PreDestroy
+	public synchronized void stop() throws IOException {
+		closeSource();
+		closeFollower();
+	}
+
+	/**
+	 * Turns a replica into a primary: stops following, accepts mutations and starts accepting
+	 * replicas. Does nothing on a primary.
+	 *
+	 * @return The new status
+	 */
+	public synchronized ReplicationStatus promote() {
+		if (source == null) {
+			try {
+				closeFollower();
+				source = new ReplicationSource(workOrderManagerService, properties);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			workOrderManagerService.setReadOnly(false);
+			LOGGER.info("Promoted to primary");
+		}
+		return status();
+	}
+
+	/**
+	 * Turns the instance into a replica of another primary, e.g. a former primary that rejoins
+	 * after a replica was promoted, or a replica of a failed primary. The local queue is replaced
+	 * by the copy of the new primary.
+	 *
+	 * @param host Host of the primary
+	 * @param port Replication port of the primary
+	 * @return The new status
+	 */
+	public synchronized ReplicationStatus follow(final String host, final int port) {
+		if (host == null || host.isEmpty() || port <= 0 || port > 0xFFFF) {
+			throw new WorkOrderException("A primary host and port are required");
+		}
+		// Read-only first, so no mutation slips in after the replicas were disconnected
+		workOrderManagerService.setReadOnly(true);
+		try {
+			closeSource();
+			closeFollower();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		startFollowing(host, port);
+		return status();
+	}
+
+	public synchronized ReplicationStatus status() {
+		if (source != null) {
+			return ReplicationStatus.builder()
+					.role(ReplicationRole.PRIMARY)
+					.replicas(source.replicaCount())
+					.build();
+		}
+		return ReplicationStatus.builder()
+				.role(ReplicationRole.REPLICA)
+				.primary(follower.primary())
+				.synced(follower.isSynced())
+				.appliedRecords(follower.appliedRecords())
+				.build();
+	}
+
+	/**
+	 * @return The port the replication listener of a primary is bound to, or -1 on a replica
+	 */
+	public synchronized int getLocalPort() {
+		return source == null ? -1 : source.getLocalPort();
+	}
+
+	private void startFollowing(final String host, final int port) {
+		workOrderManagerService.setReadOnly(true);
+		follower = new ReplicationFollower(workOrderManagerService, properties, host, port);
+	}
+
+	private void closeSource() throws IOException {
+		if (source != null) {
+			source.close();
+			source = null;
+		}
+	}
+
+	private void closeFollower() throws IOException {
+		final Closeable current = follower;
+		follower = null;
+		if (current != null) {
+			current.close();
+		}
+	}
+
+}
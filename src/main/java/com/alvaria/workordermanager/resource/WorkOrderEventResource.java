@@ -0,0 +1,28 @@
+package com.alvaria.workordermanager.resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.alvaria.workordermanager.events.WorkOrderEventFeed;
+
+@RestController
+@RequestMapping(path = "/work-order-manager")
+public class WorkOrderEventResource {
+
+	private final WorkOrderEventFeed workOrderEventFeed;
+
+	@Autowired
+	public WorkOrderEventResource(final WorkOrderEventFeed workOrderEventFeed) {
+		this.workOrderEventFeed = workOrderEventFeed;
+	}
+
+	@GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter events() {
+		return this.workOrderEventFeed.subscribe();
+	}
+
+}
@@ -1,5 +1,14 @@
 package com.alvaria.workordermanager.resource;
 
+import static com.alvaria.workordermanager.converter.WorkOrderBinaryMessageConverter.WORK_ORDER_VALUE;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,11 +21,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
 import com.alvaria.workordermanager.model.WorkOrderRequest;
 import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.PendingDequeue;
 import com.alvaria.workordermanager.service.WorkOrderManagerService;
+import com.alvaria.workordermanager.service.WorkOrderPartitionService;
 
 @RestController
 @RequestMapping(path = "/work-order-manager",
@@ -31,21 +48,112 @@ public class WorkOrderManagerResource {
 		this.workOrderManagerService = workOrderManagerService;
 	}
 
-	@PostMapping("/enqueue")
+	@PostMapping(path = "/enqueue",
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
 	public ResponseEntity<WorkOrderResponse> enqueue(@RequestBody final WorkOrderRequest workOrderRequest) {
+		requireDefaultPartition(workOrderRequest);
 		final WorkOrderResponse workOrderResponse = this.workOrderManagerService.enqueue(workOrderRequest);
 		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
 	}
 
-	@PostMapping("/dequeue")
+	@PostMapping(path = "/dequeue",
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
 	public ResponseEntity<WorkOrderResponse> dequeue() {
 		final WorkOrderResponse workOrderResponse = this.workOrderManagerService.dequeue();
 		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
 	}
 
-	@GetMapping("/getIds")
-	public ResponseEntity<List<WorkOrderResponse>> getIds() {
-		final List<WorkOrderResponse> responseList = this.workOrderManagerService.getIds();
+	/**
+	 * Long-poll dequeue: if the queue is empty the request waits up to waitMs for a work-order
+	 * without holding a servlet thread, and waiting requests are served in arrival order.
+	 */
+	@PostMapping(path = "/dequeue", params = { "waitMs", "!leaseMs" },
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
+	public DeferredResult<ResponseEntity<WorkOrderResponse>> dequeue(@RequestParam final long waitMs) {
+		return dequeueWithin(this.workOrderManagerService, waitMs);
+	}
+
+	/**
+	 * Starts a long-poll dequeue of a queue, shared with the partitioned endpoint
+	 */
+	static DeferredResult<ResponseEntity<WorkOrderResponse>> dequeueWithin(
+			final WorkOrderManagerService workOrderManagerService, final long waitMs) {
+		if (waitMs < 0) {
+			throw new WorkOrderException("waitMs must not be negative");
+		}
+
+		// A timeout of 0 would mean no timeout at all to the servlet container
+		final DeferredResult<ResponseEntity<WorkOrderResponse>> deferredResult = new DeferredResult<>(
+				Math.max(1, waitMs));
+		final PendingDequeue pendingDequeue = workOrderManagerService.dequeueWhenAvailable(
+				workOrderResponse -> deferredResult.setResult(new ResponseEntity<>(workOrderResponse, HttpStatus.OK)));
+		deferredResult.onTimeout(() -> {
+			if (workOrderManagerService.cancelDequeue(pendingDequeue)) {
+				deferredResult.setErrorResult(new WorkOrderException("Queue is empty"));
+			} else {
+				// Served just before the timeout; answer with the work-order rather than lose it
+				deferredResult.setResult(new ResponseEntity<>(pendingDequeue.getWorkOrder(), HttpStatus.OK));
+			}
+		});
+		// Stop waiting when the request ends otherwise, e.g. the client went away
+		deferredResult.onCompletion(() -> workOrderManagerService.cancelDequeue(pendingDequeue));
+		return deferredResult;
+	}
+
+	/**
+	 * Lease dequeue: the work-order goes back into the queue unless it is acknowledged with
+	 * POST /ack/{id} within leaseMs. It does not wait, so it cannot be combined with waitMs.
+	 */
+	@PostMapping(path = "/dequeue", params = "leaseMs",
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
+	public ResponseEntity<WorkOrderResponse> lease(@RequestParam final long leaseMs,
+			@RequestParam(required = false) final Long waitMs) {
+		if (waitMs != null) {
+			throw new WorkOrderException("leaseMs cannot be combined with waitMs");
+		}
+		final WorkOrderResponse workOrderResponse = this.workOrderManagerService.lease(Duration.ofMillis(leaseMs));
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@PostMapping("/ack/{id}")
+	public ResponseEntity<WorkOrderResponse> acknowledge(@PathVariable final Long id) {
+		final WorkOrderResponse workOrderResponse = this.workOrderManagerService.acknowledge(id);
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@PostMapping(path = "/enqueue/batch",
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
+	public ResponseEntity<List<WorkOrderResponse>> enqueueBatch(
+			@RequestBody final List<WorkOrderRequest> workOrderRequests) {
+		for (final WorkOrderRequest workOrderRequest : workOrderRequests) {
+			if (workOrderRequest != null) {
+				requireDefaultPartition(workOrderRequest);
+			}
+		}
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.enqueueBatch(workOrderRequests);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@PostMapping(path = "/dequeue/batch",
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
+	public ResponseEntity<List<WorkOrderResponse>> dequeueBatch(@RequestParam final int count) {
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.dequeueBatch(count);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@GetMapping(path = "/getIds",
+			consumes = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE },
+			produces = { MediaType.APPLICATION_JSON_VALUE, WORK_ORDER_VALUE })
+	public ResponseEntity<List<WorkOrderResponse>> getIds(@RequestParam(defaultValue = "0") final int offset,
+			@RequestParam(required = false) final Integer limit) {
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.getIds(offset,
+				limit == null ? Integer.MAX_VALUE : limit);
 		return new ResponseEntity<>(responseList, HttpStatus.OK);
 	}
 
@@ -61,10 +169,70 @@ public class WorkOrderManagerResource {
 		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
 	}
 
+	@GetMapping("/expired")
+	public ResponseEntity<List<WorkOrderResponse>> getExpired() {
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.getExpired();
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@PostMapping("/query")
+	public ResponseEntity<List<WorkOrderResponse>> query(@RequestBody final WorkOrderQuery query) {
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.query(query);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
 	@PostMapping("/compute-waiting-time")
 	public ResponseEntity<List<WorkOrderResponse>> compute(@RequestBody final WorkOrderRequest workOrderRequest) {
+		requireDefaultPartition(workOrderRequest);
 		final List<WorkOrderResponse> responseList = this.workOrderManagerService.computeWaitingTime(workOrderRequest);
 		return new ResponseEntity<>(responseList, HttpStatus.OK);
 	}
 
+	@PostMapping(path = "/compute-waiting-time/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamWaitingTime(
+			@RequestBody final WorkOrderRequest workOrderRequest) {
+		requireDefaultPartition(workOrderRequest);
+		final StreamingResponseBody responseBody = outputStream -> {
+			final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+			try {
+				this.workOrderManagerService.computeWaitingTime(workOrderRequest, (id, waitingTime) -> {
+					try {
+						writer.write("{\"id\":");
+						writer.write(Long.toString(id));
+						writer.write(",\"waitingTime\":");
+						writer.write(Long.toString(waitingTime));
+						writer.write("}\n");
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (final UncheckedIOException e) {
+				throw e.getCause();
+			}
+			writer.flush();
+		};
+		return new ResponseEntity<>(responseBody, HttpStatus.OK);
+	}
+
+	@PostMapping("/compute-waiting-time/statistics")
+	public ResponseEntity<List<WaitingTimeStatistics>> computeStatistics(
+			@RequestBody final WorkOrderRequest workOrderRequest) {
+		requireDefaultPartition(workOrderRequest);
+		final List<WaitingTimeStatistics> statisticsList = this.workOrderManagerService
+				.computeWaitingTimeStatistics(workOrderRequest);
+		return new ResponseEntity<>(statisticsList, HttpStatus.OK);
+	}
+
+	/**
+	 * These endpoints serve the default partition only; a work-order of another partition must be
+	 * sent to /work-order-manager/partitions/{partition}/..., rather than land in the wrong queue
+	 */
+	private static void requireDefaultPartition(final WorkOrderRequest workOrderRequest) {
+		if (workOrderRequest.getPartition() != null
+				&& !WorkOrderPartitionService.DEFAULT_PARTITION.equals(workOrderRequest.getPartition())) {
+			throw new WorkOrderException("Work-orders of partition " + workOrderRequest.getPartition()
+					+ " must be sent to /work-order-manager/partitions/" + workOrderRequest.getPartition());
+		}
+	}
+
 }
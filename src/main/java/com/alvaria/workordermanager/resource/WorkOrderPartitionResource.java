@@ -0,0 +1,185 @@
+package com.alvaria.workordermanager.resource;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.WorkOrderPartitionService;
+
+@RestController
+@RequestMapping(path = "/work-order-manager",
+		consumes = MediaType.APPLICATION_JSON_VALUE,
+		produces = MediaType.APPLICATION_JSON_VALUE)
+public class WorkOrderPartitionResource {
+
+	private final WorkOrderPartitionService workOrderPartitionService;
+
+	@Autowired
+	public WorkOrderPartitionResource(final WorkOrderPartitionService workOrderPartitionService) {
+		this.workOrderPartitionService = workOrderPartitionService;
+	}
+
+	@GetMapping("/partitions")
+	public ResponseEntity<List<String>> getPartitions() {
+		return new ResponseEntity<>(this.workOrderPartitionService.getPartitions(), HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/enqueue")
+	public ResponseEntity<WorkOrderResponse> enqueue(@PathVariable final String partition,
+			@RequestBody final WorkOrderRequest workOrderRequest) {
+		assignPartition(partition, workOrderRequest);
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.enqueue(workOrderRequest);
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/enqueue/batch")
+	public ResponseEntity<List<WorkOrderResponse>> enqueueBatch(@PathVariable final String partition,
+			@RequestBody final List<WorkOrderRequest> workOrderRequests) {
+		for (final WorkOrderRequest workOrderRequest : workOrderRequests) {
+			if (workOrderRequest != null) {
+				assignPartition(partition, workOrderRequest);
+			}
+		}
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.getOrCreatePartition(partition)
+				.enqueueBatch(workOrderRequests);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/dequeue")
+	public ResponseEntity<WorkOrderResponse> dequeue(@PathVariable final String partition) {
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.partition(partition).dequeue();
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	/**
+	 * Long-poll dequeue of a partition, like POST /dequeue?waitMs=N of the default partition
+	 */
+	@PostMapping(path = "/partitions/{partition}/dequeue", params = { "waitMs", "!leaseMs" })
+	public DeferredResult<ResponseEntity<WorkOrderResponse>> dequeue(@PathVariable final String partition,
+			@RequestParam final long waitMs) {
+		return WorkOrderManagerResource.dequeueWithin(this.workOrderPartitionService.partition(partition), waitMs);
+	}
+
+	@PostMapping(path = "/partitions/{partition}/dequeue", params = "leaseMs")
+	public ResponseEntity<WorkOrderResponse> lease(@PathVariable final String partition,
+			@RequestParam final long leaseMs, @RequestParam(required = false) final Long waitMs) {
+		if (waitMs != null) {
+			throw new WorkOrderException("leaseMs cannot be combined with waitMs");
+		}
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.partition(partition)
+				.lease(Duration.ofMillis(leaseMs));
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/ack/{id}")
+	public ResponseEntity<WorkOrderResponse> acknowledge(@PathVariable final String partition,
+			@PathVariable final Long id) {
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.partition(partition)
+				.acknowledge(id);
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/dequeue/batch")
+	public ResponseEntity<List<WorkOrderResponse>> dequeueBatch(@PathVariable final String partition,
+			@RequestParam final int count) {
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.partition(partition)
+				.dequeueBatch(count);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@GetMapping("/partitions/{partition}/getIds")
+	public ResponseEntity<List<WorkOrderResponse>> getIds(@PathVariable final String partition,
+			@RequestParam(defaultValue = "0") final int offset,
+			@RequestParam(required = false) final Integer limit) {
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.partition(partition)
+				.getIds(offset, limit == null ? Integer.MAX_VALUE : limit);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@DeleteMapping("/partitions/{partition}/{id}")
+	public ResponseEntity<WorkOrderResponse> delete(@PathVariable final String partition,
+			@PathVariable final Long id) {
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.partition(partition).delete(id);
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@GetMapping("/partitions/{partition}/position/{id}")
+	public ResponseEntity<WorkOrderResponse> getPosition(@PathVariable final String partition,
+			@PathVariable final Long id) {
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.partition(partition)
+				.getPosition(id);
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@GetMapping("/partitions/{partition}/expired")
+	public ResponseEntity<List<WorkOrderResponse>> getExpired(@PathVariable final String partition) {
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.partition(partition)
+				.getExpired();
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/query")
+	public ResponseEntity<List<WorkOrderResponse>> query(@PathVariable final String partition,
+			@RequestBody final WorkOrderQuery query) {
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.partition(partition)
+				.query(query);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/compute-waiting-time")
+	public ResponseEntity<List<WorkOrderResponse>> compute(@PathVariable final String partition,
+			@RequestBody final WorkOrderRequest workOrderRequest) {
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.partition(partition)
+				.computeWaitingTime(workOrderRequest);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	@PostMapping("/partitions/{partition}/compute-waiting-time/statistics")
+	public ResponseEntity<List<WaitingTimeStatistics>> computeStatistics(@PathVariable final String partition,
+			@RequestBody final WorkOrderRequest workOrderRequest) {
+		final List<WaitingTimeStatistics> statisticsList = this.workOrderPartitionService.partition(partition)
+				.computeWaitingTimeStatistics(workOrderRequest);
+		return new ResponseEntity<>(statisticsList, HttpStatus.OK);
+	}
+
+	@PostMapping("/global/dequeue")
+	public ResponseEntity<WorkOrderResponse> dequeueGlobal() {
+		final WorkOrderResponse workOrderResponse = this.workOrderPartitionService.dequeueGlobal();
+		return new ResponseEntity<>(workOrderResponse, HttpStatus.OK);
+	}
+
+	@PostMapping("/global/dequeue/batch")
+	public ResponseEntity<List<WorkOrderResponse>> dequeueGlobalBatch(@RequestParam final int count) {
+		final List<WorkOrderResponse> responseList = this.workOrderPartitionService.dequeueGlobalBatch(count);
+		return new ResponseEntity<>(responseList, HttpStatus.OK);
+	}
+
+	/**
+	 * Sets the partition of the path on a work-order, which must not name another one
+	 */
+	private static void assignPartition(final String partition, final WorkOrderRequest workOrderRequest) {
+		if (workOrderRequest.getPartition() != null && !workOrderRequest.getPartition().equals(partition)) {
+			throw new WorkOrderException("Partition of the work-order does not match the path");
+		}
+		workOrderRequest.setPartition(partition);
+	}
+
+}
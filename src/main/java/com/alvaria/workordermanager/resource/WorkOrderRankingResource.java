@@ -0,0 +1,37 @@
+package com.alvaria.workordermanager.resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.alvaria.workordermanager.model.RankingPolicy;
+import com.alvaria.workordermanager.ranking.WorkOrderRankingPolicy;
+
+@RestController
+@RequestMapping(path = "/work-order-manager/ranking", produces = MediaType.APPLICATION_JSON_VALUE)
+public class WorkOrderRankingResource {
+
+	private final WorkOrderRankingPolicy workOrderRankingPolicy;
+
+	@Autowired
+	public WorkOrderRankingResource(final WorkOrderRankingPolicy workOrderRankingPolicy) {
+		this.workOrderRankingPolicy = workOrderRankingPolicy;
+	}
+
+	@GetMapping
+	public ResponseEntity<RankingPolicy> getRankingPolicy() {
+		return new ResponseEntity<>(this.workOrderRankingPolicy.get(), HttpStatus.OK);
+	}
+
+	@PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<RankingPolicy> updateRankingPolicy(@RequestBody final RankingPolicy rankingPolicy) {
+		return new ResponseEntity<>(this.workOrderRankingPolicy.update(rankingPolicy), HttpStatus.OK);
+	}
+
+}
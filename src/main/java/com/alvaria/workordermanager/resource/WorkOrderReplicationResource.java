@@ -0,0 +1,44 @@
+package com.alvaria.workordermanager.resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.alvaria.workordermanager.model.ReplicationStatus;
+import com.alvaria.workordermanager.replication.WorkOrderReplication;
+
+@RestController
+@ConditionalOnProperty(prefix = "work-order-manager.replication", name = "role")
+@RequestMapping(path = "/work-order-manager/replication", produces = MediaType.APPLICATION_JSON_VALUE)
+public class WorkOrderReplicationResource {
+
+	private final WorkOrderReplication workOrderReplication;
+
+	@Autowired
+	public WorkOrderReplicationResource(final WorkOrderReplication workOrderReplication) {
+		this.workOrderReplication = workOrderReplication;
+	}
+
+	@GetMapping
+	public ResponseEntity<ReplicationStatus> status() {
+		return new ResponseEntity<>(this.workOrderReplication.status(), HttpStatus.OK);
+	}
+
+	@PostMapping("/promote")
+	public ResponseEntity<ReplicationStatus> promote() {
+		return new ResponseEntity<>(this.workOrderReplication.promote(), HttpStatus.OK);
+	}
+
+	@PostMapping("/follow")
+	public ResponseEntity<ReplicationStatus> follow(@RequestParam final String host, @RequestParam final int port) {
+		return new ResponseEntity<>(this.workOrderReplication.follow(host, port), HttpStatus.OK);
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.alvaria.workordermanager.service;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Business rule assigning a class type to a work-order.
+ *
+ * The class type is resolved once, when the work-order is enqueued, and stored with it; ordering,
+ * positions, the write-ahead log and replication all use the stored class type. Declaring a bean
+ * of this type replaces {@link #DIVISIBILITY} for every partition. Changing the policy does not
+ * reclassify work-orders that are already queued or persisted.
+ *
+ * Implementations are called outside the queue lock and must be thread-safe and side-effect free.
+ */
+@FunctionalInterface
+public interface ClassificationPolicy {
+
+	/**
+	 * The default rules: ids divisible by both 3 and 5 are Management Override, by 3 Priority, by
+	 * 5 VIP, all others Normal
+	 */
+	ClassificationPolicy DIVISIBILITY = id -> {
+		if (id % 3 == 0 && id % 5 == 0) {
+			return ClassTypeEnum.MANAGEMENT_OVERRIDE;
+		} else if (id % 3 == 0) {
+			return ClassTypeEnum.PRIORITY;
+		} else if (id % 5 == 0) {
+			return ClassTypeEnum.VIP;
+		} else {
+			return ClassTypeEnum.NORMAL;
+		}
+	};
+
+	/**
+	 * Computes the class type of a work-order
+	 *
+	 * @param id The id of work-order
+	 * @return Class type of id, never null
+	 */
+	ClassTypeEnum classify(long id);
+
+}
@@ -0,0 +1,49 @@
+package com.alvaria.workordermanager.service;
+
+import java.util.function.Consumer;
+
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+
+/**
+ * A dequeue that waits for a work-order to arrive, see
+ * {@link WorkOrderManagerService#dequeueWhenAvailable(Consumer)}.
+ *
+ * The queue assigns the work-order while holding its write lock and completes the dequeue once the
+ * lock is released, so the callback may run on the thread of the enqueue that served it.
+ */
+public final class PendingDequeue {
+
+	private final Consumer<WorkOrderResponse> callback;
+	private volatile WorkOrderResponse workOrder;
+
+	public PendingDequeue(final Consumer<WorkOrderResponse> callback) {
+		this.callback = callback;
+	}
+
+	/**
+	 * Retrieves the work-order handed to this dequeue. Once
+	 * {@link WorkOrderManagerService#cancelDequeue(PendingDequeue)} returned false it is never null.
+	 *
+	 * @return The dequeued work-order, or null while still waiting
+	 */
+	public WorkOrderResponse getWorkOrder() {
+		return workOrder;
+	}
+
+	/**
+	 * Hands a work-order to this dequeue. Called by the queue while holding its write lock.
+	 *
+	 * @param workOrder The dequeued work-order
+	 */
+	public void assign(final WorkOrderResponse workOrder) {
+		this.workOrder = workOrder;
+	}
+
+	/**
+	 * Passes the assigned work-order to the callback. Called by the queue after releasing its lock.
+	 */
+	public void complete() {
+		callback.accept(workOrder);
+	}
+
+}
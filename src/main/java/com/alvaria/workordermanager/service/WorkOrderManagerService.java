@@ -1,7 +1,12 @@
 package com.alvaria.workordermanager.service;
 
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
 import com.alvaria.workordermanager.model.WorkOrderRequest;
 import com.alvaria.workordermanager.model.WorkOrderResponse;
 
@@ -22,6 +27,68 @@ public interface WorkOrderManagerService {
 	 */
 	WorkOrderResponse dequeue();
 
+	/**
+	 * Retrieves and removes the top work-order from the priority queue, waiting up to a timeout
+	 * for one to arrive if the queue is empty.
+	 * 
+	 * @param timeout Maximum time to wait
+	 * @return The highest ranked work-order
+	 */
+	WorkOrderResponse dequeue(Duration timeout);
+
+	/**
+	 * Retrieves and removes the top work-order from the priority queue and passes it to a
+	 * callback, without blocking. If the queue is empty the dequeue waits for the next work-order
+	 * to arrive; waiting dequeues are served in the order they were made.
+	 * 
+	 * @param callback Receives the dequeued work-order
+	 * @return The dequeue, which is already completed if the queue was not empty
+	 */
+	PendingDequeue dequeueWhenAvailable(Consumer<WorkOrderResponse> callback);
+
+	/**
+	 * Stops a dequeue from waiting.
+	 * 
+	 * @param pendingDequeue A dequeue returned by {@link #dequeueWhenAvailable(Consumer)}
+	 * @return true if it was still waiting, false if a work-order was already handed to it
+	 */
+	boolean cancelDequeue(PendingDequeue pendingDequeue);
+
+	/**
+	 * Retrieves the top work-order and takes it out of the priority queue under a lease. Unless it
+	 * is acknowledged before the lease runs out, the work-order goes back into the queue at its
+	 * original rank.
+	 * 
+	 * @param leaseDuration How long the lease lasts
+	 * @return The highest ranked work-order, with the deadline of its lease
+	 */
+	WorkOrderResponse lease(Duration leaseDuration);
+
+	/**
+	 * Completes a leased work-order, which removes it for good.
+	 * 
+	 * @param id The id of work-order
+	 * @return The acknowledged work-order
+	 */
+	WorkOrderResponse acknowledge(Long id);
+
+	/**
+	 * Inserts a batch of work-orders in the priority queue. Each work-order is accepted or rejected
+	 * on its own; a rejected one does not affect the rest of the batch.
+	 * 
+	 * @param workOrderRequests work-orders to insert
+	 * @return One result per work-order, in request order, with a message for rejected ones
+	 */
+	List<WorkOrderResponse> enqueueBatch(List<WorkOrderRequest> workOrderRequests);
+
+	/**
+	 * Retrieves and removes up to count top work-orders from the priority queue.
+	 * 
+	 * @param count Maximum number of work-orders to remove
+	 * @return The removed work-orders, highest ranked first
+	 */
+	List<WorkOrderResponse> dequeueBatch(int count);
+
 	/**
 	 * Retrieves all the ID's present in the priority queue.
 	 * 
@@ -29,6 +96,15 @@ public interface WorkOrderManagerService {
 	 */
 	List<WorkOrderResponse> getIds();
 
+	/**
+	 * Retrieves a page of the ID's present in the priority queue, in queue order.
+	 * 
+	 * @param offset Position of the first ID to return
+	 * @param limit  Maximum number of ID's to return
+	 * @return List of ID's on the page
+	 */
+	List<WorkOrderResponse> getIds(int offset, int limit);
+
 	/**
 	 * Removes a specific ID from the priority queue.
 	 * 
@@ -53,4 +129,55 @@ public interface WorkOrderManagerService {
 	 */
 	List<WorkOrderResponse> computeWaitingTime(WorkOrderRequest workOrderRequest);
 
+	/**
+	 * Computes the waiting time of all the ID's in the priority queue, handing each one to a
+	 * visitor instead of collecting them.
+	 * 
+	 * @param workOrderRequest work-order with current time
+	 * @param visitor          Receives each ID with its waiting time
+	 */
+	void computeWaitingTime(WorkOrderRequest workOrderRequest, WaitingTimeVisitor visitor);
+
+	/**
+	 * Computes count, mean, max and percentiles of the waiting time per class type.
+	 * 
+	 * @param workOrderRequest work-order with current time
+	 * @return One entry per class type
+	 */
+	List<WaitingTimeStatistics> computeWaitingTimeStatistics(WorkOrderRequest workOrderRequest);
+
+	/**
+	 * Finds the queued work-orders matching a filter, oldest first. The class type and enqueue time
+	 * bounds are served by the per-class indexes in O(log n + k); the id bounds are applied to the
+	 * work-orders within them.
+	 * 
+	 * @param query The filter
+	 * @return IDs with their waiting time in seconds, at most the limit of the query
+	 */
+	List<WorkOrderResponse> query(WorkOrderQuery query);
+
+	/**
+	 * Retrieves the latest work-orders that were evicted because their time-to-live ran out.
+	 * 
+	 * @return The expired work-orders, in order of expiry
+	 */
+	List<WorkOrderResponse> getExpired();
+
+	/**
+	 * Retrieves the zone of the queue's clock. Work-order times are local times in this zone.
+	 *
+	 * @return The zone of the clock
+	 */
+	ZoneId getZone();
+
+	/**
+	 * Callback for {@link WorkOrderManagerService#computeWaitingTime(WorkOrderRequest, WaitingTimeVisitor)}
+	 */
+	@FunctionalInterface
+	interface WaitingTimeVisitor {
+
+		void visit(long id, long waitingTime);
+
+	}
+
 }
@@ -0,0 +1,47 @@
+package com.alvaria.workordermanager.service;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+/**
+ * Observer of the mutations applied to the work-order queue.
+ *
+ * The mutation callbacks run while the queue holds its write lock, in the order the mutations are
+ * applied, so they must be short and must not call back into the queue. They run before the
+ * mutation is applied: a callback that throws rejects the mutation.
+ */
+public interface WorkOrderMutationListener {
+
+	/**
+	 * Called when a work-order is about to be inserted in the queue
+	 *
+	 * @param id         The id of work-order
+	 * @param time       The enqueue time of work-order in epoch seconds
+	 * @param nano       The nano-of-second of the enqueue time
+	 * @param classType  The class type of work-order
+	 * @param timeToLive Seconds the work-order may wait, or 0 if it has none of its own
+	 */
+	void enqueued(long id, long time, int nano, ClassTypeEnum classType, int timeToLive);
+
+	/**
+	 * Called when a work-order is about to be removed from the queue by dequeue or delete
+	 *
+	 * @param id The id of work-order
+	 */
+	void removed(long id);
+
+	/**
+	 * Called after the write lock is released, on the thread that applied the mutations, before
+	 * the caller is answered. Throwing fails the call although its mutations are applied, e.g. when
+	 * they could not be made durable.
+	 */
+	default void committed() {
+	}
+
+	/**
+	 * Called while still holding the write lock at the end of a checkpoint, once every queued
+	 * work-order was handed to the checkpoint visitor
+	 */
+	default void checkpointed() {
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.alvaria.workordermanager.service;
+
+import java.util.List;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+
+public interface WorkOrderPartitionService {
+
+	/**
+	 * Key of the partition that holds work-orders without a partition
+	 */
+	String DEFAULT_PARTITION = "default";
+
+	/**
+	 * Retrieves the keys of all partitions.
+	 *
+	 * @return Keys of the partitions, in creation order
+	 */
+	List<String> getPartitions();
+
+	/**
+	 * Retrieves the queue of an existing partition.
+	 *
+	 * @param partition The partition key
+	 * @return The queue of the partition
+	 */
+	WorkOrderManagerService partition(String partition);
+
+	/**
+	 * Retrieves the queue of a partition, creating the partition if it does not exist yet.
+	 *
+	 * @param partition The partition key
+	 * @return The queue of the partition
+	 */
+	WorkOrderManagerService getOrCreatePartition(String partition);
+
+	/**
+	 * Inserts a work-order in the queue of its partition, or of the default partition if it has
+	 * none.
+	 *
+	 * @param workOrderRequest work-order to insert
+	 * @return Inserted work-order
+	 */
+	WorkOrderResponse enqueue(WorkOrderRequest workOrderRequest);
+
+	/**
+	 * Retrieves and removes the top work-order across all partitions.
+	 *
+	 * @return The highest ranked work-order, with its partition
+	 */
+	WorkOrderResponse dequeueGlobal();
+
+	/**
+	 * Retrieves and removes up to count top work-orders across all partitions.
+	 *
+	 * @param count Maximum number of work-orders to remove
+	 * @return The removed work-orders with their partitions, highest ranked first
+	 */
+	List<WorkOrderResponse> dequeueGlobalBatch(int count);
+
+}
@@ -1,43 +1,527 @@
 package com.alvaria.workordermanager.service.impl;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Service;
 
+import com.alvaria.workordermanager.events.WorkOrderEventRing;
 import com.alvaria.workordermanager.exception.WorkOrderException;
 import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
 import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderEventType;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
 import com.alvaria.workordermanager.model.WorkOrderRequest;
 import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.queue.ExpiredWorkOrders;
+import com.alvaria.workordermanager.queue.LeaseHeap;
+import com.alvaria.workordermanager.queue.OffHeapWorkOrderRecordStore;
+import com.alvaria.workordermanager.queue.OrderStatisticTree;
+import com.alvaria.workordermanager.queue.QueueSnapshot;
+import com.alvaria.workordermanager.queue.RecentIdFilter;
+import com.alvaria.workordermanager.queue.TimingWheel;
+import com.alvaria.workordermanager.queue.TournamentTree;
+import com.alvaria.workordermanager.queue.WorkOrderHeap;
+import com.alvaria.workordermanager.queue.WorkOrderRanking;
+import com.alvaria.workordermanager.queue.WorkOrderRecordStore;
+import com.alvaria.workordermanager.service.ClassificationPolicy;
+import com.alvaria.workordermanager.service.PendingDequeue;
 import com.alvaria.workordermanager.service.WorkOrderManagerService;
+import com.alvaria.workordermanager.service.WorkOrderMutationListener;
+import com.alvaria.workordermanager.storage.StorageProperties;
 
+/**
+ * Thread-safe work-order queue.
+ *
+ * All per-order state lives in a single {@link WorkOrderRecordStore}, so memory follows the live
+ * queue depth. With off-heap storage the records and their id index live in an
+ * {@link OffHeapWorkOrderRecordStore} instead, outside the reach of the garbage collector. The class type is assigned once at enqueue by the {@link ClassificationPolicy} and
+ * stored with the work-order. Each class type has its own heap and position index, both ordered by enqueue time. Ranks are
+ * evaluated at the time of the call: dequeue compares only the heads of the class heaps, and
+ * positions are derived from the per-class indexes (see {@link QueueSnapshot}). The ranking is
+ * published with the snapshot and can be replaced at runtime without re-sorting anything.
+ *
+ * Mutations are serialized by a single write lock; batch operations take it once for the whole
+ * batch and bulk load the heaps and indexes when the batch is large relative to the queue. After
+ * every mutation an immutable snapshot of the indexes is published, and getIds and
+ * computeWaitingTime read that snapshot without taking any lock. getPosition resolves the class and
+ * time of the id under a read lock held only for that hash lookup, because the record store is not
+ * safe to read while a writer changes it, and derives the position from the snapshot of that
+ * instant after releasing it.
+ *
+ * Every mutation is reported to the registered {@link WorkOrderMutationListener}s while the write
+ * lock is held, which gives listeners such as the write-ahead log the exact order of mutations. A
+ * mutation is reported before it is applied, so a listener that fails, e.g. a log that cannot be
+ * written, rejects the mutation instead of leaving it applied but unrecorded.
+ *
+ * Every mutation is also appended to a bounded {@link WorkOrderEventRing}, the change feed of the
+ * queue, which subscribers read without locking and which never makes the writer wait.
+ *
+ * Dequeues that wait for work-orders are kept in a FIFO under the write lock. An enqueue that finds
+ * waiting dequeues removes the top work-orders for them right away and completes them once the
+ * lock is released, so waiters are served in arrival order and never race each other.
+ *
+ * A replica keeps the queue read-only and feeds it the mutations of its primary through
+ * {@link #applyReplicated(Consumer)} and {@link #synchronize(WorkOrderRecordStore)}.
+ *
+ * Work-orders can expire: the deadline of each one with a time-to-live, its own or that of its
+ * class, is kept in a {@link TimingWheel} keyed by its store slot, and {@link #expire()} removes the
+ * due ones without scanning the queue. The latest expirations are published as an immutable
+ * {@link ExpiredWorkOrders} view after every sweep, so getExpired reads them without locking.
+ *
+ * A work-order can also be leased instead of dequeued: it leaves the queue but is kept in a
+ * {@link LeaseHeap} until it is acknowledged, and goes back into the queue at its original rank if
+ * the lease runs out first. To the mutation listeners a leased work-order is still queued, so only
+ * the acknowledgement is persisted and replicated, and an unacknowledged work-order survives a
+ * restart or a failover.
+ *
+ * Optionally the ids of dequeued and acknowledged work-orders are remembered for a window in a
+ * {@link RecentIdFilter}, and an enqueue of such an id is rejected, so retries of work-orders that
+ * were already processed are suppressed in O(1).
+ */
 @Service
+@EnableConfigurationProperties(StorageProperties.class)
 public class WorkOrderManagerServiceImpl implements WorkOrderManagerService {
 
-	private final Queue<Long> workOrderQueue = new PriorityQueue<>(5, new WorkOrderComparator());
-	private final Map<Long, WorkOrderRequest> workOrderMap = new HashMap<>();
-	private final Map<ClassTypeEnum, List<Long>> classTypeGroupedIdsMap = new HashMap<>();
-	private final Map<Long, Double> rankedMap = new HashMap<>();
+	/**
+	 * Message of the enqueue rejection of an id that is already queued
+	 */
+	public static final String ID_EXISTS_MESSAGE = "Id already exists in the queue";
+
+	/**
+	 * Message of the enqueue rejection of an id that was dequeued or acknowledged recently
+	 */
+	public static final String ID_PROCESSED_MESSAGE = "Id was already processed";
+
+	/**
+	 * Message of the rejection of a mutation while the queue is read-only
+	 */
+	public static final String READ_ONLY_MESSAGE = "The queue is a read-only replica";
+
+	/**
+	 * Message of the enqueue rejection of a time-to-live that is not positive
+	 */
+	public static final String TTL_MESSAGE = "Time-to-live must be positive";
+
+	/**
+	 * Message of the rejection of a work-order of a batch that a mutation listener failed to record
+	 */
+	public static final String NOT_RECORDED_MESSAGE = "Work-order could not be recorded";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkOrderManagerServiceImpl.class);
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+	private static final int EVENT_RING_CAPACITY = 1 << 16;
+	private static final int EXPIRED_CAPACITY = 1 << 14;
+
+	private volatile ClassificationPolicy classificationPolicy = ClassificationPolicy.DIVISIBILITY;
+	private volatile Clock clock = Clock.systemDefaultZone();
+	private volatile boolean readOnly;
+	private final StampedLock lock = new StampedLock();
+	private final WorkOrderRecordStore workOrderStore;
+	private final WorkOrderHeap[] workOrderQueues = new WorkOrderHeap[CLASS_TYPES.length];
+	private final OrderStatisticTree[] workOrderIndexes = new OrderStatisticTree[CLASS_TYPES.length];
+	private volatile QueueSnapshot snapshot = QueueSnapshot.empty();
+	private volatile WorkOrderMutationListener[] mutationListeners = new WorkOrderMutationListener[0];
+	private final ArrayDeque<PendingDequeue> pendingDequeues = new ArrayDeque<>();
+	private final WorkOrderEventRing events = new WorkOrderEventRing(EVENT_RING_CAPACITY);
+	private final long[] classTimesToLive = new long[CLASS_TYPES.length];
+	private TimingWheel expiryWheel;
+	private volatile ExpiredWorkOrders expiredWorkOrders = ExpiredWorkOrders.empty(EXPIRED_CAPACITY);
+	private final LeaseHeap leases = new LeaseHeap();
+	private RecentIdFilter processedIds;
+
+	public WorkOrderManagerServiceImpl() {
+		this(null);
+	}
+
+	/**
+	 * Creates an empty queue
+	 *
+	 * @param storageProperties Where the queued work-orders are stored, or null for the Java heap
+	 */
+	@Autowired
+	public WorkOrderManagerServiceImpl(final StorageProperties storageProperties) {
+		this.workOrderStore = storageProperties != null && storageProperties.isOffHeap()
+				? new OffHeapWorkOrderRecordStore()
+				: new WorkOrderRecordStore();
+		for (int i = 0; i < CLASS_TYPES.length; i++) {
+			workOrderQueues[i] = new WorkOrderHeap(workOrderStore);
+			workOrderIndexes[i] = new OrderStatisticTree();
+		}
+	}
+
+	/**
+	 * @return true if the queued work-orders are stored outside the Java heap
+	 */
+	public boolean isOffHeap() {
+		return workOrderStore instanceof OffHeapWorkOrderRecordStore;
+	}
+
+	/**
+	 * Replaces the clock that supplies the as-of time of dequeue, getIds and getPosition
+	 *
+	 * @param clock The clock to use
+	 */
+	public void setClock(final Clock clock) {
+		this.clock = clock;
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return clock.getZone();
+	}
+
+	/**
+	 * Replaces the policy that assigns the class type of work-orders enqueued from now on. The
+	 * application queue takes the ClassificationPolicy bean if one is declared.
+	 *
+	 * @param classificationPolicy The policy to use
+	 */
+	@Autowired(required = false)
+	public void setClassificationPolicy(final ClassificationPolicy classificationPolicy) {
+		this.classificationPolicy = classificationPolicy;
+	}
+
+	public ClassificationPolicy getClassificationPolicy() {
+		return classificationPolicy;
+	}
+
+	/**
+	 * Replaces the ranking that orders the classes against each other. Takes effect for every
+	 * later dequeue, getIds and getPosition in O(1): the classes stay ordered by enqueue time under
+	 * any ranking, so nothing is re-sorted.
+	 *
+	 * @param ranking The ranking to use
+	 */
+	public void setRanking(final WorkOrderRanking ranking) {
+		final long stamp = lock.writeLock();
+		try {
+			snapshot = snapshot.with(ranking);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public WorkOrderRanking getRanking() {
+		return snapshot.ranking();
+	}
+
+	/**
+	 * Replaces the time-to-live of the classes. Queued work-orders without a time-to-live of their
+	 * own are rescheduled, so the new values also apply to them, e.g. after a restore.
+	 *
+	 * @param timesToLive Time-to-live per class type; classes left out never expire
+	 */
+	public void setTimesToLive(final Map<ClassTypeEnum, Duration> timesToLive) {
+		final long stamp = lock.writeLock();
+		try {
+			for (final ClassTypeEnum type : CLASS_TYPES) {
+				final Duration timeToLive = timesToLive.get(type);
+				classTimesToLive[type.ordinal()] = timeToLive == null ? 0 : Math.max(0, timeToLive.getSeconds());
+			}
+			workOrderStore.forEach((id, time, nano, type, timeToLive) -> {
+				if (timeToLive == 0) {
+					scheduleExpiry(workOrderStore.slotOf(id));
+				}
+			});
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Starts remembering the ids of dequeued and acknowledged work-orders and rejecting their
+	 * enqueue with {@link #ID_PROCESSED_MESSAGE}, or stops doing so. Ids remembered so far are
+	 * forgotten.
+	 *
+	 * @param window How long an id is remembered, or null or zero to stop
+	 * @param maxIds Most ids remembered at a time; when more are processed within the window the
+	 *               oldest ones are forgotten early
+	 */
+	public void setDeduplication(final Duration window, final int maxIds) {
+		final long stamp = lock.writeLock();
+		try {
+			processedIds = window == null || window.isZero() ? null
+					: new RecentIdFilter(window.toMillis(), maxIds, clock.millis());
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Makes enqueue, dequeue and delete fail with {@link #READ_ONLY_MESSAGE}, or allows them again.
+	 * Reads and {@link #applyReplicated(Consumer)} are not affected.
+	 *
+	 * @param readOnly Whether the queue only takes replicated mutations
+	 */
+	public void setReadOnly(final boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Retrieves the number of queued work-orders without locking
+	 *
+	 * @return The queue depth as of the last mutation
+	 */
+	public int queueDepth() {
+		return snapshot.size();
+	}
+
+	/**
+	 * Retrieves the number of queued work-orders of a class without locking
+	 *
+	 * @param type The class type
+	 * @return The depth of the class as of the last mutation
+	 */
+	public int queueDepth(final ClassTypeEnum type) {
+		return snapshot.classTree(type).size();
+	}
+
+	/**
+	 * Retrieves how long the oldest queued work-order has been waiting, without locking
+	 *
+	 * @return Age in seconds, or 0 if the queue is empty
+	 */
+	public long oldestAge() {
+		final QueueSnapshot queue = snapshot;
+		long oldest = Long.MAX_VALUE;
+		for (final ClassTypeEnum type : CLASS_TYPES) {
+			final OrderStatisticTree tree = queue.classTree(type);
+			if (!tree.isEmpty()) {
+				oldest = Math.min(oldest, tree.cursor(0).time());
+			}
+		}
+		return oldest == Long.MAX_VALUE ? 0 : Math.max(0, now() - oldest);
+	}
+
+	/**
+	 * Retrieves the change feed of the queue, which holds the latest enqueue, dequeue and delete
+	 * events and can be read without locking
+	 *
+	 * @return The event ring buffer
+	 */
+	public WorkOrderEventRing events() {
+		return events;
+	}
+
+	/**
+	 * Registers a listener that is told about every mutation applied from now on
+	 *
+	 * @param listener The listener to add
+	 */
+	public void addMutationListener(final WorkOrderMutationListener listener) {
+		final long stamp = lock.writeLock();
+		try {
+			final WorkOrderMutationListener[] listeners = Arrays.copyOf(mutationListeners,
+					mutationListeners.length + 1);
+			listeners[listeners.length - 1] = listener;
+			mutationListeners = listeners;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Unregisters a listener added by {@link #addMutationListener(WorkOrderMutationListener)}
+	 *
+	 * @param listener The listener to remove
+	 */
+	public void removeMutationListener(final WorkOrderMutationListener listener) {
+		final long stamp = lock.writeLock();
+		try {
+			mutationListeners = Arrays.stream(mutationListeners)
+					.filter(registered -> registered != listener)
+					.toArray(WorkOrderMutationListener[]::new);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Bulk loads the work-orders of a record store into the empty queue, without notifying the
+	 * mutation listeners. Used to recover a persisted queue.
+	 *
+	 * @param source Store holding the work-orders to load
+	 */
+	public void restore(final WorkOrderRecordStore source) {
+		final int[] classCounts = new int[CLASS_TYPES.length];
+		source.forEach((id, time, nano, type, timeToLive) -> classCounts[type.ordinal()]++);
+		final int[][] classSlots = new int[CLASS_TYPES.length][];
+		final long[][] classIds = new long[CLASS_TYPES.length][];
+		final long[][] classTimes = new long[CLASS_TYPES.length][];
+		for (int i = 0; i < CLASS_TYPES.length; i++) {
+			classSlots[i] = new int[classCounts[i]];
+			classIds[i] = new long[classCounts[i]];
+			classTimes[i] = new long[classCounts[i]];
+			classCounts[i] = 0;
+		}
+		final long stamp = lock.writeLock();
+		try {
+			if (workOrderStore.size() != 0) {
+				throw new IllegalStateException("Queue is not empty");
+			}
+			source.forEach((id, time, nano, type, timeToLive) -> {
+				final int index = classCounts[type.ordinal()]++;
+				classSlots[type.ordinal()][index] = workOrderStore.allocate(id, time, nano, type, timeToLive);
+				scheduleExpiry(classSlots[type.ordinal()][index]);
+				classIds[type.ordinal()][index] = id;
+				classTimes[type.ordinal()][index] = time;
+			});
+			for (final ClassTypeEnum type : CLASS_TYPES) {
+				addAll(type, classSlots[type.ordinal()], classIds[type.ordinal()], classTimes[type.ordinal()],
+						classCounts[type.ordinal()]);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Hands every queued work-order, leased ones included, to a visitor while holding the write
+	 * lock, then tells the mutation listeners. The visited state is exactly the state after the last
+	 * mutation reported to the listeners before {@link WorkOrderMutationListener#checkpointed()}.
+	 *
+	 * @param visitor Receives each queued work-order
+	 */
+	public void checkpoint(final WorkOrderRecordStore.RecordVisitor visitor) {
+		final long stamp = lock.writeLock();
+		try {
+			workOrderStore.forEach(visitor);
+			leases.forEach(visitor);
+			for (final WorkOrderMutationListener listener : mutationListeners) {
+				listener.checkpointed();
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Applies mutations streamed from another queue, e.g. the primary of a replica. The mutations
+	 * are replayed into the given callback's listener under a single write lock and reported to
+	 * the mutation listeners of this queue like any other mutation; replicated removals appear as
+	 * DELETED in the change feed. An enqueue of a queued id or a removal of an unknown id is
+	 * ignored, so replay is idempotent. Works while the queue is read-only.
+	 *
+	 * @param replay Replays the mutations, in order, into the listener it is given
+	 */
+	public void applyReplicated(final Consumer<WorkOrderMutationListener> replay) {
+		final boolean[] changed = new boolean[CLASS_TYPES.length];
+		final long stamp = lock.writeLock();
+		try {
+			replay.accept(new WorkOrderMutationListener() {
+
+				@Override
+				public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+						final int timeToLive) {
+					if (insert(id, time, nano, classType, timeToLive)) {
+						changed[classType.ordinal()] = true;
+					}
+				}
+
+				@Override
+				public void removed(final long id) {
+					// A replica cannot tell dequeues from deletes, so it remembers every removal
+					recordProcessed(id);
+					final ClassTypeEnum type = remove(id);
+					if (type != null) {
+						changed[type.ordinal()] = true;
+					}
+				}
+
+			});
+		} finally {
+			// A failed listener ends the replay, but what it applied so far must become visible
+			for (final ClassTypeEnum type : CLASS_TYPES) {
+				if (changed[type.ordinal()]) {
+					publish(type);
+				}
+			}
+			lock.unlockWrite(stamp);
+		}
+		notifyCommitted();
+	}
+
+	/**
+	 * Makes the queue hold exactly the work-orders of a record store by removing the queued ones
+	 * it lacks and inserting the ones the queue lacks, e.g. when a replica catches up with a full
+	 * copy of its primary. The differences are reported like {@link #applyReplicated(Consumer)}.
+	 *
+	 * @param source Store holding the work-orders the queue must end up with
+	 */
+	public void synchronize(final WorkOrderRecordStore source) {
+		applyReplicated(listener -> {
+			// The copy holds the work-orders leased here as queued ones
+			leases.clear();
+			final long[] stale = new long[workOrderStore.size()];
+			final int[] staleCount = new int[1];
+			workOrderStore.forEach((id, time, nano, type, timeToLive) -> {
+				final int slot = source.slotOf(id);
+				if (slot == WorkOrderRecordStore.NO_SLOT || source.time(slot) != time || source.nano(slot) != nano
+						|| source.classType(slot) != type || source.timeToLive(slot) != timeToLive) {
+					stale[staleCount[0]++] = id;
+				}
+			});
+			for (int i = 0; i < staleCount[0]; i++) {
+				listener.removed(stale[i]);
+			}
+			source.forEach(listener::enqueued);
+		});
+	}
 
 	@Override
 	public WorkOrderResponse enqueue(final WorkOrderRequest workOrderRequest) {
+		checkWritable();
 		final Long workOrderId = workOrderRequest.getId();
-		if (workOrderQueue.contains(workOrderId)) {
-			throw new WorkOrderException("Id already exists in the queue");
-		}
+		final ClassTypeEnum type = computeClassType(workOrderId);
+		final long time = toEpochSecond(workOrderRequest.getTime());
+		final int nano = workOrderRequest.getTime().getNano();
+		final int timeToLive = timeToLiveOf(workOrderRequest);
 
-		process(workOrderRequest);
-		workOrderQueue.add(workOrderId);
-		workOrderMap.put(workOrderId, workOrderRequest);
+		final PendingDequeue[] served;
+		final long stamp = lock.writeLock();
+		try {
+			final String duplicate = duplicateOf(workOrderId);
+			if (duplicate != null) {
+				throw new WorkOrderException(duplicate);
+			}
+			notifyEnqueued(workOrderId, time, nano, type, timeToLive);
+			final int slot = workOrderStore.allocate(workOrderId, time, nano, type, timeToLive);
+			queueOf(type).add(slot);
+			indexOf(type).add(workOrderId, time);
+			scheduleExpiry(slot);
+			events.append(WorkOrderEventType.ENQUEUED, workOrderId, type, workOrderStore.size());
+			publish(type);
+			served = serveWaiting();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		notifyCommitted();
+		complete(served);
 
 		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
 				.id(workOrderRequest.getId())
@@ -46,188 +530,995 @@ public class WorkOrderManagerServiceImpl implements WorkOrderManagerService {
 		return workOrderResponse;
 	}
 
+	@Override
+	public List<WorkOrderResponse> enqueueBatch(final List<WorkOrderRequest> workOrderRequests) {
+		checkWritable();
+		final int count = workOrderRequests.size();
+		final long[] ids = new long[count];
+		final long[] times = new long[count];
+		final int[] nanos = new int[count];
+		final ClassTypeEnum[] types = new ClassTypeEnum[count];
+		final int[] timesToLive = new int[count];
+		final String[] failures = new String[count];
+		for (int i = 0; i < count; i++) {
+			final WorkOrderRequest workOrderRequest = workOrderRequests.get(i);
+			if (workOrderRequest == null || workOrderRequest.getId() == null || workOrderRequest.getTime() == null) {
+				failures[i] = "Id and time are required";
+				continue;
+			}
+			if (workOrderRequest.getTtl() != null && workOrderRequest.getTtl() <= 0) {
+				failures[i] = TTL_MESSAGE;
+				continue;
+			}
+			ids[i] = workOrderRequest.getId();
+			times[i] = toEpochSecond(workOrderRequest.getTime());
+			nanos[i] = workOrderRequest.getTime().getNano();
+			types[i] = computeClassType(ids[i]);
+			timesToLive[i] = timeToLiveOf(workOrderRequest);
+		}
+
+		final int[] classCounts = new int[CLASS_TYPES.length];
+		final int[][] classSlots = new int[CLASS_TYPES.length][];
+		final long[][] classIds = new long[CLASS_TYPES.length][];
+		final long[][] classTimes = new long[CLASS_TYPES.length][];
+		final PendingDequeue[] served;
+		final long stamp = lock.writeLock();
+		try {
+			for (int i = 0; i < count; i++) {
+				if (failures[i] != null) {
+					continue;
+				}
+				failures[i] = duplicateOf(ids[i]);
+				if (failures[i] != null) {
+					continue;
+				}
+				try {
+					notifyEnqueued(ids[i], times[i], nanos[i], types[i], timesToLive[i]);
+				} catch (final RuntimeException e) {
+					// The work-orders before stay enqueued and recorded; none of the rest is applied
+					LOGGER.error("Could not record work-order {}", ids[i], e);
+					for (int rest = i; rest < count; rest++) {
+						if (failures[rest] == null) {
+							failures[rest] = NOT_RECORDED_MESSAGE;
+						}
+					}
+					break;
+				}
+				final int type = types[i].ordinal();
+				if (classSlots[type] == null) {
+					classSlots[type] = new int[count - i];
+					classIds[type] = new long[count - i];
+					classTimes[type] = new long[count - i];
+				}
+				final int index = classCounts[type]++;
+				classSlots[type][index] = workOrderStore.allocate(ids[i], times[i], nanos[i], types[i], timesToLive[i]);
+				classIds[type][index] = ids[i];
+				classTimes[type][index] = times[i];
+				scheduleExpiry(classSlots[type][index]);
+				events.append(WorkOrderEventType.ENQUEUED, ids[i], types[i], workOrderStore.size());
+			}
+			for (final ClassTypeEnum type : CLASS_TYPES) {
+				addAll(type, classSlots[type.ordinal()], classIds[type.ordinal()], classTimes[type.ordinal()],
+						classCounts[type.ordinal()]);
+			}
+			served = serveWaiting();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		notifyCommitted();
+		complete(served);
+
+		final List<WorkOrderResponse> responseList = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final WorkOrderRequest workOrderRequest = workOrderRequests.get(i);
+			final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+					.id(workOrderRequest == null ? null : workOrderRequest.getId())
+					.time(failures[i] == null ? workOrderRequest.getTime() : null)
+					.message(failures[i])
+					.build();
+			responseList.add(workOrderResponse);
+		}
+		return responseList;
+	}
+
 	@Override
 	public WorkOrderResponse dequeue() {
-		if (workOrderQueue.isEmpty()) {
+		final WorkOrderResponse workOrderResponse = poll(now());
+		if (workOrderResponse == null) {
 			throw new WorkOrderException("Queue is empty");
 		}
+		return workOrderResponse;
+	}
+
+	/**
+	 * Retrieves and removes the top work-order as of a given time
+	 *
+	 * @param asOf The time ranks are evaluated at, in epoch seconds
+	 * @return The removed work-order, or null if the queue is empty
+	 */
+	WorkOrderResponse poll(final long asOf) {
+		checkWritable();
+		final WorkOrderResponse workOrderResponse;
+		final long stamp = lock.writeLock();
+		try {
+			workOrderResponse = removeTop(asOf);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		if (workOrderResponse != null) {
+			notifyCommitted();
+		}
+		return workOrderResponse;
+	}
+
+	@Override
+	public WorkOrderResponse dequeue(final Duration timeout) {
+		if (timeout.isNegative()) {
+			throw new WorkOrderException("Timeout must not be negative");
+		}
+
+		final CompletableFuture<WorkOrderResponse> dequeued = new CompletableFuture<>();
+		final PendingDequeue pendingDequeue = dequeueWhenAvailable(dequeued::complete);
+		try {
+			return dequeued.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (final TimeoutException e) {
+			if (cancelDequeue(pendingDequeue)) {
+				throw new WorkOrderException("Queue is empty");
+			}
+			return pendingDequeue.getWorkOrder();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			if (cancelDequeue(pendingDequeue)) {
+				throw new WorkOrderException("Interrupted while waiting for a work-order");
+			}
+			return pendingDequeue.getWorkOrder();
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	@Override
+	public PendingDequeue dequeueWhenAvailable(final Consumer<WorkOrderResponse> callback) {
+		checkWritable();
+		final PendingDequeue pendingDequeue = new PendingDequeue(callback);
+		final long asOf = now();
+		final long stamp = lock.writeLock();
+		try {
+			final WorkOrderResponse workOrderResponse = removeTop(asOf);
+			if (workOrderResponse == null) {
+				pendingDequeues.add(pendingDequeue);
+				return pendingDequeue;
+			}
+			pendingDequeue.assign(workOrderResponse);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		notifyCommitted();
+		pendingDequeue.complete();
+		return pendingDequeue;
+	}
+
+	@Override
+	public boolean cancelDequeue(final PendingDequeue pendingDequeue) {
+		final long stamp = lock.writeLock();
+		try {
+			return pendingDequeues.remove(pendingDequeue);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public WorkOrderResponse lease(final Duration leaseDuration) {
+		checkWritable();
+		if (leaseDuration.isNegative() || leaseDuration.isZero()) {
+			throw new WorkOrderException("Lease duration must be positive");
+		}
 
-		final Long id = workOrderQueue.poll();
-		final WorkOrderRequest workOrder = workOrderMap.remove(id);
+		final long asOf = now();
+		final long deadline = clock.millis() + leaseDuration.toMillis();
+		final WorkOrderResponse workOrderResponse;
+		final long stamp = lock.writeLock();
+		try {
+			redeliverDue();
+			final ClassTypeEnum type = topClassType(asOf);
+			if (type == null) {
+				throw new WorkOrderException("Queue is empty");
+			}
+			final int slot = queueOf(type).peek();
+			leases.add(workOrderStore.id(slot), workOrderStore.time(slot), workOrderStore.nano(slot), type,
+					workOrderStore.timeToLive(slot), deadline);
+			workOrderResponse = WorkOrderResponse.builder()
+					.id(workOrderStore.id(slot))
+					.time(timeOf(slot))
+					.leaseDeadline(LocalDateTime.ofInstant(Instant.ofEpochMilli(deadline), clock.getZone()))
+					.build();
+			detach(slot, WorkOrderEventType.LEASED);
+			publish(type);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return workOrderResponse;
+	}
+
+	@Override
+	public WorkOrderResponse acknowledge(final Long id) {
+		checkWritable();
+		final LocalDateTime time;
+		final long stamp = lock.writeLock();
+		try {
+			time = endLease(id);
+			if (time == null) {
+				throw new WorkOrderNotFoundException("No such lease found");
+			}
+			recordProcessed(id);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		notifyCommitted();
 
 		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
-				.id(workOrder.getId())
-				.time(workOrder.getTime())
+				.id(id)
+				.time(time)
 				.build();
 		return workOrderResponse;
 	}
 
+	/**
+	 * Puts every work-order whose lease ran out back into the queue at its original rank and hands
+	 * them to waiting dequeues. Dequeues and leases do this on their own for the leases that are
+	 * due by then; calling it regularly makes redelivered work-orders visible to getIds and
+	 * getPosition too. Does nothing while the queue is read-only.
+	 *
+	 * @return The number of redelivered work-orders
+	 */
+	public int redeliver() {
+		if (readOnly) {
+			return 0;
+		}
+		final int redelivered;
+		final PendingDequeue[] served;
+		final long stamp = lock.writeLock();
+		try {
+			redelivered = redeliverDue();
+			served = redelivered > 0 ? serveWaiting() : null;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		if (served != null) {
+			notifyCommitted();
+			complete(served);
+		}
+		return redelivered;
+	}
+
+	/**
+	 * @return The number of leased work-orders that are not acknowledged yet
+	 */
+	public int leaseCount() {
+		return leases.size();
+	}
+
+	/**
+	 * Offers the top work-order as of the time of a tournament tree to one of its leaves, or
+	 * clears the leaf if the queue is empty. Reads the published snapshot without locking.
+	 *
+	 * @param tree Tree merging this queue with others
+	 * @param leaf The leaf of this queue
+	 */
+	void offerHead(final TournamentTree tree, final int leaf) {
+		final QueueSnapshot queue = snapshot;
+		ClassTypeEnum top = null;
+		long topTime = 0;
+		long topId = 0;
+		for (final ClassTypeEnum type : CLASS_TYPES) {
+			final OrderStatisticTree classTree = queue.classTree(type);
+			if (classTree.isEmpty()) {
+				continue;
+			}
+			final OrderStatisticTree.Cursor head = classTree.cursor(0);
+			if (top == null
+					|| tree.ranking().compare(type, head.time(), head.id(), top, topTime, topId, tree.asOf()) < 0) {
+				top = type;
+				topTime = head.time();
+				topId = head.id();
+			}
+		}
+		if (top == null) {
+			tree.clear(leaf);
+		} else {
+			tree.offer(leaf, top, topTime, topId);
+		}
+	}
+
+	@Override
+	public List<WorkOrderResponse> dequeueBatch(final int count) {
+		checkWritable();
+		if (count <= 0) {
+			throw new WorkOrderException("Count must be positive");
+		}
+
+		final long asOf = now();
+		final long[] ids;
+		final LocalDateTime[] times;
+		final boolean[] changed = new boolean[CLASS_TYPES.length];
+		int dequeued;
+		final long stamp = lock.writeLock();
+		try {
+			redeliverDue();
+			if (workOrderStore.size() == 0) {
+				throw new WorkOrderException("Queue is empty");
+			}
+			ids = new long[Math.min(count, workOrderStore.size())];
+			times = new LocalDateTime[ids.length];
+			dequeued = ids.length;
+			for (int i = 0; i < ids.length; i++) {
+				final ClassTypeEnum type = topClassType(asOf);
+				final int slot = queueOf(type).peek();
+				ids[i] = workOrderStore.id(slot);
+				times[i] = timeOf(slot);
+				try {
+					removeFromQueue(slot, WorkOrderEventType.DEQUEUED);
+				} catch (final RuntimeException e) {
+					if (i == 0) {
+						throw e;
+					}
+					// Answer with the work-orders that were dequeued and recorded before the failure
+					LOGGER.error("Could not record the dequeue of work-order {}", ids[i], e);
+					dequeued = i;
+					break;
+				}
+				changed[type.ordinal()] = true;
+			}
+			for (final ClassTypeEnum type : CLASS_TYPES) {
+				if (changed[type.ordinal()]) {
+					publish(type);
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		notifyCommitted();
+
+		final List<WorkOrderResponse> responseList = new ArrayList<>(dequeued);
+		for (int i = 0; i < dequeued; i++) {
+			final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+					.id(ids[i])
+					.time(times[i])
+					.build();
+			responseList.add(workOrderResponse);
+		}
+		return responseList;
+	}
+
 	@Override
 	public List<WorkOrderResponse> getIds() {
-		final List<WorkOrderResponse> responseList = new ArrayList<>();
-		final Queue<Long> tempQueue = new PriorityQueue<>(workOrderQueue);
+		return getIds(0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<WorkOrderResponse> getIds(final int offset, final int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new WorkOrderException("Offset and limit must not be negative");
+		}
 
-		while (!tempQueue.isEmpty()) {
+		final QueueSnapshot queue = snapshot;
+		final List<WorkOrderResponse> responseList = new ArrayList<>(
+				Math.min(limit, Math.max(0, queue.size() - offset)));
+		queue.forEach(offset, limit, now(), (id, time) -> {
 			final WorkOrderResponse response = WorkOrderResponse.builder()
-					.id(tempQueue.poll())
+					.id(id)
 					.build();
 			responseList.add(response);
-		}
+		});
 		return responseList;
 	}
 
 	@Override
 	public WorkOrderResponse delete(final Long id) {
-		if (!workOrderQueue.contains(id)) {
-			throw new WorkOrderNotFoundException("No such ID found in the queue");
+		checkWritable();
+		final LocalDateTime time;
+		final long stamp = lock.writeLock();
+		try {
+			final int slot = workOrderStore.slotOf(id);
+			if (slot != WorkOrderRecordStore.NO_SLOT) {
+				time = timeOf(slot);
+				final ClassTypeEnum type = workOrderStore.classType(slot);
+				removeFromQueue(slot, WorkOrderEventType.DELETED);
+				publish(type);
+			} else {
+				// A leased work-order is already out of the queue; deleting it ends the lease
+				time = endLease(id);
+				if (time == null) {
+					throw new WorkOrderNotFoundException("No such ID found in the queue");
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
 		}
-		workOrderQueue.remove(id);
-		final WorkOrderRequest workOrder = workOrderMap.remove(id);
+		notifyCommitted();
 
 		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
-				.id(workOrder.getId())
-				.time(workOrder.getTime())
+				.id(id)
+				.time(time)
 				.build();
 		return workOrderResponse;
 	}
 
 	@Override
 	public WorkOrderResponse getPosition(final Long id) {
-		int position = 0;
-		final Queue<Long> tempQueue = new PriorityQueue<>(workOrderQueue);
-		while (!tempQueue.isEmpty()) {
-			if (Objects.equals(tempQueue.poll(), id)) {
-				final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
-						.position(position)
-						.build();
-				return workOrderResponse;
-			}
-			position++;
+		final int position = findPosition(id, now());
+		if (position < 0) {
+			throw new WorkOrderNotFoundException("No such ID found in the queue");
 		}
-		throw new WorkOrderNotFoundException("No such ID found in the queue");
+
+		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+				.position(position)
+				.build();
+		return workOrderResponse;
 	}
 
 	@Override
 	public List<WorkOrderResponse> computeWaitingTime(final WorkOrderRequest workOrderRequest) {
-		if (workOrderQueue.isEmpty()) {
+		final QueueSnapshot queue = snapshot;
+		if (queue.isEmpty()) {
 			throw new WorkOrderException("Queue is empty");
 		}
 
-		final List<WorkOrderResponse> responseList = new ArrayList<>();
-		for (final WorkOrderRequest wo : workOrderMap.values()) {
-			final long seconds = ChronoUnit.SECONDS.between(wo.getTime(), workOrderRequest.getTime());
+		final List<WorkOrderResponse> responseList = new ArrayList<>(queue.size());
+		computeWaitingTime(queue, toEpochSecond(workOrderRequest.getTime()), (id, waitingTime) -> {
 			final WorkOrderResponse response = WorkOrderResponse.builder()
-					.id(wo.getId())
-					.waitingTime(seconds)
+					.id(id)
+					.waitingTime(waitingTime)
 					.build();
 			responseList.add(response);
-		}
+		});
 		return responseList;
 	}
 
-	private void process(final WorkOrderRequest workOrderRequest) {
-		final Long id = workOrderRequest.getId();
-		final ClassTypeEnum type = computeClassType(id);
-		classTypeGroupedIdsMap.computeIfAbsent(type, t -> new ArrayList<>())
-				.add(id);
-		final double rank = computeRank(workOrderRequest, type);
-		rankedMap.put(id, rank);
+	@Override
+	public void computeWaitingTime(final WorkOrderRequest workOrderRequest, final WaitingTimeVisitor visitor) {
+		computeWaitingTime(snapshot, toEpochSecond(workOrderRequest.getTime()), visitor);
+	}
+
+	@Override
+	public List<WaitingTimeStatistics> computeWaitingTimeStatistics(final WorkOrderRequest workOrderRequest) {
+		final QueueSnapshot queue = snapshot;
+		final long asOf = toEpochSecond(workOrderRequest.getTime());
+		final List<WaitingTimeStatistics> statisticsList = new ArrayList<>(CLASS_TYPES.length);
+		for (final ClassTypeEnum type : CLASS_TYPES) {
+			final OrderStatisticTree tree = queue.classTree(type);
+			final int count = tree.size();
+			if (count == 0) {
+				statisticsList.add(WaitingTimeStatistics.builder()
+						.classType(type)
+						.count(0)
+						.build());
+				continue;
+			}
+			// The trees keep the sum of their enqueue times, so the total waiting time needs no scan
+			final long sum = (long) count * asOf - tree.timeSum();
+			statisticsList.add(WaitingTimeStatistics.builder()
+					.classType(type)
+					.count(count)
+					.mean((double) sum / count)
+					.max(asOf - tree.cursor(0).time())
+					.p50(percentile(tree, 50, asOf))
+					.p95(percentile(tree, 95, asOf))
+					.p99(percentile(tree, 99, asOf))
+					.build());
+		}
+		return statisticsList;
+	}
+
+	@Override
+	public List<WorkOrderResponse> query(final WorkOrderQuery query) {
+		final int limit = query.getLimit() == null ? Integer.MAX_VALUE : query.getLimit();
+		if (limit < 0) {
+			throw new WorkOrderException("Limit must not be negative");
+		}
+		final QueueSnapshot queue = snapshot;
+		final long asOf = now();
+		// A waiting time bound is an enqueue time bound as of now; the tighter of each pair applies
+		long from = query.getFrom() == null ? Long.MIN_VALUE : toEpochSecond(query.getFrom());
+		long to = query.getTo() == null ? Long.MAX_VALUE : toEpochSecond(query.getTo());
+		if (query.getMaxWaitingTime() != null) {
+			from = Math.max(from, asOf - query.getMaxWaitingTime());
+		}
+		if (query.getMinWaitingTime() != null) {
+			to = Math.min(to, asOf - query.getMinWaitingTime());
+		}
+		final long minId = query.getMinId() == null ? Long.MIN_VALUE : query.getMinId();
+		final long maxId = query.getMaxId() == null ? Long.MAX_VALUE : query.getMaxId();
+
+		final List<WorkOrderResponse> responseList = new ArrayList<>();
+		if (limit == 0 || from > to || minId > maxId) {
+			return responseList;
+		}
+		queue.forEachBetween(query.getClassType(), from, to, (id, time) -> {
+			if (id >= minId && id <= maxId) {
+				responseList.add(WorkOrderResponse.builder()
+						.id(id)
+						.waitingTime(asOf - time)
+						.build());
+			}
+			return responseList.size() < limit;
+		});
+		return responseList;
 	}
 
 	/**
-	 * Computes the class type based on the value of id
-	 * 
-	 * @param id The id of work-order
-	 * @return Class type of id
+	 * Removes every work-order whose time-to-live has run out. The expirations are reported to the
+	 * mutation listeners as removals and appear as EXPIRED in the change feed. Does nothing while
+	 * the queue is read-only: a replica receives the expirations of its primary as removals.
+	 *
+	 * @return The number of expired work-orders
 	 */
-	private ClassTypeEnum computeClassType(final Long id) {
-		if (id % 3 == 0 && id % 5 == 0) {
-			return ClassTypeEnum.MANAGEMENT_OVERRIDE;
-		} else if (id % 3 == 0) {
-			return ClassTypeEnum.PRIORITY;
-		} else if (id % 5 == 0) {
-			return ClassTypeEnum.VIP;
-		} else {
-			return ClassTypeEnum.NORMAL;
+	public int expire() {
+		if (readOnly) {
+			return 0;
+		}
+		final long asOf = now();
+		final boolean[] changed = new boolean[CLASS_TYPES.length];
+		final int[] expired = new int[1];
+		final long stamp = lock.writeLock();
+		try {
+			if (expiryWheel == null) {
+				return 0;
+			}
+			// Collected first: the wheel must not be left half advanced if a removal fails
+			final int[][] due = { new int[16] };
+			final int[] dueCount = new int[1];
+			expiryWheel.advance(asOf, slot -> {
+				if (dueCount[0] == due[0].length) {
+					due[0] = Arrays.copyOf(due[0], dueCount[0] * 2);
+				}
+				due[0][dueCount[0]++] = slot;
+			});
+			final long[] expiredIds = new long[dueCount[0]];
+			final long[] expiredTimes = new long[dueCount[0]];
+			final int[] expiredNanos = new int[dueCount[0]];
+			try {
+				for (; expired[0] < dueCount[0]; expired[0]++) {
+					final int slot = due[0][expired[0]];
+					final long id = workOrderStore.id(slot);
+					final long time = workOrderStore.time(slot);
+					final int nano = workOrderStore.nano(slot);
+					changed[workOrderStore.classType(slot).ordinal()] = true;
+					removeFromQueue(slot, WorkOrderEventType.EXPIRED);
+					expiredIds[expired[0]] = id;
+					expiredTimes[expired[0]] = time;
+					expiredNanos[expired[0]] = nano;
+				}
+			} finally {
+				// Work-orders not removed because a listener failed are due again at the next sweep
+				for (int i = expired[0]; i < dueCount[0]; i++) {
+					scheduleExpiry(due[0][i]);
+				}
+				for (final ClassTypeEnum type : CLASS_TYPES) {
+					if (changed[type.ordinal()]) {
+						publish(type);
+					}
+				}
+				expiredWorkOrders = expiredWorkOrders.with(expiredIds, expiredTimes, expiredNanos, expired[0]);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		if (expired[0] > 0) {
+			notifyCommitted();
 		}
+		return expired[0];
+	}
+
+	@Override
+	public List<WorkOrderResponse> getExpired() {
+		final ExpiredWorkOrders expired = expiredWorkOrders;
+		final List<WorkOrderResponse> responseList = new ArrayList<>(expired.size());
+		expired.forEach((id, time, nano) -> responseList.add(WorkOrderResponse.builder()
+				.id(id)
+				.time(LocalDateTime.ofEpochSecond(time, nano, ZoneOffset.UTC))
+				.build()));
+		return responseList;
+	}
+
+	private static void computeWaitingTime(final QueueSnapshot queue, final long asOf,
+			final WaitingTimeVisitor visitor) {
+		queue.forEachUnordered((id, time) -> visitor.visit(id, asOf - time));
 	}
 
 	/**
-	 * Computes the rank of work-order based on its type
-	 * 
-	 * @param workOrderRequest The work-order whose rank is to be computed
-	 * @param type             The class type of work-order
-	 * @return rank of work-order
+	 * Selects the nearest-rank percentile of the waiting times of a class. The class is ordered by
+	 * enqueue time, i.e. by waiting time descending, so this is an O(log n) select by index.
+	 *
+	 * @param tree    Non-empty tree of the class
+	 * @param percent The percentile, between 1 and 100
+	 * @param asOf    The time waiting times are measured at, in epoch seconds
+	 * @return The waiting time at the percentile
 	 */
-	private double computeRank(final WorkOrderRequest workOrderRequest, final ClassTypeEnum type) {
-		final long seconds = ChronoUnit.SECONDS.between(workOrderRequest.getTime(), LocalDateTime.now());
-		if (ClassTypeEnum.PRIORITY == type) {
-			return Math.max(3, seconds * Math.log(seconds));
-		} else if (ClassTypeEnum.VIP == type) {
-			return Math.max(4, 2 * seconds * Math.log(seconds));
-		} else {
-			return seconds;
+	private static long percentile(final OrderStatisticTree tree, final int percent, final long asOf) {
+		final int size = tree.size();
+		final int rank = (int) (((long) size * percent + 99) / 100);
+		return asOf - tree.cursor(size - rank).time();
+	}
+
+	/**
+	 * Removes the top work-order and publishes the change. Must be called while holding the write
+	 * lock.
+	 *
+	 * @param asOf The time ranks are evaluated at, in epoch seconds
+	 * @return The removed work-order, or null if the queue is empty
+	 */
+	private WorkOrderResponse removeTop(final long asOf) {
+		redeliverDue();
+		final ClassTypeEnum type = topClassType(asOf);
+		if (type == null) {
+			return null;
 		}
+		final int slot = queueOf(type).peek();
+		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+				.id(workOrderStore.id(slot))
+				.time(timeOf(slot))
+				.build();
+		removeFromQueue(slot, WorkOrderEventType.DEQUEUED);
+		publish(type);
+		return workOrderResponse;
 	}
 
 	/**
-	 * Retrieves the class type of work-order id
-	 * 
-	 * @param id The id of work-order
-	 * @return Class type of id
+	 * Puts the work-orders whose lease ran out back into the queue and publishes the change. Must
+	 * be called while holding the write lock.
+	 *
+	 * @return The number of redelivered work-orders
 	 */
-	private ClassTypeEnum getClassTypeById(final Long id) {
-		for (final ClassTypeEnum classType : classTypeGroupedIdsMap.keySet()) {
-			final List<Long> idList = classTypeGroupedIdsMap.get(classType);
-			if (idList.contains(id)) {
-				return classType;
+	private int redeliverDue() {
+		if (leases.isEmpty()) {
+			return 0;
+		}
+		final long now = clock.millis();
+		final boolean[] changed = new boolean[CLASS_TYPES.length];
+		int redelivered = 0;
+		for (int entry = leases.peek(); entry != LeaseHeap.NO_ENTRY && leases.deadline(entry) <= now;
+				entry = leases.peek()) {
+			final long id = leases.id(entry);
+			final ClassTypeEnum type = leases.classType(entry);
+			if (!workOrderStore.contains(id)) {
+				final int slot = workOrderStore.allocate(id, leases.time(entry), leases.nano(entry), type,
+						leases.timeToLive(entry));
+				queueOf(type).add(slot);
+				indexOf(type).add(id, leases.time(entry));
+				scheduleExpiry(slot);
+				events.append(WorkOrderEventType.REDELIVERED, id, type, workOrderStore.size());
+				changed[type.ordinal()] = true;
+				redelivered++;
 			}
+			leases.remove(entry);
 		}
-		return null;
+		for (final ClassTypeEnum type : CLASS_TYPES) {
+			if (changed[type.ordinal()]) {
+				publish(type);
+			}
+		}
+		return redelivered;
 	}
 
 	/**
-	 * Retrieves the rank of work-order id
-	 * 
-	 * @param id The id of work-order
-	 * @return The rank of id
+	 * Ends the lease of a work-order for good and reports its removal to the mutation listeners.
+	 * Must be called while holding the write lock.
+	 *
+	 * @return The enqueue time of the work-order, or null if it is not leased
 	 */
-	private Double getRankById(final Long id) {
-		return rankedMap.get(id);
+	private LocalDateTime endLease(final long id) {
+		final int entry = leases.entryOf(id);
+		if (entry == LeaseHeap.NO_ENTRY) {
+			return null;
+		}
+		final LocalDateTime time = LocalDateTime.ofEpochSecond(leases.time(entry), leases.nano(entry), ZoneOffset.UTC);
+		notifyRemoved(id);
+		leases.remove(entry);
+		return time;
+	}
+
+	/**
+	 * Hands the top work-orders to the waiting dequeues, oldest dequeue first. Must be called while
+	 * holding the write lock; the served dequeues are completed by {@link #complete} after unlocking.
+	 * If a dequeue cannot be recorded, it and the dequeues after it keep waiting.
+	 *
+	 * @return The served dequeues, or null if none were waiting
+	 */
+	private PendingDequeue[] serveWaiting() {
+		if (pendingDequeues.isEmpty() || workOrderStore.size() == 0) {
+			return null;
+		}
+		final long asOf = now();
+		final PendingDequeue[] served = new PendingDequeue[Math.min(pendingDequeues.size(), workOrderStore.size())];
+		for (int i = 0; i < served.length; i++) {
+			final WorkOrderResponse workOrderResponse;
+			try {
+				workOrderResponse = removeTop(asOf);
+			} catch (final RuntimeException e) {
+				// The mutation that woke the dequeues is applied already, so it must not fail with them
+				LOGGER.error("Could not record a dequeue for a waiting request", e);
+				return Arrays.copyOf(served, i);
+			}
+			served[i] = pendingDequeues.poll();
+			served[i].assign(workOrderResponse);
+		}
+		return served;
+	}
+
+	private static void complete(final PendingDequeue[] served) {
+		if (served != null) {
+			for (final PendingDequeue pendingDequeue : served) {
+				pendingDequeue.complete();
+			}
+		}
 	}
 
 	/**
-	 * Custom comparator to order elements in the priority queue
+	 * Makes the current state of the index of a class visible to lock-free readers. Must be called
+	 * while holding the write lock.
+	 *
+	 * @param type The class type whose index changed
 	 */
-	class WorkOrderComparator implements Comparator<Long> {
+	private void publish(final ClassTypeEnum type) {
+		snapshot = snapshot.with(type, indexOf(type).snapshot());
+	}
 
-		/**
-		 * Ranks all Management Override type of work-orders on top of the queue.
-		 *
-		 * Ranks the remaining type of work-orders based on their rank.
-		 *
-		 * @param id1 the first object to be compared.
-		 * @param id2 the second object to be compared.
-		 * @return int value
-		 */
-		@Override
-		public int compare(final Long id1, final Long id2) {
-			final ClassTypeEnum type1 = getClassTypeById(id1);
-			final ClassTypeEnum type2 = getClassTypeById(id2);
-			final Double rank1 = getRankById(id1);
-			final Double rank2 = getRankById(id2);
+	/**
+	 * Finds the class whose oldest work-order is on top of the queue by comparing only the heads
+	 * of the class heaps. Must be called while holding the write lock.
+	 *
+	 * @param asOf The time ranks are evaluated at, in epoch seconds
+	 * @return Class type of the top work-order, or null if the queue is empty
+	 */
+	private ClassTypeEnum topClassType(final long asOf) {
+		final WorkOrderRanking ranking = snapshot.ranking();
+		ClassTypeEnum top = null;
+		int topSlot = WorkOrderRecordStore.NO_SLOT;
+		for (final ClassTypeEnum type : CLASS_TYPES) {
+			final WorkOrderHeap workOrderQueue = queueOf(type);
+			if (workOrderQueue.isEmpty()) {
+				continue;
+			}
+			final int head = workOrderQueue.peek();
+			if (top == null || ranking.compare(type, workOrderStore.time(head), workOrderStore.id(head),
+					top, workOrderStore.time(topSlot), workOrderStore.id(topSlot), asOf) < 0) {
+				top = type;
+				topSlot = head;
+			}
+		}
+		return top;
+	}
 
-			if (ClassTypeEnum.MANAGEMENT_OVERRIDE == type1 && ClassTypeEnum.MANAGEMENT_OVERRIDE == type2) {
-				return rank2.compareTo(rank1);
-			} else if (ClassTypeEnum.MANAGEMENT_OVERRIDE == type1) {
+	/**
+	 * Looks up the position of id. Only the lookup of its class and time in the record store runs
+	 * under the read lock, together with reading the snapshot published with it; the position is
+	 * then derived from that snapshot without holding the lock.
+	 *
+	 * @param id   The id of work-order
+	 * @param asOf The time ranks are evaluated at, in epoch seconds
+	 * @return The position of id, or -1 if it is not in the queue
+	 */
+	private int findPosition(final long id, final long asOf) {
+		final QueueSnapshot queue;
+		final ClassTypeEnum classType;
+		final long time;
+		final long stamp = lock.readLock();
+		try {
+			final int slot = workOrderStore.slotOf(id);
+			if (slot == WorkOrderRecordStore.NO_SLOT) {
 				return -1;
-			} else if (ClassTypeEnum.MANAGEMENT_OVERRIDE == type2) {
-				return 1;
-			} else {
-				return rank2.compareTo(rank1);
 			}
+			queue = snapshot;
+			classType = workOrderStore.classType(slot);
+			time = workOrderStore.time(slot);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		return queue.positionOf(id, classType, time, asOf);
+	}
+
+	/**
+	 * Inserts a work-order unless its id is queued, without publishing. Must be called while
+	 * holding the write lock.
+	 *
+	 * @return true if it was inserted
+	 */
+	private boolean insert(final long id, final long time, final int nano, final ClassTypeEnum type,
+			final int timeToLive) {
+		if (workOrderStore.contains(id)) {
+			return false;
+		}
+		notifyEnqueued(id, time, nano, type, timeToLive);
+		final int slot = workOrderStore.allocate(id, time, nano, type, timeToLive);
+		queueOf(type).add(slot);
+		indexOf(type).add(id, time);
+		scheduleExpiry(slot);
+		events.append(WorkOrderEventType.ENQUEUED, id, type, workOrderStore.size());
+		return true;
+	}
+
+	/**
+	 * Removes a work-order if its id is queued, without publishing. Must be called while holding
+	 * the write lock.
+	 *
+	 * @return The class type of the removed work-order, or null if the id is not queued
+	 */
+	private ClassTypeEnum remove(final long id) {
+		final int slot = workOrderStore.slotOf(id);
+		if (slot == WorkOrderRecordStore.NO_SLOT) {
+			return null;
+		}
+		final ClassTypeEnum type = workOrderStore.classType(slot);
+		removeFromQueue(slot, WorkOrderEventType.DELETED);
+		return type;
+	}
+
+	/**
+	 * Schedules the expiry of a stored work-order, or cancels it if neither the work-order nor its
+	 * class has a time-to-live. The deadline is counted from the time of the work-order. Must be
+	 * called while holding the write lock.
+	 *
+	 * @param slot The store slot of work-order
+	 */
+	private void scheduleExpiry(final int slot) {
+		final int timeToLive = workOrderStore.timeToLive(slot);
+		final long effective = timeToLive > 0 ? timeToLive
+				: classTimesToLive[workOrderStore.classType(slot).ordinal()];
+		if (effective > 0) {
+			if (expiryWheel == null) {
+				expiryWheel = new TimingWheel(now());
+			}
+			expiryWheel.schedule(slot, workOrderStore.time(slot) + effective);
+		} else if (expiryWheel != null) {
+			expiryWheel.cancel(slot);
+		}
+	}
+
+	private static int timeToLiveOf(final WorkOrderRequest workOrderRequest) {
+		if (workOrderRequest.getTtl() == null) {
+			return 0;
+		}
+		if (workOrderRequest.getTtl() <= 0) {
+			throw new WorkOrderException(TTL_MESSAGE);
+		}
+		// Anything longer than 68 years never expires in practice, and an int keeps the records compact
+		return (int) Math.min(workOrderRequest.getTtl(), Integer.MAX_VALUE);
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new WorkOrderException(READ_ONLY_MESSAGE);
+		}
+	}
+
+	/**
+	 * Removes a work-order from the heap and position index of its class and releases its record,
+	 * once the mutation listeners have recorded the removal. The caller publishes the change. Must
+	 * be called while holding the write lock.
+	 *
+	 * @param slot   The store slot of work-order
+	 * @param reason DEQUEUED, DELETED or EXPIRED, for the change feed
+	 */
+	private void removeFromQueue(final int slot, final WorkOrderEventType reason) {
+		final long id = workOrderStore.id(slot);
+		notifyRemoved(id);
+		if (reason == WorkOrderEventType.DEQUEUED) {
+			recordProcessed(id);
+		}
+		detach(slot, reason);
+	}
+
+	/**
+	 * Tells why an id cannot be enqueued. Must be called while holding the write lock.
+	 *
+	 * @return The rejection message, or null if the id can be enqueued
+	 */
+	private String duplicateOf(final long id) {
+		if (workOrderStore.contains(id) || leases.contains(id)) {
+			return ID_EXISTS_MESSAGE;
+		}
+		if (processedIds != null && processedIds.contains(id, clock.millis())) {
+			return ID_PROCESSED_MESSAGE;
+		}
+		return null;
+	}
+
+	private void recordProcessed(final long id) {
+		if (processedIds != null) {
+			processedIds.add(id, clock.millis());
+		}
+	}
+
+	/**
+	 * Removes a work-order like {@link #removeFromQueue} but without telling the mutation
+	 * listeners, e.g. when it is leased. Must be called while holding the write lock.
+	 */
+	private void detach(final int slot, final WorkOrderEventType reason) {
+		final ClassTypeEnum type = workOrderStore.classType(slot);
+		final long id = workOrderStore.id(slot);
+		indexOf(type).remove(id, workOrderStore.time(slot));
+		queueOf(type).remove(slot);
+		if (expiryWheel != null) {
+			expiryWheel.cancel(slot);
+		}
+		workOrderStore.release(slot);
+		events.append(reason, id, type, workOrderStore.size());
+	}
+
+	/**
+	 * Loads a batch of stored work-orders into the heap and position index of their class and
+	 * publishes the change. Must be called while holding the write lock.
+	 */
+	private void addAll(final ClassTypeEnum type, final int[] slots, final long[] ids, final long[] times,
+			final int count) {
+		if (count > 0) {
+			queueOf(type).addAll(slots, count);
+			indexOf(type).addAll(ids, times, count);
+			publish(type);
+		}
+	}
+
+	/**
+	 * Reports an insertion to the mutation listeners before it is applied. Must be called while
+	 * holding the write lock.
+	 */
+	private void notifyEnqueued(final long id, final long time, final int nano, final ClassTypeEnum type,
+			final int timeToLive) {
+		for (final WorkOrderMutationListener listener : mutationListeners) {
+			listener.enqueued(id, time, nano, type, timeToLive);
+		}
+	}
+
+	/**
+	 * Reports a removal to the mutation listeners before it is applied. Must be called while
+	 * holding the write lock.
+	 */
+	private void notifyRemoved(final long id) {
+		for (final WorkOrderMutationListener listener : mutationListeners) {
+			listener.removed(id);
+		}
+	}
+
+	private void notifyCommitted() {
+		for (final WorkOrderMutationListener listener : mutationListeners) {
+			listener.committed();
 		}
+	}
+
+	private LocalDateTime timeOf(final int slot) {
+		return LocalDateTime.ofEpochSecond(workOrderStore.time(slot), workOrderStore.nano(slot), ZoneOffset.UTC);
+	}
+
+	private WorkOrderHeap queueOf(final ClassTypeEnum type) {
+		return workOrderQueues[type.ordinal()];
+	}
 
+	private OrderStatisticTree indexOf(final ClassTypeEnum type) {
+		return workOrderIndexes[type.ordinal()];
+	}
+
+	long now() {
+		return toEpochSecond(LocalDateTime.now(clock));
+	}
+
+	private static long toEpochSecond(final LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	/**
+	 * Computes the class type of id with the classification policy
+	 *
+	 * @param id The id of work-order
+	 * @return Class type of id
+	 */
+	private ClassTypeEnum computeClassType(final long id) {
+		final ClassTypeEnum type = classificationPolicy.classify(id);
+		if (type == null) {
+			throw new IllegalStateException("Classification policy returned no class type for id " + id);
+		}
+		return type;
 	}
 
 }
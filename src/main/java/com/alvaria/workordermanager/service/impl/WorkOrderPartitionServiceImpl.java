@@ -0,0 +1,284 @@
+package com.alvaria.workordermanager.service.impl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.queue.TournamentTree;
+import com.alvaria.workordermanager.queue.WorkOrderRanking;
+import com.alvaria.workordermanager.service.WorkOrderManagerService;
+import com.alvaria.workordermanager.service.WorkOrderPartitionService;
+import com.alvaria.workordermanager.storage.StorageProperties;
+
+/**
+ * Work-order queues sharded by partition key, e.g. one per service site.
+ *
+ * Every partition is an independent {@link WorkOrderManagerServiceImpl} with its own lock, heaps
+ * and indexes, so operations on different partitions never contend. The default partition is the
+ * queue served by the unpartitioned endpoints. Partitions are created by their first enqueue and
+ * live as long as the application. Persistence and replication only cover the default partition, so
+ * while either is enabled no other partition can be created (see
+ * {@link #restrictToDefaultPartition(String)}).
+ *
+ * A global dequeue merges the partitions with a {@link TournamentTree} over their heads, read from
+ * the published snapshots without locking. Only the winning partition is locked, to remove its
+ * top work-order, after which its leaf is refilled and replayed. The merge is consistent per
+ * partition but not across partitions: a work-order enqueued in another partition during the
+ * merge may be overtaken.
+ */
+@Service
+public class WorkOrderPartitionServiceImpl implements WorkOrderPartitionService {
+
+	private static final Pattern PARTITION_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+	private final WorkOrderManagerServiceImpl defaultPartition;
+	private final Map<String, WorkOrderManagerService> partitionsByKey = new ConcurrentHashMap<>();
+	private volatile BiFunction<String, WorkOrderManagerServiceImpl, WorkOrderManagerService> decorator = (key,
+			partition) -> partition;
+	private volatile String[] partitionKeys;
+	private volatile WorkOrderManagerServiceImpl[] partitions;
+	private volatile Clock clock = Clock.systemDefaultZone();
+	private volatile WorkOrderRanking ranking = WorkOrderRanking.DEFAULT;
+	private volatile Map<ClassTypeEnum, Duration> timesToLive = new EnumMap<>(ClassTypeEnum.class);
+	private volatile Duration deduplicationWindow;
+	private volatile int deduplicationMaxIds;
+	private volatile String defaultPartitionOnly;
+
+	@Autowired
+	public WorkOrderPartitionServiceImpl(final WorkOrderManagerServiceImpl defaultPartition) {
+		this.defaultPartition = defaultPartition;
+		this.partitionsByKey.put(DEFAULT_PARTITION, defaultPartition);
+		this.partitionKeys = new String[] { DEFAULT_PARTITION };
+		this.partitions = new WorkOrderManagerServiceImpl[] { defaultPartition };
+	}
+
+	/**
+	 * Replaces the clock of every partition, including the ones created later
+	 *
+	 * @param clock The clock to use
+	 */
+	public synchronized void setClock(final Clock clock) {
+		this.clock = clock;
+		for (final WorkOrderManagerServiceImpl partition : partitions) {
+			partition.setClock(clock);
+		}
+	}
+
+	/**
+	 * Replaces the ranking of every partition, including the ones created later
+	 *
+	 * @param ranking The ranking to use
+	 */
+	public synchronized void setRanking(final WorkOrderRanking ranking) {
+		this.ranking = ranking;
+		for (final WorkOrderManagerServiceImpl partition : partitions) {
+			partition.setRanking(ranking);
+		}
+	}
+
+	public WorkOrderRanking getRanking() {
+		return ranking;
+	}
+
+	/**
+	 * Replaces the class time-to-live of every partition, including the ones created later
+	 *
+	 * @param timesToLive Time-to-live per class type; classes left out never expire
+	 */
+	public synchronized void setTimesToLive(final Map<ClassTypeEnum, Duration> timesToLive) {
+		this.timesToLive = timesToLive.isEmpty() ? new EnumMap<>(ClassTypeEnum.class) : new EnumMap<>(timesToLive);
+		for (final WorkOrderManagerServiceImpl partition : partitions) {
+			partition.setTimesToLive(this.timesToLive);
+		}
+	}
+
+	/**
+	 * Sets up duplicate suppression of recently processed ids in every partition, including the
+	 * ones created later
+	 *
+	 * @param window How long an id is remembered, or null or zero to stop
+	 * @param maxIds Most ids remembered at a time per partition
+	 */
+	public synchronized void setDeduplication(final Duration window, final int maxIds) {
+		this.deduplicationWindow = window;
+		this.deduplicationMaxIds = maxIds;
+		for (final WorkOrderManagerServiceImpl partition : partitions) {
+			partition.setDeduplication(window, maxIds);
+		}
+	}
+
+	/**
+	 * Wraps every partition, including the ones created later, in the service returned by
+	 * {@link #partition(String)} and {@link #getOrCreatePartition(String)}, e.g. to meter it.
+	 * Internal operations such as the global dequeue use the partitions directly.
+	 *
+	 * @param decorator Maps a partition key and its queue to the service that fronts it
+	 */
+	public synchronized void setPartitionDecorator(
+			final BiFunction<String, WorkOrderManagerServiceImpl, WorkOrderManagerService> decorator) {
+		this.decorator = decorator;
+		final String[] keys = partitionKeys;
+		for (int i = 0; i < keys.length; i++) {
+			partitionsByKey.put(keys[i], decorator.apply(keys[i], partitions[i]));
+		}
+	}
+
+	/**
+	 * Confines the queue to the default partition for a feature that only covers that partition:
+	 * from now on creating another partition is rejected, rather than leave its work-orders
+	 * unprotected by the feature.
+	 *
+	 * @param feature The feature, named in the rejection
+	 * @throws IllegalStateException If other partitions exist already
+	 */
+	public synchronized void restrictToDefaultPartition(final String feature) {
+		if (partitionKeys.length > 1) {
+			throw new IllegalStateException(feature + " only covers the default partition, but partitions "
+					+ getPartitions() + " exist");
+		}
+		defaultPartitionOnly = feature;
+	}
+
+	/**
+	 * Removes the expired work-orders of every partition
+	 *
+	 * @return The number of expired work-orders
+	 */
+	public int expire() {
+		int expired = 0;
+		for (final WorkOrderManagerServiceImpl partition : partitions) {
+			expired += partition.expire();
+		}
+		return expired;
+	}
+
+	/**
+	 * Puts the work-orders whose lease ran out back into the queue of every partition
+	 *
+	 * @return The number of redelivered work-orders
+	 */
+	public int redeliver() {
+		int redelivered = 0;
+		for (final WorkOrderManagerServiceImpl partition : partitions) {
+			redelivered += partition.redeliver();
+		}
+		return redelivered;
+	}
+
+	@Override
+	public List<String> getPartitions() {
+		return List.of(partitionKeys);
+	}
+
+	@Override
+	public WorkOrderManagerService partition(final String partition) {
+		final WorkOrderManagerService workOrderManagerService = partition == null ? null
+				: partitionsByKey.get(partition);
+		if (workOrderManagerService == null) {
+			throw new WorkOrderNotFoundException("No such partition found");
+		}
+		return workOrderManagerService;
+	}
+
+	@Override
+	public WorkOrderManagerService getOrCreatePartition(final String partition) {
+		final WorkOrderManagerService workOrderManagerService = partition == null ? null
+				: partitionsByKey.get(partition);
+		return workOrderManagerService != null ? workOrderManagerService : createPartition(partition);
+	}
+
+	@Override
+	public WorkOrderResponse enqueue(final WorkOrderRequest workOrderRequest) {
+		final String partition = workOrderRequest.getPartition() == null ? DEFAULT_PARTITION
+				: workOrderRequest.getPartition();
+		final WorkOrderResponse workOrderResponse = getOrCreatePartition(partition).enqueue(workOrderRequest);
+		workOrderResponse.setPartition(partition);
+		return workOrderResponse;
+	}
+
+	@Override
+	public WorkOrderResponse dequeueGlobal() {
+		return dequeueGlobalBatch(1).get(0);
+	}
+
+	@Override
+	public List<WorkOrderResponse> dequeueGlobalBatch(final int count) {
+		if (count <= 0) {
+			throw new WorkOrderException("Count must be positive");
+		}
+
+		final String[] keys = partitionKeys;
+		final WorkOrderManagerServiceImpl[] shards = Arrays.copyOf(partitions, keys.length);
+		final TournamentTree tree = new TournamentTree(shards.length, shards[0].now(), ranking);
+		for (int i = 0; i < shards.length; i++) {
+			shards[i].offerHead(tree, i);
+		}
+
+		final List<WorkOrderResponse> responseList = new ArrayList<>(Math.min(count, 1024));
+		while (responseList.size() < count) {
+			final int winner = tree.winner();
+			if (winner == TournamentTree.NO_WINNER) {
+				break;
+			}
+			// The head may have been taken since it was offered; poll then returns the next one or null
+			final WorkOrderResponse workOrderResponse = shards[winner].poll(tree.asOf());
+			if (workOrderResponse != null) {
+				workOrderResponse.setPartition(keys[winner]);
+				responseList.add(workOrderResponse);
+			}
+			shards[winner].offerHead(tree, winner);
+		}
+		if (responseList.isEmpty()) {
+			throw new WorkOrderException("Queue is empty");
+		}
+		return responseList;
+	}
+
+	private synchronized WorkOrderManagerService createPartition(final String partition) {
+		if (partition == null || !PARTITION_PATTERN.matcher(partition).matches()) {
+			throw new WorkOrderException("Partition must be 1 to 64 letters, digits, '.', '_' or '-'");
+		}
+		final WorkOrderManagerService existing = partitionsByKey.get(partition);
+		if (existing != null) {
+			return existing;
+		}
+		if (defaultPartitionOnly != null) {
+			throw new WorkOrderException(defaultPartitionOnly + " only covers the default partition; use it instead of "
+					+ partition);
+		}
+		final StorageProperties storage = new StorageProperties();
+		storage.setOffHeap(defaultPartition.isOffHeap());
+		final WorkOrderManagerServiceImpl workOrderManagerService = new WorkOrderManagerServiceImpl(storage);
+		workOrderManagerService.setClassificationPolicy(defaultPartition.getClassificationPolicy());
+		workOrderManagerService.setClock(clock);
+		workOrderManagerService.setRanking(ranking);
+		workOrderManagerService.setTimesToLive(timesToLive);
+		workOrderManagerService.setDeduplication(deduplicationWindow, deduplicationMaxIds);
+		final WorkOrderManagerServiceImpl[] shards = Arrays.copyOf(partitions, partitions.length + 1);
+		shards[shards.length - 1] = workOrderManagerService;
+		final String[] keys = Arrays.copyOf(partitionKeys, partitionKeys.length + 1);
+		keys[keys.length - 1] = partition;
+		// Publish the partitions before the keys, so a reader of the keys always finds their partitions
+		partitions = shards;
+		partitionKeys = keys;
+		final WorkOrderManagerService decorated = decorator.apply(partition, workOrderManagerService);
+		partitionsByKey.put(partition, decorated);
+		return decorated;
+	}
+
+}
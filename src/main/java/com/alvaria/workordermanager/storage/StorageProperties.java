@@ -0,0 +1,22 @@
+package com.alvaria.workordermanager.storage;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the storage of queued work-orders, bound from work-order-manager.storage.*
+ */
+@ConfigurationProperties(prefix = "work-order-manager.storage")
+@Getter
+@Setter
+public class StorageProperties {
+
+	/**
+	 * Whether the records of queued work-orders and their id index are kept outside the Java heap,
+	 * for very deep queues; applies to every partition
+	 */
+	private boolean offHeap;
+
+}
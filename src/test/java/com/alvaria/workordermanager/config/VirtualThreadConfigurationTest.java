@@ -0,0 +1,61 @@
+package com.alvaria.workordermanager.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.alvaria.workordermanager.WorkOrderManagerApplication;
+
+/**
+ * Runs the virtual-threads profile where the JDK has virtual threads, and checks it fails fast
+ * where it does not
+ */
+public class VirtualThreadConfigurationTest {
+
+	private static final int JAVA_VERSION = Runtime.version().feature();
+
+	@Test
+	public void testProfile_ServesOnVirtualThreads() throws Exception {
+		assumeTrue(JAVA_VERSION >= 21, "Virtual threads need Java 21 or later");
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WorkOrderManagerApplication.class)
+				.profiles("virtual-threads")
+				.properties("server.port=0")
+				.run()) {
+			final TomcatWebServer webServer = (TomcatWebServer) ((ServletWebServerApplicationContext) context)
+					.getWebServer();
+			assertEquals("ThreadPerTaskExecutor", webServer.getTomcat().getConnector().getProtocolHandler()
+					.getExecutor().getClass().getSimpleName());
+
+			final String base = "http://localhost:" + webServer.getPort() + "/work-order-manager";
+			assertEquals(200, post(base + "/enqueue", "{\"id\":7,\"time\":\"2022-08-24T18:20:50\"}").statusCode());
+			final HttpResponse<String> dequeued = post(base + "/dequeue?waitMs=1000", "");
+			assertEquals(200, dequeued.statusCode());
+			assertEquals("{\"id\":7,\"time\":\"2022-08-24T18:20:50\"}", dequeued.body());
+		}
+	}
+
+	@Test
+	public void testConfiguration_RequiresJava21() {
+		assumeTrue(JAVA_VERSION < 21, "Virtual threads are available");
+		assertThrows(IllegalStateException.class, VirtualThreadConfiguration::new);
+	}
+
+	private static HttpResponse<String> post(final String uri, final String body) throws Exception {
+		return HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(uri))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+}
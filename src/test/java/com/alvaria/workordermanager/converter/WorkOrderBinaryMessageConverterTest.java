@@ -0,0 +1,57 @@
+package com.alvaria.workordermanager.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+public class WorkOrderBinaryMessageConverterTest {
+
+	private static final Instant NOW = Instant.parse("2022-08-24T18:20:50Z");
+
+	@Test
+	public void testEpochSeconds_InZoneOfQueueClock() throws Exception {
+		final WorkOrderManagerServiceImpl workOrderManagerService = new WorkOrderManagerServiceImpl();
+		workOrderManagerService.setClock(Clock.fixed(NOW, ZoneId.of("Asia/Kolkata")));
+		final WorkOrderBinaryMessageConverter converter = new WorkOrderBinaryMessageConverter(
+				workOrderManagerService::getZone);
+
+		// A client enqueues a work-order that is one minute old by its own clock
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(body);
+		output.writeLong(7L);
+		output.writeLong(NOW.getEpochSecond() - 60);
+		final WorkOrderRequest workOrderRequest = (WorkOrderRequest) converter.read(WorkOrderRequest.class, null,
+				new MockHttpInputMessage(body.toByteArray()));
+		assertEquals(LocalDateTime.of(2022, 8, 24, 23, 49, 50), workOrderRequest.getTime());
+		workOrderManagerService.enqueue(workOrderRequest);
+		// Kolkata is UTC+05:30, so the queue's local time now is 23:50:50
+		assertEquals(60L, workOrderManagerService.computeWaitingTime(new WorkOrderRequest(null,
+				LocalDateTime.now(Clock.fixed(NOW, ZoneId.of("Asia/Kolkata"))))).get(0).getWaitingTime());
+
+		final WorkOrderResponse workOrderResponse = workOrderManagerService.lease(Duration.ofSeconds(30));
+		final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		converter.write(workOrderResponse, WorkOrderBinaryMessageConverter.WORK_ORDER, outputMessage);
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(outputMessage.getBodyAsBytes()));
+		assertEquals(0b1000011, input.readByte());
+		assertEquals(7L, input.readLong());
+		assertEquals(NOW.getEpochSecond() - 60, input.readLong());
+		assertEquals(NOW.getEpochSecond() + 30, input.readLong());
+	}
+
+}
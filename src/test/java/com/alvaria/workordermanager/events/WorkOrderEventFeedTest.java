@@ -0,0 +1,45 @@
+package com.alvaria.workordermanager.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+public class WorkOrderEventFeedTest {
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService = new WorkOrderManagerServiceImpl();
+	private final WorkOrderEventFeed workOrderEventFeed = new WorkOrderEventFeed(workOrderManagerService);
+
+	@AfterEach
+	public void tearDown() {
+		workOrderEventFeed.stop();
+	}
+
+	@Test
+	public void testSubscriberBehindTheRing_Disconnected() throws InterruptedException {
+		workOrderEventFeed.subscribe();
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0);
+		final List<WorkOrderRequest> workOrderRequests = new ArrayList<>();
+		for (long id = 1; id <= 100_000; id++) {
+			workOrderRequests.add(new WorkOrderRequest(id, start));
+		}
+		workOrderManagerService.enqueueBatch(workOrderRequests);
+		workOrderEventFeed.subscribe();
+
+		// The first subscriber missed more events than the ring holds before it was ever drained
+		workOrderEventFeed.start();
+		final long deadline = System.currentTimeMillis() + 5_000;
+		while (workOrderEventFeed.subscriberCount() > 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, workOrderEventFeed.subscriberCount());
+	}
+
+}
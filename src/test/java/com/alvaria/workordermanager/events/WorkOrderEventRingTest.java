@@ -0,0 +1,65 @@
+package com.alvaria.workordermanager.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.WorkOrderEventType;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+public class WorkOrderEventRingTest {
+
+	@Test
+	public void testRead_InSequenceOrder() {
+		final WorkOrderEventRing ring = new WorkOrderEventRing(8);
+		for (long id = 1; id <= 5; id++) {
+			ring.append(WorkOrderEventType.ENQUEUED, id, ClassTypeEnum.NORMAL, (int) id);
+		}
+
+		final List<String> events = new ArrayList<>();
+		assertEquals(3, ring.read(1, 2, (sequence, type, id, classType, depth) -> events.add(sequence + ":" + id)));
+		assertEquals(List.of("1:2", "2:3"), events);
+		assertEquals(5, ring.read(3, 100, (sequence, type, id, classType, depth) -> events.add(sequence + ":" + id)));
+		assertEquals(4, events.size());
+	}
+
+	@Test
+	public void testRead_LappedReaderStops() {
+		final WorkOrderEventRing ring = new WorkOrderEventRing(8);
+		for (long id = 0; id < 20; id++) {
+			ring.append(WorkOrderEventType.ENQUEUED, id, ClassTypeEnum.VIP, 1);
+		}
+
+		assertEquals(12, ring.oldestSequence());
+		assertEquals(3, ring.read(3, 100, (sequence, type, id, classType, depth) -> {
+			throw new AssertionError("Overwritten event visited");
+		}));
+		final List<Long> ids = new ArrayList<>();
+		assertEquals(20, ring.read(ring.oldestSequence(), 100, (sequence, type, id, classType, depth) -> ids.add(id)));
+		assertEquals(8, ids.size());
+		assertEquals(12L, ids.get(0));
+	}
+
+	@Test
+	public void testQueueMutations_AreAppended() {
+		final WorkOrderManagerServiceImpl workOrderManagerService = new WorkOrderManagerServiceImpl();
+		final LocalDateTime now = LocalDateTime.now();
+		workOrderManagerService.enqueue(new WorkOrderRequest(3L, now.minusSeconds(10)));
+		workOrderManagerService.enqueue(new WorkOrderRequest(4L, now.minusSeconds(20)));
+		workOrderManagerService.delete(3L);
+		workOrderManagerService.dequeue();
+
+		final List<String> events = new ArrayList<>();
+		workOrderManagerService.events().read(0, 100, (sequence, type, id, classType, depth) -> events
+				.add(type + " " + id + " " + classType + " " + depth));
+		assertEquals(List.of("ENQUEUED 3 PRIORITY 1", "ENQUEUED 4 NORMAL 2", "DELETED 3 PRIORITY 1",
+				"DEQUEUED 4 NORMAL 0"), events);
+	}
+
+}
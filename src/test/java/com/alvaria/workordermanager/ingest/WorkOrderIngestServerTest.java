@@ -0,0 +1,101 @@
+package com.alvaria.workordermanager.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+public class WorkOrderIngestServerTest {
+
+	private static final long TIME = Instant.parse("2022-08-24T18:00:00Z").getEpochSecond();
+
+	private WorkOrderManagerServiceImpl workOrderManagerService;
+	private WorkOrderIngestServer server;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		workOrderManagerService = new WorkOrderManagerServiceImpl();
+		workOrderManagerService.setClock(Clock.system(ZoneId.of("America/New_York")));
+		final IngestProperties properties = new IngestProperties();
+		properties.setPort(0);
+		server = new WorkOrderIngestServer(workOrderManagerService, properties);
+		server.start();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testPipelinedCommands() throws Exception {
+		final List<String> answers = send("ENQ 1 " + TIME + "\n"
+				+ "ENQ 3 " + (TIME + 10) + "\n"
+				+ "ENQ 1 " + TIME + "\r\n"
+				+ "POS 1\n"
+				+ "DEQ\n"
+				+ "DEQ\n"
+				+ "DEQ\n"
+				+ "DEL 3\n", 8);
+
+		assertEquals(List.of("OK 1", "OK 3", "ERR " + WorkOrderManagerServiceImpl.ID_EXISTS_MESSAGE, "OK 1 1",
+				"OK 3 " + (TIME + 10), "OK 1 " + TIME, "ERR Queue is empty", "ERR No such ID found in the queue"),
+				answers);
+		assertEquals(0, workOrderManagerService.queueDepth());
+	}
+
+	@Test
+	public void testEpochSeconds_InZoneOfQueueClock() throws Exception {
+		assertEquals(List.of("OK 1"), send("ENQ 1 " + TIME + "\n", 1));
+
+		// New York is UTC-04:00 in August
+		assertEquals(LocalDateTime.of(2022, 8, 24, 14, 0), workOrderManagerService.dequeue().getTime());
+		workOrderManagerService.enqueue(new WorkOrderRequest(2L, LocalDateTime.of(2022, 8, 24, 14, 0, 10)));
+		assertEquals(List.of("OK 2 " + (TIME + 10)), send("DEQ\n", 1));
+	}
+
+	@Test
+	public void testInvalidCommands() throws Exception {
+		final List<String> answers = send("ENQ 1\n"
+				+ "DEL x\n"
+				+ "NOP\n"
+				+ "\n"
+				+ "ENQ 99999999999999999999 1\n"
+				+ "ENQ -5 " + TIME + "\n", 6);
+
+		assertEquals(List.of("ERR Invalid command", "ERR Invalid command", "ERR Invalid command",
+				"ERR Invalid command", "ERR Invalid command", "OK -5"), answers);
+	}
+
+	private List<String> send(final String commands, final int lines) throws Exception {
+		try (Socket socket = new Socket("127.0.0.1", server.getLocalPort())) {
+			final OutputStream output = socket.getOutputStream();
+			output.write(commands.getBytes(StandardCharsets.US_ASCII));
+			output.flush();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					StandardCharsets.US_ASCII));
+			final List<String> answers = new ArrayList<>();
+			for (int i = 0; i < lines; i++) {
+				answers.add(reader.readLine());
+			}
+			return answers;
+		}
+	}
+
+}
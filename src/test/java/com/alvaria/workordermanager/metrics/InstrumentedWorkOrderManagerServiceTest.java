@@ -0,0 +1,104 @@
+package com.alvaria.workordermanager.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class InstrumentedWorkOrderManagerServiceTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+	private WorkOrderManagerServiceImpl workOrderManagerService;
+	private SimpleMeterRegistry meterRegistry;
+	private InstrumentedWorkOrderManagerService instrumentedService;
+	private WorkOrderPartitionServiceImpl partitionService;
+
+	@BeforeEach
+	public void setUp() {
+		this.workOrderManagerService = new WorkOrderManagerServiceImpl();
+		this.workOrderManagerService.setClock(Clock.fixed(START.plusSeconds(100).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.instrumentedService = new InstrumentedWorkOrderManagerService(this.workOrderManagerService, this.meterRegistry);
+		this.partitionService = new WorkOrderPartitionServiceImpl(this.workOrderManagerService);
+		new WorkOrderQueueMetrics(this.partitionService).bindTo(this.meterRegistry);
+	}
+
+	@Test
+	public void testOperationTimersAndRejections() {
+		this.instrumentedService.enqueue(new WorkOrderRequest(1L, START));
+		assertThrows(WorkOrderException.class, () -> this.instrumentedService.enqueue(new WorkOrderRequest(1L, START)));
+		this.instrumentedService.enqueueBatch(List.of(new WorkOrderRequest(1L, START), new WorkOrderRequest(2L, START)));
+		assertThrows(WorkOrderNotFoundException.class, () -> this.instrumentedService.delete(7L));
+		this.instrumentedService.dequeue();
+
+		assertEquals(2, timerCount("enqueue"));
+		assertEquals(1, timerCount("enqueue-batch"));
+		assertEquals(1, timerCount("delete"));
+		assertEquals(1, timerCount("dequeue"));
+		assertEquals(2.0, this.meterRegistry.get(InstrumentedWorkOrderManagerService.REJECTION_COUNTER)
+				.tag("reason", "duplicate-id").counter().count());
+		assertEquals(1.0, this.meterRegistry.get(InstrumentedWorkOrderManagerService.REJECTION_COUNTER)
+				.tag("reason", "delete-not-found").counter().count());
+	}
+
+	@Test
+	public void testQueueGauges() {
+		this.instrumentedService.enqueue(new WorkOrderRequest(1L, START.plusSeconds(40)));
+		this.instrumentedService.enqueue(new WorkOrderRequest(3L, START.plusSeconds(30)));
+		this.instrumentedService.enqueue(new WorkOrderRequest(4L, START));
+
+		assertEquals(3.0, this.meterRegistry.get(WorkOrderQueueMetrics.DEPTH_GAUGE).tag("partition", "default")
+				.gauges().stream().mapToDouble(Gauge::value).sum());
+		assertEquals(2.0, gauge("NORMAL"));
+		assertEquals(1.0, gauge("PRIORITY"));
+		assertEquals(0.0, gauge("VIP"));
+		assertEquals(100.0, this.meterRegistry.get(WorkOrderQueueMetrics.OLDEST_AGE_GAUGE).gauge().value());
+
+		this.instrumentedService.delete(4L);
+		assertEquals(1.0, gauge("NORMAL"));
+		assertEquals(70.0, this.meterRegistry.get(WorkOrderQueueMetrics.OLDEST_AGE_GAUGE).gauge().value());
+	}
+
+	@Test
+	public void testOtherPartitionsMetered() {
+		this.partitionService.enqueue(new WorkOrderRequest(1L, START, "site-a"));
+		this.partitionService.enqueue(new WorkOrderRequest(2L, START, "site-a"));
+		this.partitionService.partition("site-a").dequeue();
+		this.instrumentedService.enqueue(new WorkOrderRequest(1L, START));
+
+		assertEquals(2, this.meterRegistry.get(InstrumentedWorkOrderManagerService.OPERATION_TIMER)
+				.tag("operation", "enqueue").tag("partition", "site-a").timer().count());
+		assertEquals(1, this.meterRegistry.get(InstrumentedWorkOrderManagerService.OPERATION_TIMER)
+				.tag("operation", "dequeue").tag("partition", "site-a").timer().count());
+		assertEquals(1.0, this.meterRegistry.get(WorkOrderQueueMetrics.DEPTH_GAUGE)
+				.tag("class", "NORMAL").tag("partition", "site-a").gauge().value());
+		assertEquals(1, timerCount("enqueue"));
+	}
+
+	private long timerCount(final String operation) {
+		return this.meterRegistry.get(InstrumentedWorkOrderManagerService.OPERATION_TIMER)
+				.tag("operation", operation).tag("partition", "default").timer().count();
+	}
+
+	private double gauge(final String classType) {
+		return this.meterRegistry.get(WorkOrderQueueMetrics.DEPTH_GAUGE).tag("class", classType)
+				.tag("partition", "default").gauge().value();
+	}
+
+}
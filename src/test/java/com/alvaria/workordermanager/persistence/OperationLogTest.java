@@ -0,0 +1,93 @@
+package com.alvaria.workordermanager.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.queue.WorkOrderRecordStore;
+
+public class OperationLogTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testReplay_AcrossRegions() throws IOException {
+		final Path path = directory.resolve("log-1.log");
+		try (OperationLog log = new OperationLog(path, OperationLog.RECORD_SIZE * 3)) {
+			for (long id = 1; id <= 10; id++) {
+				log.appendEnqueued(id, 1_000 + id, (int) id, ClassTypeEnum.VIP, (int) id * 60);
+			}
+			log.appendRemoved(4L);
+		}
+
+		final List<String> replayed = replay(path);
+		assertEquals(11, replayed.size());
+		assertEquals("+10:1010:10:VIP:600", replayed.get(9));
+		assertEquals("-4", replayed.get(10));
+	}
+
+	@Test
+	public void testReplay_StopsAtTornRecord() throws IOException {
+		final Path path = directory.resolve("log-1.log");
+		try (OperationLog log = new OperationLog(path, 1 << 12)) {
+			log.appendEnqueued(1L, 100, 0, ClassTypeEnum.NORMAL, 0);
+			log.appendEnqueued(2L, 200, 0, ClassTypeEnum.NORMAL, 0);
+			log.appendEnqueued(3L, 300, 0, ClassTypeEnum.NORMAL, 0);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 42 }), OperationLog.RECORD_SIZE + 5);
+		}
+
+		assertEquals(List.of("+1:100:0:NORMAL:0"), replay(path));
+	}
+
+	@Test
+	public void testSnapshot_RoundTrip() throws IOException {
+		final Path path = directory.resolve("snapshot-1.bin");
+		final SnapshotFile.Records records = new SnapshotFile.Records();
+		for (long id = 0; id < 10_000; id++) {
+			records.visit(id, id * 3, (int) id % 1_000, ClassTypeEnum.values()[(int) id % 4], (int) id % 7);
+		}
+		SnapshotFile.write(path, records);
+
+		final WorkOrderRecordStore store = new WorkOrderRecordStore();
+		SnapshotFile.read(path, store);
+		assertEquals(10_000, store.size());
+		final int slot = store.slotOf(9_999L);
+		assertEquals(29_997L, store.time(slot));
+		assertEquals(999, store.nano(slot));
+		assertEquals(ClassTypeEnum.MANAGEMENT_OVERRIDE, store.classType(slot));
+		assertEquals(3, store.timeToLive(slot));
+	}
+
+	private static List<String> replay(final Path path) throws IOException {
+		final List<String> replayed = new ArrayList<>();
+		OperationLog.replay(path, new OperationLog.Handler() {
+
+			@Override
+			public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+					final int timeToLive) {
+				replayed.add("+" + id + ":" + time + ":" + nano + ":" + classType + ":" + timeToLive);
+			}
+
+			@Override
+			public void removed(final long id) {
+				replayed.add("-" + id);
+			}
+
+		});
+		return replayed;
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.alvaria.workordermanager.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+public class WorkOrderPersistenceTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2022, 8, 24, 18, 0, 0, 123_000_000);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testRecover_SnapshotAndLog() throws IOException {
+		final WorkOrderManagerServiceImpl service = service();
+		final WorkOrderPersistence persistence = new WorkOrderPersistence(service, new WorkOrderPartitionServiceImpl(service), properties());
+		persistence.start();
+		for (long id = 1; id <= 100; id++) {
+			service.enqueue(new WorkOrderRequest(id, START.plusSeconds(id)));
+		}
+		service.delete(7L);
+		persistence.checkpoint();
+		service.enqueueBatch(List.of(new WorkOrderRequest(200L, START), new WorkOrderRequest(201L, START)));
+		service.delete(8L);
+		service.dequeueBatch(3);
+		final List<Long> expectedIds = ids(service);
+		persistence.stop();
+
+		final WorkOrderManagerServiceImpl recovered = service();
+		final WorkOrderPersistence recoveredPersistence = new WorkOrderPersistence(recovered, new WorkOrderPartitionServiceImpl(recovered), properties());
+		recoveredPersistence.start();
+		assertEquals(expectedIds, ids(recovered));
+		assertEquals(START.plusSeconds(50), recovered.delete(50L).getTime());
+		recoveredPersistence.stop();
+
+		final WorkOrderManagerServiceImpl again = service();
+		final WorkOrderPersistence againPersistence = new WorkOrderPersistence(again, new WorkOrderPartitionServiceImpl(again), properties());
+		againPersistence.start();
+		assertEquals(expectedIds.size() - 1, again.getIds().size());
+		againPersistence.stop();
+	}
+
+	@Test
+	public void testRecover_OwnTimeToLive() throws IOException {
+		final WorkOrderManagerServiceImpl service = service();
+		final WorkOrderPersistence persistence = new WorkOrderPersistence(service, new WorkOrderPartitionServiceImpl(service), properties());
+		persistence.start();
+		service.enqueue(new WorkOrderRequest(1L, START, null, 172_800L));
+		persistence.checkpoint();
+		service.enqueue(new WorkOrderRequest(2L, START, null, 172_800L));
+		service.enqueue(new WorkOrderRequest(3L, START));
+		persistence.stop();
+
+		final WorkOrderManagerServiceImpl recovered = service();
+		final WorkOrderPersistence recoveredPersistence = new WorkOrderPersistence(recovered, new WorkOrderPartitionServiceImpl(recovered), properties());
+		recoveredPersistence.start();
+		recovered.setClock(Clock.fixed(START.plusDays(3).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+		assertEquals(2, recovered.expire());
+		assertEquals(List.of(3L), ids(recovered));
+		recoveredPersistence.stop();
+	}
+
+	@Test
+	public void testSyncCommit() throws IOException {
+		final PersistenceProperties properties = properties();
+		properties.setSyncCommit(true);
+		properties.setFsyncIntervalMillis(1_000);
+		final WorkOrderManagerServiceImpl service = service();
+		final WorkOrderPersistence persistence = new WorkOrderPersistence(service, new WorkOrderPartitionServiceImpl(service), properties);
+		persistence.start();
+		service.enqueue(new WorkOrderRequest(1L, START));
+		persistence.stop();
+
+		final WorkOrderManagerServiceImpl recovered = service();
+		final WorkOrderPersistence recoveredPersistence = new WorkOrderPersistence(recovered, new WorkOrderPartitionServiceImpl(recovered), properties);
+		recoveredPersistence.start();
+		assertEquals(List.of(1L), ids(recovered));
+		recoveredPersistence.stop();
+	}
+
+	@Test
+	public void testStart_DefaultPartitionOnly() throws IOException {
+		final WorkOrderManagerServiceImpl service = service();
+		final WorkOrderPartitionServiceImpl partitionService = new WorkOrderPartitionServiceImpl(service);
+		final WorkOrderPersistence persistence = new WorkOrderPersistence(service, partitionService, properties());
+		persistence.start();
+		assertThrows(WorkOrderException.class,
+				() -> partitionService.enqueue(new WorkOrderRequest(1L, START, "site-a")));
+		persistence.stop();
+
+		final WorkOrderManagerServiceImpl partitioned = service();
+		final WorkOrderPartitionServiceImpl partitionedService = new WorkOrderPartitionServiceImpl(partitioned);
+		partitionedService.enqueue(new WorkOrderRequest(1L, START, "site-a"));
+		assertThrows(IllegalStateException.class,
+				() -> new WorkOrderPersistence(partitioned, partitionedService, properties()).start());
+	}
+
+	private static WorkOrderManagerServiceImpl service() {
+		final WorkOrderManagerServiceImpl service = new WorkOrderManagerServiceImpl();
+		service.setClock(Clock.fixed(START.plusDays(1).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+		return service;
+	}
+
+	private PersistenceProperties properties() {
+		final PersistenceProperties properties = new PersistenceProperties();
+		properties.setEnabled(true);
+		properties.setDirectory(directory.toString());
+		properties.setLogRegionBytes(1 << 12);
+		return properties;
+	}
+
+	private static List<Long> ids(final WorkOrderManagerServiceImpl service) {
+		return service.getIds().stream()
+				.map(WorkOrderResponse::getId)
+				.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpiredWorkOrdersTest {
+
+	@Test
+	public void testForEach_LatestUpToCapacityInExpiryOrder() {
+		final int capacity = 100;
+		final SplittableRandom random = new SplittableRandom(42);
+		ExpiredWorkOrders expired = ExpiredWorkOrders.empty(capacity);
+		assertEquals(List.of(), ids(expired));
+
+		long next = 0;
+		for (int sweep = 0; sweep < 1_000; sweep++) {
+			// Mostly small sweeps, now and then one larger than the capacity
+			final int count = sweep % 97 == 0 ? capacity + random.nextInt(50) : random.nextInt(8);
+			final long[] ids = new long[count];
+			final long[] times = new long[count];
+			final int[] nanos = new int[count];
+			for (int i = 0; i < count; i++) {
+				ids[i] = next;
+				times[i] = 1_661_364_000L + next;
+				nanos[i] = (int) next;
+				next++;
+			}
+			final ExpiredWorkOrders previous = expired;
+			final List<Long> previousIds = ids(previous);
+			expired = expired.with(ids, times, nanos, count);
+
+			final List<Long> expected = new ArrayList<>();
+			for (long id = Math.max(0, next - capacity); id < next; id++) {
+				expected.add(id);
+			}
+			assertEquals(expected.size(), expired.size());
+			assertEquals(expected, ids(expired));
+			// A published view never changes
+			assertEquals(previousIds, ids(previous));
+		}
+
+		expired.forEach((id, time, nano) -> {
+			assertEquals(1_661_364_000L + id, time);
+			assertEquals((int) id, nano);
+		});
+	}
+
+	private static List<Long> ids(final ExpiredWorkOrders expired) {
+		final List<Long> ids = new ArrayList<>();
+		expired.forEach((id, time, nano) -> ids.add(id));
+		return ids;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+public class LeaseHeapTest {
+
+	@Test
+	public void testPeek_EarliestDeadlineAfterRemovals() {
+		final SplittableRandom random = new SplittableRandom(7);
+		final LeaseHeap heap = new LeaseHeap();
+		final List<long[]> expected = new ArrayList<>();
+		for (long id = 1; id <= 1_000; id++) {
+			final long deadline = random.nextLong(10_000);
+			heap.add(id, id * 10, 0, ClassTypeEnum.NORMAL, 0, deadline);
+			expected.add(new long[] { deadline, id });
+		}
+		// Acknowledge every third lease, then re-lease some ids so freed entries are reused
+		for (long id = 3; id <= 1_000; id += 3) {
+			heap.remove(heap.entryOf(id));
+		}
+		expected.removeIf(lease -> lease[1] % 3 == 0);
+		for (long id = 3; id <= 300; id += 3) {
+			heap.add(id, id * 10, 0, ClassTypeEnum.VIP, 5, 20_000 + id);
+			expected.add(new long[] { 20_000 + id, id });
+		}
+		expected.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+		assertEquals(expected.size(), heap.size());
+		for (final long[] lease : expected) {
+			final int entry = heap.peek();
+			assertEquals(lease[0], heap.deadline(entry));
+			assertEquals(lease[1], heap.id(entry));
+			assertEquals(lease[1] * 10, heap.time(entry));
+			heap.remove(entry);
+			assertFalse(heap.contains(lease[1]));
+		}
+		assertTrue(heap.isEmpty());
+		assertEquals(LeaseHeap.NO_ENTRY, heap.peek());
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+public class OffHeapWorkOrderRecordStoreTest {
+
+	@Test
+	public void testAllocateAndRelease_MatchesHeapStore() {
+		final SplittableRandom random = new SplittableRandom(11);
+		final WorkOrderRecordStore expected = new WorkOrderRecordStore();
+		final OffHeapWorkOrderRecordStore store = new OffHeapWorkOrderRecordStore();
+		final List<Long> ids = new ArrayList<>();
+		// Grow the index through several rehashes while releasing ids, so probe chains get shifted back
+		for (int i = 0; i < 50_000; i++) {
+			if (!ids.isEmpty() && random.nextInt(3) == 0) {
+				final long id = ids.remove(random.nextInt(ids.size()));
+				expected.release(expected.slotOf(id));
+				store.release(store.slotOf(id));
+			} else {
+				final long id = random.nextLong(200_000);
+				if (expected.contains(id)) {
+					assertThrows(IllegalStateException.class, () -> store.allocate(id, 0, 0, ClassTypeEnum.NORMAL));
+					continue;
+				}
+				final ClassTypeEnum type = ClassTypeEnum.values()[random.nextInt(ClassTypeEnum.values().length)];
+				final long time = random.nextLong(1L << 40);
+				final int nano = random.nextInt(1_000_000_000);
+				final int timeToLive = random.nextInt(3_600);
+				assertEquals(expected.allocate(id, time, nano, type, timeToLive),
+						store.allocate(id, time, nano, type, timeToLive));
+				ids.add(id);
+			}
+		}
+
+		assertEquals(expected.size(), store.size());
+		assertEquals(expected.slotCount(), store.slotCount());
+		for (long id = 0; id < 200_000; id++) {
+			final int slot = expected.slotOf(id);
+			assertEquals(slot, store.slotOf(id));
+			if (slot != WorkOrderRecordStore.NO_SLOT) {
+				assertEquals(id, store.id(slot));
+				assertEquals(expected.time(slot), store.time(slot));
+				assertEquals(expected.nano(slot), store.nano(slot));
+				assertEquals(expected.classType(slot), store.classType(slot));
+				assertEquals(expected.timeToLive(slot), store.timeToLive(slot));
+			}
+		}
+		final List<Long> visited = new ArrayList<>();
+		store.forEach((id, time, nano, type, timeToLive) -> visited.add(id));
+		final List<Long> expectedVisited = new ArrayList<>();
+		expected.forEach((id, time, nano, type, timeToLive) -> expectedVisited.add(id));
+		assertEquals(expectedVisited, visited);
+	}
+
+}
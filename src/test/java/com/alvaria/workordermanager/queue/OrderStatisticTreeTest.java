@@ -0,0 +1,92 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class OrderStatisticTreeTest {
+
+	@Test
+	public void testIndexOf_OldestFirst() {
+		final OrderStatisticTree tree = new OrderStatisticTree();
+		tree.add(1L, 300);
+		tree.add(15L, 100);
+		tree.add(5L, 100);
+
+		assertEquals(0, tree.indexOf(5L, 100));
+		assertEquals(1, tree.indexOf(15L, 100));
+		assertEquals(2, tree.indexOf(1L, 300));
+		assertEquals(-1, tree.indexOf(1L, 301));
+		assertEquals(2, tree.countWhile((id, time) -> time < 300));
+	}
+
+	@Test
+	public void testAddAll_Rebuild() {
+		final Random random = new Random(11);
+		final OrderStatisticTree tree = new OrderStatisticTree();
+		final List<long[]> expected = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			tree.add(i, random.nextInt(100));
+		}
+		tree.forEach(0, Integer.MAX_VALUE, (id, time) -> expected.add(new long[] { id, time }));
+		final OrderStatisticTree before = tree.snapshot();
+
+		final long[] ids = new long[1_000];
+		final long[] times = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = 10 + i;
+			times[i] = random.nextInt(100);
+			expected.add(new long[] { ids[i], times[i] });
+		}
+		tree.addAll(ids, times, ids.length);
+		expected.sort(Comparator.<long[]>comparingLong(e -> e[1]).thenComparingLong(e -> e[0]));
+
+		assertEquals(10, before.size());
+		assertEquals(expected.size(), tree.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(i, tree.indexOf(expected.get(i)[0], expected.get(i)[1]));
+		}
+		assertEquals(expected.stream().mapToLong(e -> e[1]).sum(), tree.timeSum());
+		tree.remove(expected.get(0)[0], expected.get(0)[1]);
+		assertEquals(0, tree.indexOf(expected.get(1)[0], expected.get(1)[1]));
+		assertEquals(expected.stream().mapToLong(e -> e[1]).sum() - expected.get(0)[1], tree.timeSum());
+	}
+
+	@Test
+	public void testRandomOperations_MatchSortedOrder() {
+		final Random random = new Random(7);
+		final OrderStatisticTree tree = new OrderStatisticTree();
+		final List<long[]> expected = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			final long[] entry = { i, random.nextInt(500) };
+			tree.add(entry[0], entry[1]);
+			expected.add(entry);
+			if (random.nextInt(3) == 0) {
+				final long[] removed = expected.remove(random.nextInt(expected.size()));
+				tree.remove(removed[0], removed[1]);
+			}
+		}
+		expected.sort(Comparator.<long[]>comparingLong(e -> e[1]).thenComparingLong(e -> e[0]));
+
+		final OrderStatisticTree snapshot = tree.snapshot();
+		tree.add(-1L, -1L);
+		assertEquals(expected.size(), snapshot.size());
+		assertEquals(expected.stream().mapToLong(e -> e[1]).sum(), snapshot.timeSum());
+		assertEquals(snapshot.timeSum() - 1, tree.timeSum());
+		for (int i = 0; i < expected.size(); i += 97) {
+			assertEquals(i, snapshot.indexOf(expected.get(i)[0], expected.get(i)[1]));
+		}
+		final List<Long> page = new ArrayList<>();
+		snapshot.forEach(100, 50, (id, time) -> page.add(id));
+		for (int i = 0; i < page.size(); i++) {
+			assertEquals(expected.get(100 + i)[0], page.get(i));
+		}
+		assertEquals(50, page.size());
+	}
+
+}
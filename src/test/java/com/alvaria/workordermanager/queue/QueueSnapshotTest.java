@@ -0,0 +1,63 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+public class QueueSnapshotTest {
+
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	@Test
+	public void testRandomQueue_MatchesSortedOrder() {
+		final Random random = new Random(11);
+		final long asOf = 1_000_000L;
+		final OrderStatisticTree[] trees = new OrderStatisticTree[CLASS_TYPES.length];
+		QueueSnapshot snapshot = QueueSnapshot.empty();
+		final List<long[]> expected = new ArrayList<>();
+		for (int i = 0; i < CLASS_TYPES.length; i++) {
+			trees[i] = new OrderStatisticTree();
+		}
+		for (long id = 0; id < 2_000; id++) {
+			final int type = random.nextInt(CLASS_TYPES.length);
+			final long time = asOf - random.nextInt(5_000);
+			trees[type].add(id, time);
+			snapshot = snapshot.with(CLASS_TYPES[type], trees[type].snapshot());
+			expected.add(new long[] { id, time, type });
+		}
+		expected.sort((a, b) -> WorkOrderRanking.DEFAULT.compare(CLASS_TYPES[(int) a[2]], a[1], a[0],
+				CLASS_TYPES[(int) b[2]], b[1], b[0], asOf));
+
+		for (int i = 0; i < expected.size(); i += 13) {
+			final long[] entry = expected.get(i);
+			assertEquals(i, snapshot.positionOf(entry[0], CLASS_TYPES[(int) entry[2]], entry[1], asOf));
+		}
+		final List<Long> page = new ArrayList<>();
+		snapshot.forEach(777, 100, asOf, (id, time) -> page.add(id));
+		assertEquals(100, page.size());
+		for (int i = 0; i < page.size(); i++) {
+			assertEquals(expected.get(777 + i)[0], page.get(i));
+		}
+	}
+
+	@Test
+	public void testPositionOf_RanksEvaluatedAtAsOfTime() {
+		final OrderStatisticTree normal = new OrderStatisticTree();
+		final OrderStatisticTree priority = new OrderStatisticTree();
+		normal.add(1L, 0L);
+		priority.add(3L, 1_000L);
+		final QueueSnapshot snapshot = QueueSnapshot.empty()
+				.with(ClassTypeEnum.NORMAL, normal.snapshot())
+				.with(ClassTypeEnum.PRIORITY, priority.snapshot());
+
+		assertEquals(1, snapshot.positionOf(3L, ClassTypeEnum.PRIORITY, 1_000L, 1_010L));
+		assertEquals(0, snapshot.positionOf(3L, ClassTypeEnum.PRIORITY, 1_000L, 2_000L));
+	}
+
+}
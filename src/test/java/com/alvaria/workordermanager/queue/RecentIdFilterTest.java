@@ -0,0 +1,51 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class RecentIdFilterTest {
+
+	@Test
+	public void testContains_WithinWindowOnly() {
+		final RecentIdFilter filter = new RecentIdFilter(60_000, 1_000_000, 0);
+		for (long id = 0; id < 10_000; id++) {
+			filter.add(id * 7, id);
+		}
+		for (long id = 0; id < 10_000; id++) {
+			assertTrue(filter.contains(id * 7, 59_000));
+			assertFalse(filter.contains(id * 7 + 1, 59_000));
+		}
+
+		filter.add(1, 70_000);
+		assertTrue(filter.contains(1, 129_000));
+		assertFalse(filter.contains(7, 75_000));
+	}
+
+	@Test
+	public void testAdd_BoundedByMaxIds() {
+		final RecentIdFilter filter = new RecentIdFilter(60_000, 1_000, 0);
+		for (long id = 0; id < 100_000; id++) {
+			filter.add(id, 0);
+		}
+		assertTrue(filter.size() <= 1_336);
+		for (long id = 99_000; id < 100_000; id++) {
+			assertTrue(filter.contains(id, 0));
+		}
+		assertFalse(filter.contains(0, 0));
+	}
+
+	@Test
+	public void testContains_WholeWindowAtMaxIdsPerWindow() {
+		final RecentIdFilter filter = new RecentIdFilter(60_000, 1_000, 0);
+		// 1,000 ids per window, one every 60 ms
+		for (long id = 0; id <= 3_000; id++) {
+			filter.add(id, id * 60);
+		}
+		for (long id = 2_001; id <= 3_000; id++) {
+			assertTrue(filter.contains(id, 180_000));
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTest {
+
+	@Test
+	public void testAdvance_ExpiresEachDeadlineOnItsTick() {
+		final long start = 1_661_364_000L;
+		final SplittableRandom random = new SplittableRandom(42);
+		final TimingWheel wheel = new TimingWheel(start);
+		final long[] deadlines = new long[2_000];
+		for (int slot = 0; slot < deadlines.length; slot++) {
+			// Spread over every level, including past deadlines and ones beyond the span of the wheel
+			deadlines[slot] = start - 5 + (1L << random.nextInt(26)) + random.nextInt(64);
+			wheel.schedule(slot, deadlines[slot]);
+		}
+		for (int slot = 0; slot < deadlines.length; slot += 7) {
+			wheel.cancel(slot);
+		}
+		assertEquals(deadlines.length - (deadlines.length + 6) / 7, wheel.size());
+
+		long now = start;
+		while (wheel.size() > 0) {
+			now += 1 + random.nextInt(1 << random.nextInt(16));
+			final long asOf = now;
+			final List<Integer> expired = new ArrayList<>();
+			wheel.advance(asOf, expired::add);
+			for (final int slot : expired) {
+				assertTrue(deadlines[slot] <= asOf);
+				assertFalse(wheel.isScheduled(slot));
+			}
+			for (int slot = 1; slot < deadlines.length; slot++) {
+				if (slot % 7 != 0 && deadlines[slot] <= asOf) {
+					assertFalse(wheel.isScheduled(slot), "slot " + slot + " is overdue");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSchedule_ReplacesDeadline() {
+		final TimingWheel wheel = new TimingWheel(0);
+		wheel.schedule(3, 100_000);
+		wheel.schedule(3, 10);
+		assertEquals(1, wheel.size());
+		assertEquals(10, wheel.deadline(3));
+
+		final List<Integer> expired = new ArrayList<>();
+		wheel.advance(9, expired::add);
+		assertTrue(expired.isEmpty());
+		wheel.advance(10, expired::add);
+		assertEquals(List.of(3), expired);
+		wheel.advance(200_000, expired::add);
+		assertEquals(List.of(3), expired);
+		assertEquals(0, wheel.size());
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+public class TournamentTreeTest {
+
+	private static final long AS_OF = 10_000;
+	private static final ClassTypeEnum[] CLASS_TYPES = ClassTypeEnum.values();
+
+	@Test
+	public void testWinner_EmptyAndSingleLeaf() {
+		assertEquals(TournamentTree.NO_WINNER, new TournamentTree(0, AS_OF, WorkOrderRanking.DEFAULT).winner());
+
+		final TournamentTree tree = new TournamentTree(1, AS_OF, WorkOrderRanking.DEFAULT);
+		assertEquals(TournamentTree.NO_WINNER, tree.winner());
+		tree.offer(0, ClassTypeEnum.NORMAL, 1, 1);
+		assertEquals(0, tree.winner());
+		tree.clear(0);
+		assertEquals(TournamentTree.NO_WINNER, tree.winner());
+	}
+
+	@Test
+	public void testMerge_MatchesQueueOrder() {
+		final Random random = new Random(7);
+		final int leaves = 5;
+		final List<List<long[]>> queues = new ArrayList<>();
+		final List<long[]> expected = new ArrayList<>();
+		for (int leaf = 0; leaf < leaves; leaf++) {
+			queues.add(new ArrayList<>());
+		}
+		for (long id = 1; id <= 500; id++) {
+			final long[] workOrder = { id, random.nextInt(5_000), random.nextInt(CLASS_TYPES.length) };
+			queues.get(random.nextInt(leaves)).add(workOrder);
+			expected.add(workOrder);
+		}
+		final Comparator<long[]> queueOrder = (a, b) -> WorkOrderRanking.DEFAULT.compare(CLASS_TYPES[(int) a[2]],
+				a[1], a[0], CLASS_TYPES[(int) b[2]], b[1], b[0], AS_OF);
+		expected.sort(queueOrder);
+
+		final TournamentTree tree = new TournamentTree(leaves, AS_OF, WorkOrderRanking.DEFAULT);
+		for (int leaf = 0; leaf < leaves; leaf++) {
+			queues.get(leaf).sort(queueOrder);
+			offerHead(tree, leaf, queues.get(leaf));
+		}
+		final List<long[]> merged = new ArrayList<>();
+		for (int winner = tree.winner(); winner != TournamentTree.NO_WINNER; winner = tree.winner()) {
+			merged.add(queues.get(winner).remove(0));
+			offerHead(tree, winner, queues.get(winner));
+		}
+
+		assertEquals(expected.size(), merged.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i)[0], merged.get(i)[0]);
+		}
+	}
+
+	private static void offerHead(final TournamentTree tree, final int leaf, final List<long[]> queue) {
+		if (queue.isEmpty()) {
+			tree.clear(leaf);
+		} else {
+			tree.offer(leaf, CLASS_TYPES[(int) queue.get(0)[2]], queue.get(0)[1], queue.get(0)[0]);
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+
+public class WorkOrderHeapTest {
+
+	private final WorkOrderRecordStore store = new WorkOrderRecordStore();
+	private final WorkOrderHeap heap = new WorkOrderHeap(store);
+
+	@Test
+	public void testPoll_OldestFirst() {
+		add(1L, 300);
+		add(15L, 100);
+		add(5L, 200);
+		add(30L, 100);
+
+		assertEquals(15L, pollId());
+		assertEquals(30L, pollId());
+		assertEquals(5L, pollId());
+		assertEquals(1L, pollId());
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	public void testRemove() {
+		final int slot = add(1L, 1);
+		heap.remove(slot);
+		assertThrows(NoSuchElementException.class, () -> heap.remove(slot));
+		assertThrows(NoSuchElementException.class, heap::poll);
+	}
+
+	@Test
+	public void testRandomOperations_MatchSortedOrder() {
+		final Random random = new Random(42);
+		final List<long[]> expected = new ArrayList<>();
+		for (long id = 0; id < 5_000; id++) {
+			final long time = random.nextInt(1_000);
+			expected.add(new long[] { id, time, add(id, time) });
+			if (random.nextInt(4) == 0) {
+				final long[] removed = expected.remove(random.nextInt(expected.size()));
+				heap.remove((int) removed[2]);
+				store.release((int) removed[2]);
+			}
+		}
+		expected.sort(Comparator.<long[]>comparingLong(e -> e[1]).thenComparingLong(e -> e[0]));
+
+		assertEquals(expected.size(), heap.size());
+		for (final long[] entry : expected) {
+			assertEquals(entry[0], pollId());
+		}
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	public void testAddAll_Heapify() {
+		add(-7L, 50);
+		final int[] batch = new int[1_000];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = store.allocate(i, (i * 7919L) % 1_000, 0, ClassTypeEnum.NORMAL);
+		}
+		heap.addAll(batch, batch.length);
+
+		assertEquals(1_001, heap.size());
+		long previous = Long.MIN_VALUE;
+		while (!heap.isEmpty()) {
+			final int slot = heap.poll();
+			assertTrue(store.time(slot) >= previous);
+			previous = store.time(slot);
+		}
+	}
+
+	private int add(final long id, final long time) {
+		final int slot = store.allocate(id, time, 0, ClassTypeEnum.NORMAL);
+		heap.add(slot);
+		return slot;
+	}
+
+	private long pollId() {
+		return store.id(heap.poll());
+	}
+
+}
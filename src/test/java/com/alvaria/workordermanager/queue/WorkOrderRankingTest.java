@@ -0,0 +1,53 @@
+package com.alvaria.workordermanager.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.model.AgeFunction;
+import com.alvaria.workordermanager.model.ClassRanking;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.RankingPolicy;
+
+public class WorkOrderRankingTest {
+
+	@Test
+	public void testDefault_Formulas() {
+		for (long age = 0; age <= 5_000; age += 7) {
+			final double nLogN = age <= 1 ? 0 : age * Math.log(age);
+			assertEquals(age, WorkOrderRanking.DEFAULT.rank(ClassTypeEnum.NORMAL, age));
+			assertEquals(Math.max(3, nLogN), WorkOrderRanking.DEFAULT.rank(ClassTypeEnum.PRIORITY, age));
+			assertEquals(Math.max(4, 2 * nLogN), WorkOrderRanking.DEFAULT.rank(ClassTypeEnum.VIP, age));
+		}
+		assertTrue(WorkOrderRanking.DEFAULT.compare(ClassTypeEnum.MANAGEMENT_OVERRIDE, 100, 15,
+				ClassTypeEnum.VIP, 0, 5, 100) < 0);
+	}
+
+	@Test
+	public void testCompile_MergesDefaultsAndCaps() {
+		final WorkOrderRanking ranking = WorkOrderRanking.compile(new RankingPolicy(Map.of(ClassTypeEnum.VIP,
+				ClassRanking.builder().ageFunction(AgeFunction.QUADRATIC).cap(1_000.0).build())));
+
+		assertEquals(4, ranking.rank(ClassTypeEnum.VIP, 1));
+		assertEquals(2 * 20 * 20, ranking.rank(ClassTypeEnum.VIP, 20));
+		assertEquals(1_000, ranking.rank(ClassTypeEnum.VIP, 100));
+		final ClassRanking vip = ranking.policy().getClasses().get(ClassTypeEnum.VIP);
+		assertEquals(2.0, vip.getWeight());
+		assertEquals(4.0, vip.getFloor());
+		assertEquals(0, vip.getTier());
+	}
+
+	@Test
+	public void testCompile_RejectsDecreasingRanks() {
+		assertThrows(WorkOrderException.class, () -> WorkOrderRanking.compile(new RankingPolicy(Map.of(
+				ClassTypeEnum.NORMAL, ClassRanking.builder().weight(-1.0).build()))));
+		assertThrows(WorkOrderException.class, () -> WorkOrderRanking.compile(new RankingPolicy(Map.of(
+				ClassTypeEnum.NORMAL, ClassRanking.builder().floor(10.0).cap(5.0).build()))));
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.alvaria.workordermanager.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.model.ReplicationRole;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+public class WorkOrderReplicationTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2022, 8, 24, 18, 0);
+
+	private WorkOrderManagerServiceImpl primaryService;
+	private WorkOrderManagerServiceImpl replicaService;
+	private WorkOrderReplication primary;
+	private WorkOrderReplication replica;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		primaryService = new WorkOrderManagerServiceImpl();
+		replicaService = new WorkOrderManagerServiceImpl();
+		primary = new WorkOrderReplication(primaryService, new WorkOrderPartitionServiceImpl(primaryService),
+				properties(ReplicationRole.PRIMARY, 0));
+		primary.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		primary.stop();
+		if (replica != null) {
+			replica.stop();
+		}
+	}
+
+	@Test
+	public void testReplica_CopiesThenFollows() throws Exception {
+		primaryService.enqueue(new WorkOrderRequest(1L, START));
+		primaryService.enqueue(new WorkOrderRequest(3L, START.plusSeconds(5).plusNanos(7)));
+		startReplica();
+		await(() -> replica.status().getSynced());
+
+		primaryService.enqueue(new WorkOrderRequest(5L, START.plusSeconds(10)));
+		primaryService.delete(1L);
+		primaryService.dequeue();
+		await(() -> idsOf(replicaService).equals(idsOf(primaryService)));
+
+		assertEquals(List.of(3L), idsOf(replicaService));
+		assertEquals(3L, replica.status().getAppliedRecords());
+		assertEquals(1, primary.status().getReplicas());
+		assertThrows(WorkOrderException.class, () -> replicaService.enqueue(new WorkOrderRequest(7L, START)));
+		assertThrows(WorkOrderException.class, () -> replicaService.dequeue());
+	}
+
+	@Test
+	public void testPromote_AfterPrimaryFailure() throws Exception {
+		primaryService.enqueue(new WorkOrderRequest(1L, START));
+		startReplica();
+		await(() -> replica.status().getSynced());
+		primary.stop();
+
+		assertEquals(ReplicationRole.PRIMARY, replica.promote().getRole());
+		replicaService.enqueue(new WorkOrderRequest(2L, START));
+		assertEquals(List.of(1L, 2L), idsOf(replicaService));
+
+		// The former primary rejoins as a replica of the promoted one and drops what it had alone
+		primaryService.setReadOnly(false);
+		primaryService.enqueue(new WorkOrderRequest(4L, START));
+		primary.follow("127.0.0.1", replica.getLocalPort());
+		await(() -> primary.status().getSynced());
+		assertEquals(List.of(1L, 2L), idsOf(primaryService));
+	}
+
+	@Test
+	public void testReplica_KeepsOwnTimeToLive() throws Exception {
+		final long tenYears = TimeUnit.DAYS.toSeconds(3_650);
+		primaryService.enqueue(new WorkOrderRequest(1L, START, null, tenYears));
+		startReplica();
+		await(() -> replica.status().getSynced());
+		primaryService.enqueue(new WorkOrderRequest(2L, START, null, tenYears));
+		primaryService.enqueue(new WorkOrderRequest(3L, START));
+		await(() -> idsOf(replicaService).equals(idsOf(primaryService)));
+		primary.stop();
+
+		replica.promote();
+		replicaService.setClock(Clock.fixed(START.plusYears(11).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+		assertEquals(2, replicaService.expire());
+		assertEquals(List.of(3L), idsOf(replicaService));
+	}
+
+	private void startReplica() throws Exception {
+		replica = new WorkOrderReplication(replicaService, new WorkOrderPartitionServiceImpl(replicaService),
+				properties(ReplicationRole.REPLICA, primary.getLocalPort()));
+		replica.start();
+	}
+
+	private static ReplicationProperties properties(final ReplicationRole role, final int primaryPort) {
+		final ReplicationProperties properties = new ReplicationProperties();
+		properties.setRole(role);
+		properties.setPort(0);
+		properties.setPrimaryPort(primaryPort);
+		properties.setHeartbeatIntervalMillis(50);
+		properties.setTimeoutMillis(2000);
+		return properties;
+	}
+
+	private static List<Long> idsOf(final WorkOrderManagerServiceImpl service) {
+		return service.getIds().stream()
+				.map(WorkOrderResponse::getId)
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	private static void await(final BooleanSupplier condition) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Replication did not catch up");
+			Thread.sleep(10);
+		}
+	}
+
+}
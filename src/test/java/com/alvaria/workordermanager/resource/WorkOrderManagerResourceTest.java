@@ -2,14 +2,27 @@ package com.alvaria.workordermanager.resource;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -18,14 +31,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.alvaria.workordermanager.converter.WorkOrderBinaryMessageConverter;
 import com.alvaria.workordermanager.exception.WorkOrderException;
 import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
 import com.alvaria.workordermanager.model.WorkOrderRequest;
 import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.PendingDequeue;
 import com.alvaria.workordermanager.service.WorkOrderManagerService;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(WorkOrderManagerResource.class)
@@ -74,6 +94,36 @@ public class WorkOrderManagerResourceTest {
 				.andExpect(status().isBadRequest());
 	}
 
+	@Test
+	public void testEnqueue_OtherPartitionRejected() throws Exception {
+		final WorkOrderRequest workOrderRequest = new WorkOrderRequest(1L, LocalDateTime.now(), "site-a");
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/enqueue")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(workOrderRequest));
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.errorMessage",
+						is("Work-orders of partition site-a must be sent to /work-order-manager/partitions/site-a")));
+		Mockito.verifyNoInteractions(this.workOrderManagerService);
+	}
+
+	@Test
+	public void testEnqueue_FailureWithoutAccept() throws Exception {
+		final WorkOrderRequest workOrderRequest = new WorkOrderRequest(1L, LocalDateTime.now());
+		doThrow(new WorkOrderException("Id already exists in the queue")).when(this.workOrderManagerService)
+				.enqueue(Mockito.any(WorkOrderRequest.class));
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/enqueue")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(workOrderRequest));
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isBadRequest())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.errorMessage").value("Id already exists in the queue"));
+	}
+
 	@Test
 	public void testDequeue_Success() throws Exception {
 		final Long id = 1L;
@@ -104,6 +154,159 @@ public class WorkOrderManagerResourceTest {
 				.andExpect(status().isBadRequest());
 	}
 
+	@Test
+	public void testDequeue_LongPoll() throws Exception {
+		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+				.id(1L)
+				.time(LocalDateTime.now())
+				.build();
+		when(this.workOrderManagerService.dequeueWhenAvailable(Mockito.any())).thenAnswer(invocation -> {
+			final Consumer<WorkOrderResponse> callback = invocation.getArgument(0);
+			final PendingDequeue pendingDequeue = new PendingDequeue(callback);
+			pendingDequeue.assign(workOrderResponse);
+			pendingDequeue.complete();
+			return pendingDequeue;
+		});
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/dequeue")
+				.param("waitMs", "1000")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		final MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(1)));
+	}
+
+	@Test
+	public void testDequeue_LongPollNegativeWait() throws Exception {
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/dequeue")
+				.param("waitMs", "-1")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testEnqueueBatch() throws Exception {
+		final List<WorkOrderRequest> workOrderRequests = List.of(new WorkOrderRequest(1L, LocalDateTime.now()),
+				new WorkOrderRequest(1L, LocalDateTime.now()));
+		final List<WorkOrderResponse> responseList = new ArrayList<>();
+		responseList.add(WorkOrderResponse.builder()
+				.id(1L)
+				.time(LocalDateTime.now())
+				.build());
+		responseList.add(WorkOrderResponse.builder()
+				.id(1L)
+				.message("Id already exists in the queue")
+				.build());
+
+		when(this.workOrderManagerService.enqueueBatch(Mockito.anyList())).thenReturn(responseList);
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/enqueue/batch")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(workOrderRequests));
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.size()", is(responseList.size())))
+				.andExpect(jsonPath("$[1].message", is("Id already exists in the queue")));
+	}
+
+	@Test
+	public void testEnqueueBatch_Binary() throws Exception {
+		final LocalDateTime time = LocalDateTime.of(2022, 8, 24, 18, 0);
+		final List<WorkOrderResponse> responseList = new ArrayList<>();
+		responseList.add(WorkOrderResponse.builder()
+				.id(3L)
+				.time(time)
+				.build());
+		responseList.add(WorkOrderResponse.builder()
+				.id(5L)
+				.message(WorkOrderManagerServiceImpl.ID_EXISTS_MESSAGE)
+				.build());
+		when(this.workOrderManagerService.enqueueBatch(Mockito.argThat(workOrderRequests -> workOrderRequests.size() == 2
+				&& workOrderRequests.get(0).getId() == 3L && time.equals(workOrderRequests.get(0).getTime())
+				&& workOrderRequests.get(1).getId() == 5L))).thenReturn(responseList);
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(body);
+		output.writeInt(2);
+		output.writeLong(3L);
+		output.writeLong(time.atZone(ZoneId.systemDefault()).toEpochSecond());
+		output.writeLong(5L);
+		output.writeLong(time.atZone(ZoneId.systemDefault()).toEpochSecond());
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/enqueue/batch")
+				.accept(WorkOrderBinaryMessageConverter.WORK_ORDER)
+				.contentType(WorkOrderBinaryMessageConverter.WORK_ORDER)
+				.content(body.toByteArray());
+
+		final MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(WorkOrderBinaryMessageConverter.WORK_ORDER))
+				.andReturn();
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+				mvcResult.getResponse().getContentAsByteArray()));
+		assertEquals(2, input.readInt());
+		assertEquals(0b11, input.readByte());
+		assertEquals(3L, input.readLong());
+		assertEquals(time.atZone(ZoneId.systemDefault()).toEpochSecond(), input.readLong());
+		assertEquals(0b10001, input.readByte());
+		assertEquals(5L, input.readLong());
+		assertEquals(WorkOrderManagerServiceImpl.ID_EXISTS_MESSAGE, input.readUTF());
+		assertEquals(-1, input.read());
+	}
+
+	@Test
+	public void testEnqueue_BinaryTruncated() throws Exception {
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/enqueue")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(WorkOrderBinaryMessageConverter.WORK_ORDER)
+				.content(new byte[12]);
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testDequeue_BinaryFailure() throws Exception {
+		doThrow(new WorkOrderException("Queue is empty")).when(this.workOrderManagerService).dequeue();
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/dequeue")
+				.accept(WorkOrderBinaryMessageConverter.WORK_ORDER)
+				.contentType(WorkOrderBinaryMessageConverter.WORK_ORDER);
+
+		final MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(status().isBadRequest())
+				.andReturn();
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+				mvcResult.getResponse().getContentAsByteArray()));
+		assertEquals(400, input.readInt());
+		assertEquals("Queue is empty", input.readUTF());
+	}
+
+	@Test
+	public void testDequeueBatch() throws Exception {
+		final List<WorkOrderResponse> responseList = new ArrayList<>();
+		responseList.add(WorkOrderResponse.builder()
+				.id(1L)
+				.time(LocalDateTime.now())
+				.build());
+
+		when(this.workOrderManagerService.dequeueBatch(5)).thenReturn(responseList);
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/dequeue/batch")
+				.param("count", "5")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.size()", is(responseList.size())))
+				.andExpect(jsonPath("$[0].id", is(1)));
+	}
+
 	@Test
 	public void testGetIds() throws Exception {
 		final List<WorkOrderResponse> responseList = new ArrayList<>();
@@ -117,7 +320,7 @@ public class WorkOrderManagerResourceTest {
 				.id(3L)
 				.build());
 
-		when(this.workOrderManagerService.getIds()).thenReturn(responseList);
+		when(this.workOrderManagerService.getIds(0, Integer.MAX_VALUE)).thenReturn(responseList);
 		final RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/work-order-manager/getIds")
 				.accept(MediaType.APPLICATION_JSON)
 				.contentType(MediaType.APPLICATION_JSON);
@@ -127,6 +330,26 @@ public class WorkOrderManagerResourceTest {
 				.andExpect(jsonPath("$.size()", is(responseList.size())));
 	}
 
+	@Test
+	public void testGetIds_Page() throws Exception {
+		final List<WorkOrderResponse> responseList = new ArrayList<>();
+		responseList.add(WorkOrderResponse.builder()
+				.id(2L)
+				.build());
+
+		when(this.workOrderManagerService.getIds(1, 1)).thenReturn(responseList);
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/work-order-manager/getIds")
+				.param("offset", "1")
+				.param("limit", "1")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.size()", is(responseList.size())))
+				.andExpect(jsonPath("$[0].id", is(2)));
+	}
+
 	@Test
 	public void testDelete_Success() throws Exception {
 		final Long id = 1L;
@@ -159,6 +382,84 @@ public class WorkOrderManagerResourceTest {
 				.andExpect(status().isNotFound());
 	}
 
+	@Test
+	public void testLease_Acknowledge() throws Exception {
+		final LocalDateTime time = LocalDateTime.of(2022, 8, 24, 18, 20, 50);
+		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+				.id(3L)
+				.time(time)
+				.leaseDeadline(time.plusSeconds(30))
+				.build();
+		when(this.workOrderManagerService.lease(Duration.ofMillis(30_000))).thenReturn(workOrderResponse);
+		doThrow(WorkOrderNotFoundException.class).when(this.workOrderManagerService).acknowledge(4L);
+
+		mockMvc.perform(MockMvcRequestBuilders.post("/work-order-manager/dequeue")
+				.param("leaseMs", "30000")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(3)))
+				.andExpect(jsonPath("$.leaseDeadline", is("2022-08-24T18:21:20")));
+		mockMvc.perform(MockMvcRequestBuilders.post("/work-order-manager/ack/{id}", 4L)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testLease_Binary() throws Exception {
+		final LocalDateTime time = LocalDateTime.of(2022, 8, 24, 18, 20, 50);
+		when(this.workOrderManagerService.lease(Duration.ofMillis(30_000))).thenReturn(WorkOrderResponse.builder()
+				.id(3L)
+				.time(time)
+				.leaseDeadline(time.plusSeconds(30))
+				.build());
+
+		final MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/work-order-manager/dequeue")
+				.param("leaseMs", "30000")
+				.accept(WorkOrderBinaryMessageConverter.WORK_ORDER)
+				.contentType(WorkOrderBinaryMessageConverter.WORK_ORDER))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(WorkOrderBinaryMessageConverter.WORK_ORDER))
+				.andReturn();
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+				mvcResult.getResponse().getContentAsByteArray()));
+		assertEquals(0b1000011, input.readByte());
+		assertEquals(3L, input.readLong());
+		assertEquals(time.atZone(ZoneId.systemDefault()).toEpochSecond(), input.readLong());
+		assertEquals(time.plusSeconds(30).atZone(ZoneId.systemDefault()).toEpochSecond(), input.readLong());
+		assertEquals(-1, input.read());
+	}
+
+	@Test
+	public void testLease_WithWaitRejected() throws Exception {
+		mockMvc.perform(MockMvcRequestBuilders.post("/work-order-manager/dequeue")
+				.param("leaseMs", "30000")
+				.param("waitMs", "1000")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+		verifyNoInteractions(this.workOrderManagerService);
+	}
+
+	@Test
+	public void testQuery() throws Exception {
+		final List<WorkOrderResponse> responseList = List.of(WorkOrderResponse.builder()
+				.id(5L)
+				.waitingTime(3300L)
+				.build());
+		when(this.workOrderManagerService.query(Mockito.argThat(query -> query.getClassType() == ClassTypeEnum.VIP
+				&& query.getMinWaitingTime() == 1800L && query.getLimit() == 10))).thenReturn(responseList);
+
+		mockMvc.perform(MockMvcRequestBuilders.post("/work-order-manager/query")
+				.content("{\"classType\":\"VIP\",\"minWaitingTime\":1800,\"limit\":10}")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id", is(5)))
+				.andExpect(jsonPath("$[0].waitingTime", is(3300)));
+	}
+
 	@Test
 	public void testGetPosition_Success() throws Exception {
 		final Long id = 1L;
@@ -227,4 +528,57 @@ public class WorkOrderManagerResourceTest {
 				.andExpect(jsonPath("$.size()", is(responseList.size())));
 	}
 
+	@Test
+	public void testStreamWaitingTime() throws Exception {
+		final WorkOrderRequest workOrderRequest = new WorkOrderRequest(1L, LocalDateTime.now());
+		doAnswer(invocation -> {
+			final WorkOrderManagerService.WaitingTimeVisitor visitor = invocation.getArgument(1);
+			visitor.visit(1L, 5L);
+			visitor.visit(2L, 54L);
+			return null;
+		}).when(this.workOrderManagerService)
+				.computeWaitingTime(Mockito.any(WorkOrderRequest.class), Mockito.any());
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders
+				.post("/work-order-manager/compute-waiting-time/stream")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(workOrderRequest));
+
+		final MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(content().string("{\"id\":1,\"waitingTime\":5}\n{\"id\":2,\"waitingTime\":54}\n"));
+	}
+
+	@Test
+	public void testComputeWaitingTimeStatistics() throws Exception {
+		final WorkOrderRequest workOrderRequest = new WorkOrderRequest(1L, LocalDateTime.now());
+		final List<WaitingTimeStatistics> statisticsList = new ArrayList<>();
+		statisticsList.add(WaitingTimeStatistics.builder()
+				.classType(ClassTypeEnum.NORMAL)
+				.count(2)
+				.mean(7.5)
+				.max(10L)
+				.p50(5L)
+				.p95(10L)
+				.p99(10L)
+				.build());
+
+		when(this.workOrderManagerService.computeWaitingTimeStatistics(Mockito.any(WorkOrderRequest.class)))
+				.thenReturn(statisticsList);
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders
+				.post("/work-order-manager/compute-waiting-time/statistics")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(workOrderRequest));
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].classType", is("NORMAL")))
+				.andExpect(jsonPath("$[0].mean", is(7.5)))
+				.andExpect(jsonPath("$[0].p50", is(5)));
+	}
+
 }
@@ -0,0 +1,127 @@
+package com.alvaria.workordermanager.resource;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.PendingDequeue;
+import com.alvaria.workordermanager.service.WorkOrderManagerService;
+import com.alvaria.workordermanager.service.WorkOrderPartitionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@WebMvcTest(WorkOrderPartitionResource.class)
+public class WorkOrderPartitionResourceTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@MockBean
+	private WorkOrderPartitionService workOrderPartitionService;
+
+	@Test
+	public void testEnqueue_AssignsPartitionOfPath() throws Exception {
+		final WorkOrderResponse workOrderResponse = WorkOrderResponse.builder()
+				.id(1L)
+				.partition("site-a")
+				.build();
+		when(this.workOrderPartitionService.enqueue(Mockito.any(WorkOrderRequest.class)))
+				.thenReturn(workOrderResponse);
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders
+				.post("/work-order-manager/partitions/{partition}/enqueue", "site-a")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(new WorkOrderRequest(1L, LocalDateTime.now())));
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.partition", is("site-a")));
+		final ArgumentCaptor<WorkOrderRequest> request = ArgumentCaptor.forClass(WorkOrderRequest.class);
+		Mockito.verify(this.workOrderPartitionService).enqueue(request.capture());
+		assertEquals("site-a", request.getValue().getPartition());
+	}
+
+	@Test
+	public void testEnqueue_PartitionMismatch() throws Exception {
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders
+				.post("/work-order-manager/partitions/{partition}/enqueue", "site-a")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper
+						.writeValueAsString(new WorkOrderRequest(1L, LocalDateTime.now(), "site-b")));
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testDequeue_LongPoll() throws Exception {
+		final WorkOrderManagerService partition = Mockito.mock(WorkOrderManagerService.class);
+		when(this.workOrderPartitionService.partition("site-a")).thenReturn(partition);
+		when(partition.dequeueWhenAvailable(Mockito.any())).thenAnswer(invocation -> {
+			final Consumer<WorkOrderResponse> callback = invocation.getArgument(0);
+			final PendingDequeue pendingDequeue = new PendingDequeue(callback);
+			pendingDequeue.assign(WorkOrderResponse.builder()
+					.id(1L)
+					.partition("site-a")
+					.build());
+			pendingDequeue.complete();
+			return pendingDequeue;
+		});
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders
+				.post("/work-order-manager/partitions/{partition}/dequeue", "site-a")
+				.param("waitMs", "1000")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		final MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.partition", is("site-a")));
+		Mockito.verify(partition, Mockito.never()).dequeue();
+	}
+
+	@Test
+	public void testDequeueGlobalBatch() throws Exception {
+		final List<WorkOrderResponse> responseList = List.of(WorkOrderResponse.builder()
+				.id(1L)
+				.partition("site-b")
+				.build());
+		when(this.workOrderPartitionService.dequeueGlobalBatch(3)).thenReturn(responseList);
+		final RequestBuilder requestBuilder = MockMvcRequestBuilders.post("/work-order-manager/global/dequeue/batch")
+				.param("count", "3")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		mockMvc.perform(requestBuilder)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].partition", is("site-b")));
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.alvaria.workordermanager.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Hammers all operations of the service from many threads and validates the queue invariants
+ */
+public class WorkOrderManagerServiceConcurrencyTest {
+
+	private static final int THREADS = 8;
+	private static final int OPERATIONS_PER_THREAD = 20_000;
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService = new WorkOrderManagerServiceImpl();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final Set<Long> enqueuedIds = ConcurrentHashMap.newKeySet();
+	private final Set<Long> removedIds = ConcurrentHashMap.newKeySet();
+
+	@Test
+	public void testConcurrentOperations_PreserveInvariants() throws Exception {
+		// Freeze the as-of time so the final order checks are not affected by ranks moving on
+		this.workOrderManagerService.setClock(Clock.fixed(Instant.now(), ZoneId.systemDefault()));
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int op = 0; op < OPERATIONS_PER_THREAD; op++) {
+					runRandomOperation();
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (final Future<?> future : futures) {
+			future.get(2, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+
+		final List<Long> remainingIds = ids(this.workOrderManagerService.getIds());
+		assertEquals(remainingIds.size(), new HashSet<>(remainingIds).size());
+		for (final Long id : remainingIds) {
+			assertTrue(enqueuedIds.contains(id));
+			assertThat(removedIds).doesNotContain(id);
+		}
+		assertEquals(enqueuedIds.size(), removedIds.size() + remainingIds.size());
+
+		for (int i = 0; i < remainingIds.size(); i += 101) {
+			assertEquals(i, this.workOrderManagerService.getPosition(remainingIds.get(i)).getPosition());
+		}
+		for (final Long id : remainingIds) {
+			assertEquals(id, this.workOrderManagerService.dequeue().getId());
+		}
+	}
+
+	private void runRandomOperation() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int choice = random.nextInt(1000);
+		if (choice < 350) {
+			final long id = nextId.getAndIncrement();
+			final LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(1, 100_000));
+			enqueuedIds.add(id);
+			this.workOrderManagerService.enqueue(new WorkOrderRequest(id, time));
+		} else if (choice < 650) {
+			try {
+				recordRemoval(this.workOrderManagerService.dequeue().getId());
+			} catch (final WorkOrderException e) {
+				// Queue momentarily empty
+			}
+		} else if (choice < 750) {
+			try {
+				recordRemoval(this.workOrderManagerService.delete(randomIssuedId()).getId());
+			} catch (final WorkOrderNotFoundException e) {
+				// Already removed by another thread
+			}
+		} else if (choice < 900) {
+			try {
+				assertThat(this.workOrderManagerService.getPosition(randomIssuedId()).getPosition())
+						.isGreaterThanOrEqualTo(0);
+			} catch (final WorkOrderNotFoundException e) {
+				// Not in the queue
+			}
+		} else if (choice < 999) {
+			final List<Long> page = ids(this.workOrderManagerService.getIds(random.nextInt(100), 50));
+			assertEquals(page.size(), new HashSet<>(page).size());
+		} else {
+			try {
+				this.workOrderManagerService.computeWaitingTime(new WorkOrderRequest(null, LocalDateTime.now()));
+			} catch (final WorkOrderException e) {
+				// Queue momentarily empty
+			}
+		}
+	}
+
+	private long randomIssuedId() {
+		return ThreadLocalRandom.current().nextLong(1, nextId.get() + 1);
+	}
+
+	private void recordRemoval(final Long id) {
+		assertTrue(enqueuedIds.contains(id));
+		assertTrue(removedIds.add(id), "Id removed twice: " + id);
+	}
+
+	private static List<Long> ids(final List<WorkOrderResponse> responseList) {
+		return responseList.stream()
+				.map(WorkOrderResponse::getId)
+				.collect(Collectors.toList());
+	}
+
+}
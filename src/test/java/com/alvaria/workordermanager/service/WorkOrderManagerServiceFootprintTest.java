@@ -0,0 +1,65 @@
+package com.alvaria.workordermanager.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+
+/**
+ * Pushes 10M work-orders through a queue of constant depth and checks the retained heap does not
+ * grow with the number of work-orders processed. Slow, so it only runs with the footprint Maven
+ * profile.
+ */
+@Tag("footprint")
+public class WorkOrderManagerServiceFootprintTest {
+
+	private static final int QUEUE_DEPTH = 10_000;
+	private static final long WARM_UP_ORDERS = 1_000_000L;
+	private static final long TOTAL_ORDERS = 10_000_000L;
+	private static final long MAX_GROWTH_BYTES = 8L * 1024 * 1024;
+
+	private final WorkOrderManagerServiceImpl workOrderManagerService = new WorkOrderManagerServiceImpl();
+	private final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 20, 50);
+
+	@Test
+	public void testEnqueueDequeue_RetainedMemoryStaysFlat() throws Exception {
+		long id = 1;
+		while (id <= QUEUE_DEPTH) {
+			enqueue(id++);
+		}
+		while (id <= WARM_UP_ORDERS) {
+			enqueue(id++);
+			this.workOrderManagerService.dequeue();
+		}
+		final long baseline = retainedHeapBytes();
+
+		while (id <= TOTAL_ORDERS) {
+			enqueue(id++);
+			this.workOrderManagerService.dequeue();
+		}
+		final long retained = retainedHeapBytes();
+
+		assertEquals(QUEUE_DEPTH, this.workOrderManagerService.getIds().size());
+		assertThat(retained - baseline).isLessThan(MAX_GROWTH_BYTES);
+	}
+
+	private void enqueue(final long id) {
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(id, start.plusSeconds(id)));
+	}
+
+	private static long retainedHeapBytes() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+}
@@ -2,10 +2,21 @@ package com.alvaria.workordermanager.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
@@ -15,9 +26,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.alvaria.workordermanager.exception.WorkOrderException;
 import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.AgeFunction;
+import com.alvaria.workordermanager.model.ClassRanking;
+import com.alvaria.workordermanager.model.ClassTypeEnum;
+import com.alvaria.workordermanager.model.RankingPolicy;
+import com.alvaria.workordermanager.model.WaitingTimeStatistics;
+import com.alvaria.workordermanager.model.WorkOrderQuery;
 import com.alvaria.workordermanager.model.WorkOrderRequest;
 import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.queue.WorkOrderRanking;
 import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.storage.StorageProperties;
 
 @ExtendWith(MockitoExtension.class)
 public class WorkOrderManagerServiceTest {
@@ -52,6 +71,84 @@ public class WorkOrderManagerServiceTest {
 		assertThrows(WorkOrderException.class, () -> this.workOrderManagerService.dequeue());
 	}
 
+	@Test
+	public void testDequeue_WaitsForEnqueue() throws Exception {
+		final CompletableFuture<WorkOrderResponse> dequeued = CompletableFuture
+				.supplyAsync(() -> this.workOrderManagerService.dequeue(Duration.ofSeconds(10)));
+		Thread.sleep(50);
+		assertFalse(dequeued.isDone());
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, LocalDateTime.now()));
+		assertEquals(1L, dequeued.get(5, TimeUnit.SECONDS).getId());
+		assertTrue(this.workOrderManagerService.getIds().isEmpty());
+	}
+
+	@Test
+	public void testDequeue_Timeout() {
+		assertThrows(WorkOrderException.class, () -> this.workOrderManagerService.dequeue(Duration.ofMillis(10)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, LocalDateTime.now()));
+		assertEquals(1, this.workOrderManagerService.getIds().size());
+	}
+
+	@Test
+	public void testDequeueWhenAvailable_ServesWaitersInOrder() {
+		final List<Long> first = new ArrayList<>();
+		final List<Long> second = new ArrayList<>();
+		final PendingDequeue firstDequeue = this.workOrderManagerService
+				.dequeueWhenAvailable(response -> first.add(response.getId()));
+		this.workOrderManagerService.dequeueWhenAvailable(response -> second.add(response.getId()));
+		final PendingDequeue cancelled = this.workOrderManagerService
+				.dequeueWhenAvailable(response -> first.add(-1L));
+		assertTrue(this.workOrderManagerService.cancelDequeue(cancelled));
+
+		final LocalDateTime now = LocalDateTime.now();
+		this.workOrderManagerService.enqueueBatch(List.of(new WorkOrderRequest(1L, now.minusSeconds(10)),
+				new WorkOrderRequest(2L, now.minusSeconds(20)), new WorkOrderRequest(4L, now.minusSeconds(5))));
+
+		assertEquals(List.of(2L), first);
+		assertEquals(List.of(1L), second);
+		assertFalse(this.workOrderManagerService.cancelDequeue(firstDequeue));
+		assertEquals(2L, firstDequeue.getWorkOrder().getId());
+		assertEquals(1, this.workOrderManagerService.getIds().size());
+	}
+
+	@Test
+	public void testEnqueueBatch() {
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, LocalDateTime.of(2022, 8, 24, 18, 20, 50)));
+		final List<WorkOrderRequest> workOrderRequests = List.of(
+				new WorkOrderRequest(30L, LocalDateTime.of(2022, 8, 24, 19, 50, 50)),
+				new WorkOrderRequest(3L, LocalDateTime.of(2022, 8, 24, 18, 20, 50)),
+				new WorkOrderRequest(16L, LocalDateTime.of(2022, 8, 24, 18, 22, 50)),
+				new WorkOrderRequest(25L, LocalDateTime.of(2022, 8, 24, 18, 23, 50)),
+				new WorkOrderRequest(45L, LocalDateTime.of(2022, 8, 24, 18, 50, 50)),
+				new WorkOrderRequest(16L, LocalDateTime.of(2022, 8, 24, 18, 22, 50)),
+				new WorkOrderRequest(15L, LocalDateTime.of(2022, 8, 24, 18, 21, 50)));
+
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.enqueueBatch(workOrderRequests);
+
+		assertEquals(workOrderRequests.size(), responseList.size());
+		assertEquals(List.of(1, 5), responseList.stream()
+				.filter(response -> response.getMessage() != null)
+				.map(responseList::indexOf)
+				.collect(Collectors.toList()));
+		assertEquals(List.of(15L, 45L, 30L, 25L, 3L, 16L), this.workOrderManagerService.getIds().stream()
+				.map(WorkOrderResponse::getId)
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testDequeueBatch() {
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, LocalDateTime.of(2022, 8, 24, 18, 20, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(30L, LocalDateTime.of(2022, 8, 24, 19, 50, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(16L, LocalDateTime.of(2022, 8, 24, 18, 22, 50)));
+
+		assertEquals(List.of(30L, 3L), this.workOrderManagerService.dequeueBatch(2).stream()
+				.map(WorkOrderResponse::getId)
+				.collect(Collectors.toList()));
+		assertEquals(1, this.workOrderManagerService.dequeueBatch(10).size());
+		assertThrows(WorkOrderException.class, () -> this.workOrderManagerService.dequeueBatch(1));
+		assertThrows(WorkOrderException.class, () -> this.workOrderManagerService.dequeueBatch(0));
+	}
+
 	@Test
 	public void testGetIds() {
 		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, LocalDateTime.of(2022, 8, 24, 18, 20, 50)));
@@ -71,6 +168,24 @@ public class WorkOrderManagerServiceTest {
 		assertEquals(actualIds, expectedIds);
 	}
 
+	@Test
+	public void testGetIds_Page() {
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, LocalDateTime.of(2022, 8, 24, 18, 20, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(30L, LocalDateTime.of(2022, 8, 24, 19, 50, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(16L, LocalDateTime.of(2022, 8, 24, 18, 22, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(25L, LocalDateTime.of(2022, 8, 24, 18, 23, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(45L, LocalDateTime.of(2022, 8, 24, 18, 50, 50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(15L, LocalDateTime.of(2022, 8, 24, 18, 21, 50)));
+
+		final List<Long> actualIds = this.workOrderManagerService.getIds(2, 3).stream()
+				.map(WorkOrderResponse::getId)
+				.collect(Collectors.toList());
+
+		assertEquals(List.of(30L, 25L, 3L), actualIds);
+		assertThat(this.workOrderManagerService.getIds(6, 10)).isEmpty();
+		assertThrows(WorkOrderException.class, () -> this.workOrderManagerService.getIds(-1, 10));
+	}
+
 	@Test
 	public void testDelete_Success() {
 		final Long id = 1L;
@@ -101,6 +216,193 @@ public class WorkOrderManagerServiceTest {
 		assertEquals(response.getPosition(), expected.indexOf(30L));
 	}
 
+	@Test
+	public void testGetPosition_RankedAtCurrentTime() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, start.plusSeconds(1_000)));
+
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(1_010)));
+		assertEquals(1, this.workOrderManagerService.getPosition(3L).getPosition());
+
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(2_000)));
+		assertEquals(0, this.workOrderManagerService.getPosition(3L).getPosition());
+		assertEquals(3L, this.workOrderManagerService.dequeue().getId());
+	}
+
+	@Test
+	public void testSetRanking_ReordersClasses() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(100)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, start.plusSeconds(50)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(2L, start.plusSeconds(60)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(15L, start.plusSeconds(90)));
+		assertEquals(List.of(15L, 3L, 1L, 2L), ids(this.workOrderManagerService.getIds()));
+
+		final Map<ClassTypeEnum, ClassRanking> classes = new HashMap<>();
+		classes.put(ClassTypeEnum.NORMAL, ClassRanking.builder().tier(2).build());
+		classes.put(ClassTypeEnum.PRIORITY, ClassRanking.builder().ageFunction(AgeFunction.CONSTANT).build());
+		this.workOrderManagerService.setRanking(WorkOrderRanking.compile(new RankingPolicy(classes)));
+
+		assertEquals(List.of(1L, 2L, 15L, 3L), ids(this.workOrderManagerService.getIds()));
+		assertEquals(3, this.workOrderManagerService.getPosition(3L).getPosition());
+		assertEquals(1L, this.workOrderManagerService.dequeue().getId());
+	}
+
+	@Test
+	public void testExpire_ClassAndOrderTimeToLive() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.setClock(fixedClock(start));
+		this.workOrderManagerService.setTimesToLive(Map.of(ClassTypeEnum.NORMAL, Duration.ofSeconds(60)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(2L, start.plusSeconds(30)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, start, null, 10L));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(5L, start));
+		assertThrows(WorkOrderException.class,
+				() -> this.workOrderManagerService.enqueue(new WorkOrderRequest(4L, start, null, 0L)));
+
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(10)));
+		assertEquals(1, this.workOrderManagerService.expire());
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(75)));
+		assertEquals(1, this.workOrderManagerService.expire());
+		this.workOrderManagerService.setClock(fixedClock(start.plusDays(1)));
+		this.workOrderManagerService.delete(2L);
+		assertEquals(0, this.workOrderManagerService.expire());
+
+		assertEquals(List.of(5L), ids(this.workOrderManagerService.getIds()));
+		assertEquals(List.of(3L, 1L), ids(this.workOrderManagerService.getExpired()));
+		assertEquals(start, this.workOrderManagerService.getExpired().get(1).getTime());
+	}
+
+	@Test
+	public void testMutationListenerFailure_RejectsMutation() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(60)));
+		// Fails to record every mutation of an even id, like a write-ahead log that cannot be written
+		this.workOrderManagerService.addMutationListener(new WorkOrderMutationListener() {
+
+			@Override
+			public void enqueued(final long id, final long time, final int nano, final ClassTypeEnum classType,
+					final int timeToLive) {
+				fail(id);
+			}
+
+			@Override
+			public void removed(final long id) {
+				fail(id);
+			}
+
+			private void fail(final long id) {
+				if (id % 2 == 0) {
+					throw new IllegalStateException("Log is full");
+				}
+			}
+
+		});
+
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		assertThrows(IllegalStateException.class,
+				() -> this.workOrderManagerService.enqueue(new WorkOrderRequest(2L, start)));
+		final List<WorkOrderResponse> responseList = this.workOrderManagerService.enqueueBatch(List.of(
+				new WorkOrderRequest(7L, start.plusSeconds(1)), new WorkOrderRequest(4L, start.plusSeconds(2)),
+				new WorkOrderRequest(11L, start.plusSeconds(3))));
+		assertEquals(null, responseList.get(0).getMessage());
+		assertEquals(WorkOrderManagerServiceImpl.NOT_RECORDED_MESSAGE, responseList.get(1).getMessage());
+		assertEquals(WorkOrderManagerServiceImpl.NOT_RECORDED_MESSAGE, responseList.get(2).getMessage());
+		assertEquals(List.of(1L, 7L), ids(this.workOrderManagerService.getIds()));
+	}
+
+	@Test
+	public void testQuery_ClassTimeAndIdRange() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.setClock(fixedClock(start.plusHours(1)));
+		for (long id = 40; id >= 1; id--) {
+			this.workOrderManagerService.enqueue(new WorkOrderRequest(id, start.plusMinutes(id)));
+		}
+
+		final List<WorkOrderResponse> vip = this.workOrderManagerService.query(WorkOrderQuery.builder()
+				.classType(ClassTypeEnum.VIP)
+				.minWaitingTime(1800L)
+				.build());
+		assertEquals(List.of(5L, 10L, 20L, 25L), ids(vip));
+		assertEquals(3300L, vip.get(0).getWaitingTime());
+		assertEquals(List.of(5L, 10L), ids(this.workOrderManagerService.query(WorkOrderQuery.builder()
+				.classType(ClassTypeEnum.VIP)
+				.minWaitingTime(1800L)
+				.limit(2)
+				.build())));
+		assertEquals(List.of(11L, 12L, 13L, 14L, 15L), ids(this.workOrderManagerService.query(WorkOrderQuery.builder()
+				.from(start.plusMinutes(10))
+				.to(start.plusMinutes(15))
+				.minId(11L)
+				.maxId(15L)
+				.build())));
+		assertEquals(List.of(), this.workOrderManagerService.query(WorkOrderQuery.builder()
+				.from(start.plusMinutes(20))
+				.to(start.plusMinutes(10))
+				.build()));
+		assertThrows(WorkOrderException.class,
+				() -> this.workOrderManagerService.query(WorkOrderQuery.builder().limit(-1).build()));
+	}
+
+	@Test
+	public void testLease_AcknowledgeAndRedeliver() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(100)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(2L, start.plusSeconds(10)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(4L, start.plusSeconds(20)));
+
+		final WorkOrderResponse first = this.workOrderManagerService.lease(Duration.ofSeconds(30));
+		assertEquals(1L, first.getId());
+		assertEquals(start.plusSeconds(130), first.getLeaseDeadline());
+		assertEquals(2L, this.workOrderManagerService.lease(Duration.ofSeconds(60)).getId());
+		assertEquals(List.of(4L), ids(this.workOrderManagerService.getIds()));
+		assertThrows(WorkOrderException.class,
+				() -> this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start)));
+
+		this.workOrderManagerService.acknowledge(2L);
+		assertThrows(WorkOrderNotFoundException.class, () -> this.workOrderManagerService.acknowledge(2L));
+
+		this.workOrderManagerService.setClock(fixedClock(start.plusSeconds(130)));
+		assertEquals(1, this.workOrderManagerService.redeliver());
+		assertEquals(List.of(1L, 4L), ids(this.workOrderManagerService.getIds()));
+		assertThrows(WorkOrderNotFoundException.class, () -> this.workOrderManagerService.acknowledge(1L));
+		assertEquals(0, this.workOrderManagerService.leaseCount());
+	}
+
+	@Test
+	public void testLease_DeadlineInClockZone() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		final ZoneOffset zone = ZoneOffset.ofHours(2);
+		this.workOrderManagerService.setClock(Clock.fixed(start.plusSeconds(100).toInstant(zone), zone));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+
+		assertEquals(start.plusSeconds(130), this.workOrderManagerService.lease(Duration.ofSeconds(30)).getLeaseDeadline());
+	}
+
+	@Test
+	public void testEnqueue_SuppressesRecentlyProcessedIds() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.setClock(fixedClock(start));
+		this.workOrderManagerService.setDeduplication(Duration.ofMinutes(10), 1_000);
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(2L, start));
+		this.workOrderManagerService.dequeue();
+		this.workOrderManagerService.delete(2L);
+
+		final WorkOrderException exception = assertThrows(WorkOrderException.class,
+				() -> this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start)));
+		assertEquals(WorkOrderManagerServiceImpl.ID_PROCESSED_MESSAGE, exception.getMessage());
+		assertEquals(WorkOrderManagerServiceImpl.ID_PROCESSED_MESSAGE, this.workOrderManagerService
+				.enqueueBatch(List.of(new WorkOrderRequest(1L, start))).get(0).getMessage());
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(2L, start));
+
+		this.workOrderManagerService.setClock(fixedClock(start.plusMinutes(15)));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+	}
+
 	@Test
 	public void testGetPosition_Failure() {
 		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, LocalDateTime.of(2022, 8, 24, 18, 20, 50)));
@@ -133,4 +435,97 @@ public class WorkOrderManagerServiceTest {
 		assertThrows(WorkOrderException.class, () -> this.workOrderManagerService.computeWaitingTime(workOrderRequest));
 	}
 
+	@Test
+	public void testComputeWaitingTime_Visitor() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(1L, start));
+		this.workOrderManagerService.enqueue(new WorkOrderRequest(3L, start.plusSeconds(40)));
+
+		final Map<Long, Long> waitingTimes = new HashMap<>();
+		this.workOrderManagerService.computeWaitingTime(new WorkOrderRequest(null, start.plusSeconds(100)),
+				waitingTimes::put);
+
+		assertEquals(Map.of(1L, 100L, 3L, 60L), waitingTimes);
+	}
+
+	@Test
+	public void testComputeWaitingTimeStatistics() {
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		for (long id = 1; id <= 100; id++) {
+			this.workOrderManagerService.enqueue(new WorkOrderRequest(id * 7 + 1, start.plusSeconds(id)));
+		}
+
+		final List<WaitingTimeStatistics> statisticsList = this.workOrderManagerService
+				.computeWaitingTimeStatistics(new WorkOrderRequest(null, start.plusSeconds(200)));
+		final WaitingTimeStatistics normal = statisticsList.stream()
+				.filter(statistics -> statistics.getClassType() == ClassTypeEnum.NORMAL)
+				.findFirst()
+				.orElseThrow();
+		final int count = normal.getCount();
+		final List<Long> sorted = new ArrayList<>();
+		this.workOrderManagerService.computeWaitingTime(new WorkOrderRequest(null, start.plusSeconds(200)),
+				(id, waitingTime) -> {
+					if (id % 3 != 0 && id % 5 != 0) {
+						sorted.add(waitingTime);
+					}
+				});
+		Collections.sort(sorted);
+
+		assertEquals(ClassTypeEnum.values().length, statisticsList.size());
+		assertEquals(sorted.size(), count);
+		assertEquals(sorted.get(count - 1), normal.getMax());
+		assertEquals(sorted.stream().mapToLong(Long::longValue).average().orElseThrow(), normal.getMean(), 1e-9);
+		assertEquals(sorted.get((count * 50 + 99) / 100 - 1), normal.getP50());
+		assertEquals(sorted.get((count * 95 + 99) / 100 - 1), normal.getP95());
+		assertEquals(sorted.get((count * 99 + 99) / 100 - 1), normal.getP99());
+	}
+
+	@Test
+	public void testEnqueue_ClassificationPolicy() {
+		final WorkOrderManagerServiceImpl service = new WorkOrderManagerServiceImpl();
+		service.setClassificationPolicy(id -> id >= 100 ? ClassTypeEnum.MANAGEMENT_OVERRIDE : ClassTypeEnum.NORMAL);
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		service.enqueue(new WorkOrderRequest(15L, start));
+		service.enqueue(new WorkOrderRequest(101L, start.plusSeconds(10)));
+		service.enqueue(new WorkOrderRequest(3L, start.plusSeconds(5)));
+
+		assertEquals(1, service.queueDepth(ClassTypeEnum.MANAGEMENT_OVERRIDE));
+		assertEquals(2, service.queueDepth(ClassTypeEnum.NORMAL));
+		assertEquals(List.of(101L, 15L, 3L), service.getIds().stream()
+				.map(WorkOrderResponse::getId)
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testOffHeapStorage_SameQueueOrder() {
+		final StorageProperties storage = new StorageProperties();
+		storage.setOffHeap(true);
+		final WorkOrderManagerServiceImpl offHeap = new WorkOrderManagerServiceImpl(storage);
+		final WorkOrderManagerServiceImpl onHeap = new WorkOrderManagerServiceImpl();
+		final LocalDateTime start = LocalDateTime.of(2022, 8, 24, 18, 0, 0);
+		offHeap.setClock(fixedClock(start.plusSeconds(600)));
+		onHeap.setClock(fixedClock(start.plusSeconds(600)));
+		for (long id = 1; id <= 300; id++) {
+			final WorkOrderRequest request = new WorkOrderRequest(id, start.plusSeconds(id % 17));
+			offHeap.enqueue(request);
+			onHeap.enqueue(request);
+		}
+		offHeap.delete(30L);
+		onHeap.delete(30L);
+
+		assertTrue(offHeap.isOffHeap());
+		assertEquals(onHeap.getPosition(45L).getPosition(), offHeap.getPosition(45L).getPosition());
+		assertEquals(ids(onHeap.getIds()), ids(offHeap.getIds()));
+		assertEquals(onHeap.dequeue().getId(), offHeap.dequeue().getId());
+		assertEquals(298, offHeap.getIds().size());
+	}
+
+	private static List<Long> ids(final List<WorkOrderResponse> responses) {
+		return responses.stream().map(WorkOrderResponse::getId).collect(Collectors.toList());
+	}
+
+	private static Clock fixedClock(final LocalDateTime time) {
+		return Clock.fixed(time.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+	}
+
 }
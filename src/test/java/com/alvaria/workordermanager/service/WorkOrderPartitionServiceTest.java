@@ -0,0 +1,71 @@
+package com.alvaria.workordermanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.alvaria.workordermanager.exception.WorkOrderException;
+import com.alvaria.workordermanager.exception.WorkOrderNotFoundException;
+import com.alvaria.workordermanager.model.WorkOrderRequest;
+import com.alvaria.workordermanager.model.WorkOrderResponse;
+import com.alvaria.workordermanager.service.impl.WorkOrderManagerServiceImpl;
+import com.alvaria.workordermanager.service.impl.WorkOrderPartitionServiceImpl;
+
+public class WorkOrderPartitionServiceTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+	private WorkOrderPartitionServiceImpl workOrderPartitionService;
+
+	@BeforeEach
+	public void setUp() {
+		this.workOrderPartitionService = new WorkOrderPartitionServiceImpl(new WorkOrderManagerServiceImpl());
+		this.workOrderPartitionService.setClock(Clock.fixed(START.plusSeconds(1_000).toInstant(ZoneOffset.UTC),
+				ZoneOffset.UTC));
+	}
+
+	@Test
+	public void testEnqueue_PartitionsAreIndependent() {
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(1L, START, "site-a"));
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(1L, START, "site-b"));
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(1L, START));
+
+		assertEquals(List.of(WorkOrderPartitionService.DEFAULT_PARTITION, "site-a", "site-b"),
+				this.workOrderPartitionService.getPartitions());
+		assertThrows(WorkOrderException.class,
+				() -> this.workOrderPartitionService.enqueue(new WorkOrderRequest(1L, START, "site-a")));
+		this.workOrderPartitionService.partition("site-a").delete(1L);
+		assertEquals(1, this.workOrderPartitionService.partition("site-b").getIds().size());
+		assertThrows(WorkOrderNotFoundException.class, () -> this.workOrderPartitionService.partition("site-c"));
+		assertThrows(WorkOrderException.class,
+				() -> this.workOrderPartitionService.enqueue(new WorkOrderRequest(2L, START, "site/a")));
+	}
+
+	@Test
+	public void testDequeueGlobal_MergesPartitionsInQueueOrder() {
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(1L, START.plusSeconds(300), "site-a"));
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(2L, START.plusSeconds(100), "site-b"));
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(4L, START.plusSeconds(200), "site-a"));
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(15L, START.plusSeconds(900)));
+		this.workOrderPartitionService.enqueue(new WorkOrderRequest(7L, START.plusSeconds(50), "site-b"));
+
+		final WorkOrderResponse first = this.workOrderPartitionService.dequeueGlobal();
+		assertEquals(15L, first.getId());
+		assertEquals(WorkOrderPartitionService.DEFAULT_PARTITION, first.getPartition());
+
+		final List<WorkOrderResponse> rest = this.workOrderPartitionService.dequeueGlobalBatch(10);
+		assertEquals(List.of(7L, 2L, 4L, 1L), rest.stream().map(WorkOrderResponse::getId).collect(Collectors.toList()));
+		assertEquals(List.of("site-b", "site-b", "site-a", "site-a"),
+				rest.stream().map(WorkOrderResponse::getPartition).collect(Collectors.toList()));
+		assertThrows(WorkOrderException.class, () -> this.workOrderPartitionService.dequeueGlobal());
+	}
+
+}